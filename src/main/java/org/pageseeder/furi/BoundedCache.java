@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A concurrent cache with a maximum size and an optional time-to-live.
+ *
+ * <p>The entries are distributed between segments by the hash of their key; each segment is
+ * locked independently and evicts its least recently used entry when it is full. Expired
+ * entries are removed when they are accessed.
+ *
+ * @param <K> The type of keys
+ * @param <V> The type of values
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+final class BoundedCache<K, V> {
+
+  /**
+   * The minimum number of entries per segment before the cache is split in segments.
+   */
+  private static final int MIN_SEGMENT_SIZE = 64;
+
+  /**
+   * The maximum number of segments.
+   */
+  private static final int MAX_SEGMENTS = 16;
+
+  /**
+   * The segments.
+   */
+  private final Segment<K, V>[] _segments;
+
+  /**
+   * The time-to-live of entries in nanoseconds, zero if entries do not expire.
+   */
+  private final long _ttl;
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maxSize   The maximum number of entries.
+   * @param ttlMillis The time-to-live of entries in milliseconds, zero if entries do not expire.
+   *
+   * @throws IllegalArgumentException If the size is not strictly positive or the TTL is negative.
+   */
+  @SuppressWarnings("unchecked")
+  BoundedCache(int maxSize, long ttlMillis) {
+    if (maxSize <= 0)
+      throw new IllegalArgumentException("The size of the cache must be strictly positive");
+    if (ttlMillis < 0)
+      throw new IllegalArgumentException("The time-to-live must be positive or zero");
+    int count = 1;
+    while (count < MAX_SEGMENTS && maxSize / (count * 2) >= MIN_SEGMENT_SIZE) {
+      count *= 2;
+    }
+    this._segments = (Segment<K, V>[])new Segment<?, ?>[count];
+    int capacity = (maxSize + count - 1) / count;
+    for (int i = 0; i < count; i++) {
+      this._segments[i] = new Segment<K, V>(capacity);
+    }
+    this._ttl = ttlMillis * 1000000L;
+  }
+
+  /**
+   * Returns the value for the specified key.
+   *
+   * @param key The key.
+   *
+   * @return the value or <code>null</code> if the key is not in the cache or has expired.
+   */
+  V get(K key) {
+    Segment<K, V> segment = segment(key);
+    synchronized (segment) {
+      Timed<V> entry = segment.get(key);
+      if (entry == null) return null;
+      if (this._ttl > 0 && System.nanoTime() - entry._created > this._ttl) {
+        segment.remove(key);
+        return null;
+      }
+      return entry._value;
+    }
+  }
+
+  /**
+   * Puts the value for the specified key in the cache.
+   *
+   * @param key   The key.
+   * @param value The value.
+   */
+  void put(K key, V value) {
+    Segment<K, V> segment = segment(key);
+    Timed<V> entry = new Timed<V>(value, this._ttl > 0 ? System.nanoTime() : 0);
+    synchronized (segment) {
+      segment.put(key, entry);
+    }
+  }
+
+  /**
+   * Removes all the entries from the cache.
+   */
+  void clear() {
+    for (Segment<K, V> segment : this._segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of entries in the cache, including entries which have expired.
+   *
+   * @return the number of entries in the cache.
+   */
+  int size() {
+    int size = 0;
+    for (Segment<K, V> segment : this._segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Returns the segment for the specified key.
+   */
+  private Segment<K, V> segment(K key) {
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    return this._segments[h & (this._segments.length - 1)];
+  }
+
+  /**
+   * A value and the time it was put in the cache.
+   */
+  private static final class Timed<V> {
+
+    /** The value */
+    private final V _value;
+
+    /** The time the entry was created in nanoseconds */
+    private final long _created;
+
+    Timed(V value, long created) {
+      this._value = value;
+      this._created = created;
+    }
+  }
+
+  /**
+   * A segment of the cache in access order evicting its least recently used entry when full.
+   */
+  private static final class Segment<K, V> extends LinkedHashMap<K, Timed<V>> {
+
+    /** As required for serializable classes */
+    private static final long serialVersionUID = 1L;
+
+    /** The maximum number of entries */
+    private final int _capacity;
+
+    Segment(int capacity) {
+      super(16, 0.75f, true);
+      this._capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, Timed<V>> eldest) {
+      return size() > this._capacity;
+    }
+  }
+
+}
@@ -17,8 +17,12 @@ package org.pageseeder.furi;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -54,6 +58,14 @@ public final class Main {
     } else if (args.length == 3 && "-resolve".equals(args[0])) {
       main_resolve(args[1], args[2]);
 
+      // compile a list of patterns
+    } else if (args.length == 3 && "-compile".equals(args[0])) {
+      main_compile(args[1], args[2]);
+
+      // analyse a list of patterns
+    } else if (args.length == 2 && "-analyze".equals(args[0])) {
+      main_analyze(args[1]);
+
       // all other cases
     } else {
       usage(null);
@@ -74,6 +86,8 @@ public final class Main {
     System.err.println("where options include:");
     System.err.println("  -parse <template>      Parse the given URI template");
     System.err.println("  -resolve <file> <uri>  Resolve the given URI from the patterns in file");
+    System.err.println("  -compile <file> <out>  Store the patterns in file in a compiled form for fast loading");
+    System.err.println("  -analyze <file>        Report conflicting patterns in file and suggest an order");
   }
 
   // private helpers
@@ -139,14 +153,73 @@ public final class Main {
     }
   }
 
+  /**
+   * Stores the list of patterns in a compiled form.
+   *
+   * @param filename The name of the file containing the list of patterns.
+   * @param output   The name of the file to write.
+   */
+  private static void main_compile(String filename, String output) throws IOException {
+    File f = new File(filename);
+    if (!f.exists()) {
+      usage("Could not find file " + f.getName());
+      return;
+    }
+    List<URIPattern> patterns = toPatterns(f);
+    OutputStream out = new FileOutputStream(output);
+    try {
+      URIPatternStore.write(patterns, out);
+    } finally {
+      out.close();
+    }
+    System.out.println(patterns.size()+" patterns compiled to "+output);
+  }
+
+  /**
+   * Reports the duplicate, shadowed and ambiguous patterns and suggests an order for the patterns.
+   *
+   * Results on System.out.
+   *
+   * @param filename The name of the file containing the list of patterns.
+   */
+  private static void main_analyze(String filename) throws IOException {
+    File f = new File(filename);
+    if (!f.exists()) {
+      usage("Could not find file " + f.getName());
+      return;
+    }
+    List<URIPattern> patterns = toPatterns(f);
+    URIPatternAnalyzer analyzer = new URIPatternAnalyzer(patterns);
+    List<URIPatternAnalyzer.Conflict> conflicts = analyzer.conflicts();
+    System.out.println(conflicts.size()+" conflicts in "+patterns.size()+" patterns:");
+    for (URIPatternAnalyzer.Conflict c : conflicts) {
+      System.out.println(c.kind() + "\t" + c.pattern() + "\t" + c.earlier());
+    }
+    System.out.println("Suggested order:");
+    for (URIPattern p : analyzer.suggestOrder(null)) {
+      System.out.println(p);
+    }
+  }
+
   /**
    * Returns the contents of the specified file as a list of URI patterns.
    *
+   * <p>The file may contain one pattern per line or patterns compiled with the
+   * <code>-compile</code> option.
+   *
    * @param file The file containing the URI patterns.
    *
    * @return The list of URI patterns.
    */
   private static final List<URIPattern> toPatterns(File file) throws IOException {
+    if (URIPatternStore.isStore(file)) {
+      InputStream in = new FileInputStream(file);
+      try {
+        return URIPatternStore.read(in);
+      } finally {
+        in.close();
+      }
+    }
     BufferedReader reader = new BufferedReader(new FileReader(file));
     String line = null;
     // read the file
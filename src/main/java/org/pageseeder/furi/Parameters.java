@@ -43,6 +43,23 @@ public interface Parameters {
    */
   String[] getValues(String name);
 
+  /**
+   * Returns the values for the specified parameter as supplied.
+   *
+   * <p>The value can be an array of values, an <code>Iterable</code> for a list of values, a
+   * <code>Map</code> for an associative array, or any other object as a single value. Operators
+   * iterate over the values directly instead of converting them to an array of strings first.
+   *
+   * <p>By default, this method returns the array of values.
+   *
+   * @param name The name of the parameter.
+   *
+   * @return The values for this parameter or <code>null</code> if not specified.
+   */
+  default Object getObject(String name) {
+    return getValues(name);
+  }
+
   /**
    * Indicates whether the parameters for the given name has a value.
    *
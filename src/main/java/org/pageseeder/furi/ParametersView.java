@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A read-only view of values as parameters, the values are not copied.
+ *
+ * @see URIParameters#view(Map)
+ * @see URIParameters#view(Function)
+ * @see URIParameters#viewQuery(String)
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+abstract class ParametersView implements Parameters {
+
+  /**
+   * {@inheritDoc}
+   */
+  public String getValue(String name) {
+    String[] values = getValues(name);
+    return values != null && values.length > 0 ? values[0] : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean exists(String name) {
+    return getValues(name) != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean hasValue(String name) {
+    String[] values = getValues(name);
+    return values != null && values.length > 0 && values[0] != null && values[0].length() > 0;
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  public void set(String name, String value) {
+    throw new UnsupportedOperationException("Cannot modify the values of a view");
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  public void set(String name, String[] values) {
+    throw new UnsupportedOperationException("Cannot modify the values of a view");
+  }
+
+  /**
+   * A view of a map.
+   */
+  static final class MapView extends ParametersView {
+
+    /** The values by name */
+    private final Map<String, String[]> _values;
+
+    MapView(Map<String, String[]> values) {
+      this._values = values;
+    }
+
+    @Override
+    public String[] getValues(String name) {
+      return this._values.get(name);
+    }
+
+    @Override
+    public boolean exists(String name) {
+      return this._values.containsKey(name);
+    }
+
+    @Override
+    public Set<String> names() {
+      return Collections.unmodifiableSet(this._values.keySet());
+    }
+  }
+
+  /**
+   * A view of a function returning the values for a name.
+   */
+  static final class FunctionView extends ParametersView {
+
+    /** The function returning the values for a name */
+    private final Function<String, String[]> _values;
+
+    FunctionView(Function<String, String[]> values) {
+      this._values = values;
+    }
+
+    @Override
+    public String[] getValues(String name) {
+      return this._values.apply(name);
+    }
+
+    /**
+     * @return an empty set since the names cannot be listed.
+     */
+    @Override
+    public Set<String> names() {
+      return Collections.emptySet();
+    }
+  }
+
+  /**
+   * A view of a query string, the values for a name are decoded when they are first requested.
+   */
+  static final class QueryView extends ParametersView {
+
+    /** Marks a name without values */
+    private static final String[] NONE = new String[0];
+
+    /** The query string without '?' */
+    private final String _query;
+
+    /** The values decoded so far by name */
+    private Map<String, String[]> _values;
+
+    /** The names of all parameters once listed */
+    private Set<String> _names;
+
+    QueryView(String query) {
+      this._query = query.startsWith("?") ? query.substring(1) : query;
+    }
+
+    @Override
+    public String[] getValues(String name) {
+      if (this._values == null) {
+        this._values = new HashMap<String, String[]>();
+      }
+      String[] values = this._values.get(name);
+      if (values == null) {
+        values = parse(name);
+        this._values.put(name, values);
+      }
+      return values != NONE ? values : null;
+    }
+
+    @Override
+    public Set<String> names() {
+      if (this._names == null) {
+        Set<String> names = new LinkedHashSet<String>();
+        String q = this._query;
+        for (int start = 0; start < q.length(); ) {
+          int end = end(q, start);
+          int eq = q.indexOf('=', start);
+          int k = eq >= 0 && eq < end ? eq : end;
+          if (k > start) names.add(URICoder.decode(q.substring(start, k)));
+          start = end + 1;
+        }
+        this._names = Collections.unmodifiableSet(names);
+      }
+      return this._names;
+    }
+
+    /**
+     * Returns the decoded values of the parameters with the specified name.
+     */
+    private String[] parse(String name) {
+      List<String> values = null;
+      String q = this._query;
+      for (int start = 0; start < q.length(); ) {
+        int end = end(q, start);
+        int eq = q.indexOf('=', start);
+        int k = eq >= 0 && eq < end ? eq : end;
+        if (isKey(q, start, k, name)) {
+          if (values == null) values = new ArrayList<String>(1);
+          values.add(k < end ? URICoder.decode(q.substring(k + 1, end)) : "");
+        }
+        start = end + 1;
+      }
+      return values != null ? values.toArray(new String[values.size()]) : NONE;
+    }
+
+    /**
+     * Returns the end of the parameter starting at the specified index.
+     */
+    private static int end(String q, int start) {
+      int end = q.indexOf('&', start);
+      return end >= 0 ? end : q.length();
+    }
+
+    /**
+     * Indicates whether the region of the query is the specified name once decoded.
+     */
+    private static boolean isKey(String q, int start, int end, String name) {
+      for (int i = start; i < end; i++) {
+        char c = q.charAt(i);
+        if (c == '%' || c == '+') return URICoder.decode(q.substring(start, end)).equals(name);
+      }
+      return end - start == name.length() && q.regionMatches(start, name, 0, name.length());
+    }
+  }
+
+}
@@ -17,6 +17,7 @@ package org.pageseeder.furi;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -63,6 +64,19 @@ abstract class TokenBase implements Token {
     return this._exp;
   }
 
+  /**
+   * Returns the regular expression for this token without compiling it.
+   *
+   * <p>By default, this method returns the expression of the compiled pattern if this token is
+   * matchable; <code>null</code> otherwise. Subclasses should override this method so that
+   * patterns combining multiple tokens do not compile each token individually.
+   *
+   * @return The regular expression for this token or <code>null</code>.
+   */
+  String regex() {
+    return this instanceof Matchable ? ((Matchable)this).pattern().pattern() : null;
+  }
+
   /**
    * Two tokens are equals if and only if their string expression is equal.
    *
@@ -132,4 +146,159 @@ abstract class TokenBase implements Token {
     return vars;
   }
 
+  /**
+   * Adds the resolved value of a variable to the specified map.
+   *
+   * <p>If the variable already has a value, the values are collected into a string array in the
+   * order they were found.
+   *
+   * @param values The map of resolved values.
+   * @param var    The variable.
+   * @param value  The value to add.
+   */
+  protected static final void addValue(Map<Variable, Object> values, Variable var, String value) {
+    Object existing = values.get(var);
+    if (existing == null) {
+      values.put(var, value);
+    } else if (existing instanceof String[]) {
+      String[] previous = (String[])existing;
+      String[] all = new String[previous.length + 1];
+      System.arraycopy(previous, 0, all, 0, previous.length);
+      all[previous.length] = value;
+      values.put(var, all);
+    } else {
+      values.put(var, new String[]{ existing.toString(), value });
+    }
+  }
+
+  /**
+   * Resolves the parameters in a value matching the query or path parameter operator.
+   *
+   * <p>The value is parsed in a single pass: each <code>name=value</code> pair is looked up in
+   * the variable list and the decoded value is added for the corresponding variable. Parameters
+   * which do not correspond to any variable or have no value are ignored. All the values of
+   * repeated parameters are kept in the order they appear.
+   *
+   * @param vars      The variables of the operator.
+   * @param value     The value to parse, for example <code>"?a=1&amp;b=2"</code>.
+   * @param separator The character separating parameters, either '&amp;' or ';'.
+   * @param values    The map of resolved values.
+   */
+  protected static final void resolveParameters(List<Variable> vars, String value, char separator,
+      Map<Variable, Object> values) {
+    VariableList list = VariableList.of(vars);
+    // record the variable index and the value offsets for each parameter found
+    int[] found = new int[12];
+    int count = 0;
+    int[] occurrences = new int[list.size()];
+    int length = value.length();
+    // the first character is the operator or a separator
+    for (int start = 1, end; start <= length; start = end + 1) {
+      end = value.indexOf(separator, start);
+      if (end < 0) end = length;
+      int equals = value.indexOf('=', start);
+      if (equals < 0 || equals > end) continue;
+      int index = list.indexOf(value, start, equals);
+      if (index < 0) continue;
+      if (count + 3 > found.length) {
+        int[] grown = new int[found.length * 2];
+        System.arraycopy(found, 0, grown, 0, count);
+        found = grown;
+      }
+      found[count++] = index;
+      found[count++] = equals + 1;
+      found[count++] = end;
+      occurrences[index]++;
+    }
+    // group the values of repeated parameters
+    String[][] arrays = new String[list.size()][];
+    int[] filled = new int[list.size()];
+    for (int i = 0; i < count; i += 3) {
+      int index = found[i];
+      String decoded = URICoder.decode(value.substring(found[i+1], found[i+2]));
+      if (occurrences[index] == 1) {
+        addValue(values, list.get(index), decoded);
+      } else {
+        if (arrays[index] == null) {
+          arrays[index] = new String[occurrences[index]];
+        }
+        arrays[index][filled[index]++] = decoded;
+        if (filled[index] == occurrences[index]) {
+          values.put(list.get(index), arrays[index]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the regular expression matching a single parameter of the query or path parameter
+   * operator, excluding the separator.
+   *
+   * <p>The expression matches either nothing or the name of one of the variables followed by
+   * <code>'='</code> and a value which does not contain any of the excluded characters.
+   *
+   * @param vars     The variables of the operator.
+   * @param excluded The characters excluded from values, including the separator.
+   *
+   * @return The regular expression for a parameter, for example <code>(?:(?:a|b)=[^&amp;#]*)?</code>.
+   */
+  protected static final String parameterRegex(List<Variable> vars, String excluded) {
+    return "(?:" + namesRegex(vars) + "=[^" + excluded + "]*)?";
+  }
+
+  /**
+   * Returns the regular expression matching the parameters of the query or path parameter
+   * operator after the first separator.
+   *
+   * <p>The parameters are separated by the first excluded character. Repeating a group for each
+   * parameter would make the regular expression engine recurse once per parameter and overflow
+   * the stack on long URIs, so all the parameters but the last are matched one character at a
+   * time: a character following a separator must start a parameter name or another separator.
+   * The expression accepts the same values and ends at the same positions as a group repeated
+   * for each parameter.
+   *
+   * @param vars     The variables of the operator.
+   * @param excluded The characters excluded from values, starting with the separator.
+   *
+   * @return The regular expression for the parameters.
+   */
+  protected static final String parametersRegex(List<Variable> vars, String excluded) {
+    String names = namesRegex(vars);
+    char separator = excluded.charAt(0);
+    String start = "(?=" + names + "=|" + separator + ")";
+    String chars = "(?:(?!(?<=" + separator + ")(?!" + names + "=|" + separator + "))[^" + excluded.substring(1) + "])*";
+    return "(?:" + start + chars + separator + ")?" + parameterRegex(vars, excluded);
+  }
+
+  /**
+   * Returns the regular expression matching the name of any of the variables.
+   */
+  private static String namesRegex(List<Variable> vars) {
+    StringBuilder regex = new StringBuilder("(?:");
+    for (int i = 0; i < vars.size(); i++) {
+      if (i > 0) regex.append('|');
+      regex.append(vars.get(i).namePatternString());
+    }
+    return regex.append(')').toString();
+  }
+
+  /**
+   * Returns the decoded path segments of a value matching the path segment operator.
+   *
+   * @param value A value such as <code>"/a/b/c"</code>.
+   *
+   * @return The decoded segments, for example <code>["a", "b", "c"]</code>.
+   */
+  protected static final String[] toSegments(String value) {
+    List<String> segments = new ArrayList<String>();
+    int start = value.indexOf('/');
+    while (start >= 0) {
+      int end = value.indexOf('/', start + 1);
+      String segment = end >= 0 ? value.substring(start + 1, end) : value.substring(start + 1);
+      segments.add(URICoder.decode(segment));
+      start = end;
+    }
+    return segments.toArray(new String[segments.size()]);
+  }
+
 }
@@ -33,6 +33,11 @@ import java.util.regex.Pattern;
  */
 public class TokenLiteral extends TokenBase implements Token, Matchable {
 
+  /**
+   * The pattern for this token, compiled the first time it is needed.
+   */
+  private volatile Pattern _pattern;
+
   /**
    * Creates a new literal text token.
    *
@@ -58,11 +63,43 @@ public class TokenLiteral extends TokenBase implements Token, Matchable {
     return expression().equals(part);
   }
 
+  /**
+   * Indicates whether this token matches the specified URI at the given offset.
+   *
+   * <p>This method does not use regular expressions and should be preferred when the position
+   * of the literal text in the URI is known.
+   *
+   * @param uri    The URI to test.
+   * @param offset The offset in the URI where the literal text should start.
+   *
+   * @return <code>true</code> if the literal text is found at the offset;
+   *         <code>false</code> otherwise.
+   */
+  boolean match(String uri, int offset) {
+    String text = expression();
+    return uri.regionMatches(offset, text, 0, text.length());
+  }
+
   /**
    * {@inheritDoc}
+   *
+   * <p>The pattern is compiled the first time this method is invoked.
    */
   public Pattern pattern() {
-    return Pattern.compile(Pattern.quote(expression()));
+    Pattern p = this._pattern;
+    if (p == null) {
+      p = Pattern.compile(regex());
+      this._pattern = p;
+    }
+    return p;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  String regex() {
+    return Pattern.quote(expression());
   }
 
   /**
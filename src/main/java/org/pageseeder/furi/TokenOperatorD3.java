@@ -127,9 +127,10 @@ public class TokenOperatorD3 extends TokenBase implements TokenOperator {
       String expand(String arg, List<Variable> vars, Parameters parameters) {
         StringBuffer expansion = new StringBuffer();
         Variable var = vars.get(0);
-        String[] values = var.values(parameters);
-        if (values.length > 0 && values[0].length() > 0) {
-          for (String value : values) {
+        Object values = var.valuesOf(parameters);
+        if (VariableValues.size(values) > 0 && VariableValues.get(values, 0).length() > 0) {
+          for (int i = 0; i < VariableValues.size(values); i++) {
+            String value = VariableValues.get(values, i);
             expansion.append(arg).append(URICoder.encode(value));
           }
         }
@@ -164,9 +165,10 @@ public class TokenOperatorD3 extends TokenBase implements TokenOperator {
       String expand(String arg, List<Variable> vars, Parameters parameters) {
         StringBuffer expansion = new StringBuffer();
         Variable var = vars.get(0);
-        String[] values = var.values(parameters);
-        if (values.length > 0 && values[0].length() > 0) {
-          for (String value : values) {
+        Object values = var.valuesOf(parameters);
+        if (VariableValues.size(values) > 0 && VariableValues.get(values, 0).length() > 0) {
+          for (int i = 0; i < VariableValues.size(values); i++) {
+            String value = VariableValues.get(values, i);
             expansion.append(URICoder.encode(value)).append(arg);
           }
         }
@@ -202,8 +204,9 @@ public class TokenOperatorD3 extends TokenBase implements TokenOperator {
         boolean first = true;
         for (Variable var : vars) {
           if (parameters.exists(var.name())) {
-            String[] values = var.values(parameters);
-            for (String value : values) {
+            Object values = var.valuesOf(parameters);
+            for (int i = 0; i < VariableValues.size(values); i++) {
+              String value = VariableValues.get(values, i);
               if (!first) {
                 expansion.append(arg);
               } else {
@@ -245,13 +248,13 @@ public class TokenOperatorD3 extends TokenBase implements TokenOperator {
       String expand(String arg, List<Variable> vars, Parameters parameters) {
         StringBuffer expansion = new StringBuffer();
         Variable var = vars.get(0);
-        String[] values = var.values(parameters);
-        if (values.length > 0 && values[0].length() > 0) {
-          for (int i = 0; i < values.length; i++) {
+        Object values = var.valuesOf(parameters);
+        if (VariableValues.size(values) > 0 && VariableValues.get(values, 0).length() > 0) {
+          for (int i = 0; i < VariableValues.size(values); i++) {
             if (i > 0) {
               expansion.append(arg);
             }
-            expansion.append(URICoder.encode(values[i]));
+            expansion.append(URICoder.encode(VariableValues.get(values, i)));
           }
         }
         return expansion.toString();
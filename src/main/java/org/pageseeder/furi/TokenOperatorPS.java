@@ -15,11 +15,10 @@
  */
 package org.pageseeder.furi;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -96,8 +95,9 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
         boolean first = true;
         for (Variable var : vars) {
           if (parameters.exists(var.name())) {
-            String[] values = var.values(parameters);
-            for (String value : values) {
+            Object values = var.valuesOf(parameters);
+            for (int i = 0; i < VariableValues.size(values); i++) {
+              String value = VariableValues.get(values, i);
               expansion.append(first ? '?' : '&');
               first = false;
               expansion.append(var.name()).append('=').append(URICoder.encode(value));
@@ -114,27 +114,13 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
 
       @Override
       boolean resolve(List<Variable> vars, String value, Map<Variable, Object> values) {
-        for (Variable var : vars) {
-          Pattern p = Pattern.compile("(?<=[&?]"+var.namePatternString()+"=)([^&#]*)");
-          Matcher m = p.matcher(value);
-          while(m.find()) {
-            values.put(var, m.group());
-          }
-        }
+        resolveParameters(vars, value, '&', values);
         return true;
       }
 
       @Override
-      Pattern pattern(List<Variable> vars) {
-        StringBuffer pattern = new StringBuffer();
-        pattern.append("\\?(");
-        for (Variable var : vars) {
-          pattern.append('(');
-          pattern.append(var.namePatternString());
-          pattern.append("=[^&#]*)|");
-        }
-        pattern.append("&)*");
-        return Pattern.compile(pattern.toString());
+      String regex(List<Variable> vars) {
+        return "\\?" + parametersRegex(vars, "&#");
       }
     },
 
@@ -161,8 +147,9 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
         StringBuffer expansion = new StringBuffer();
         for (Variable var : vars) {
           if (parameters.exists(var.name())) {
-            String[] values = var.values(parameters);
-            for (String value : values) {
+            Object values = var.valuesOf(parameters);
+            for (int i = 0; i < VariableValues.size(values); i++) {
+              String value = VariableValues.get(values, i);
               expansion.append(';');
               expansion.append(var.name());
               if (value.length() > 0) {
@@ -181,27 +168,13 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
 
       @Override
       boolean resolve(List<Variable> vars, String value, Map<Variable, Object> values) {
-        for (Variable var : vars) {
-          Pattern p = Pattern.compile("(?<=;"+var.namePatternString()+"=)([^;/?#]*)");
-          Matcher m = p.matcher(value);
-          while(m.find()) {
-            values.put(var, m.group());
-          }
-        }
+        resolveParameters(vars, value, ';', values);
         return true;
       }
 
       @Override
-      Pattern pattern(List<Variable> vars) {
-        StringBuffer pattern = new StringBuffer();
-        pattern.append("(?:");
-        for (Variable var : vars) {
-          pattern.append("(?:;");
-          pattern.append(var.namePatternString());
-          pattern.append("=[^;/?#]*)|");
-        }
-        pattern.append(";)*");
-        return Pattern.compile(pattern.toString());
+      String regex(List<Variable> vars) {
+        return "(?:;" + parametersRegex(vars, ";/?#") + ")?";
       }
     },
 
@@ -225,8 +198,9 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
         StringBuffer expansion = new StringBuffer();
         for (Variable var : vars) {
           if (parameters.exists(var.name())) {
-            String[] values = var.values(parameters);
-            for (String value : values) {
+            Object values = var.valuesOf(parameters);
+            for (int i = 0; i < VariableValues.size(values); i++) {
+              String value = VariableValues.get(values, i);
               expansion.append('/');
               expansion.append(URICoder.encode(value));
             }
@@ -244,13 +218,20 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
       boolean resolve(List<Variable> vars, String value, Map<Variable, Object> values) {
         if (vars.size() != 1)
           throw new UnsupportedOperationException("Operator + cannot be resolved with multiple variables.");
-        values.put(vars.get(0), URICoder.decode(value));
+        Variable var = vars.get(0);
+        // a list variable resolves to the decoded segments
+        if (var.form() == Variable.Form.LIST) {
+          values.put(var, toSegments(value));
+        } else {
+          values.put(var, URICoder.decode(value));
+        }
         return true;
       }
 
       @Override
-      Pattern pattern(List<Variable> vars) {
-        return Pattern.compile("(?:/[^/?#]*)*");
+      String regex(List<Variable> vars) {
+        // equivalent to a group repeated for each segment, which would overflow the stack
+        return "(?:/[^?#]*)?";
       }
     },
 
@@ -278,8 +259,9 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
         for (Iterator<Variable> i = vars.iterator(); i.hasNext();) {
           Variable var = i.next();
           if (parameters.exists(var.name())) {
-            String[] values = var.values(parameters);
-            for (String value : values) {
+            Object values = var.valuesOf(parameters);
+            for (int j = 0; j < VariableValues.size(values); j++) {
+              String value = VariableValues.get(values, j);
               expansion.append(URICoder.minimalEncode(value));
             }
           }
@@ -305,8 +287,8 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
       }
 
       @Override
-      Pattern pattern(List<Variable> vars) {
-        return Pattern.compile("[^?#]*");
+      String regex(List<Variable> vars) {
+        return "[^?#]*";
       }
     };
 
@@ -350,13 +332,13 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
     abstract String expand(List<Variable> vars, Parameters params);
 
     /**
-     * Returns the pattern for this operator given the specified list of variables.
+     * Returns the regular expression for this operator given the specified list of variables.
      *
      * @param vars The variables for the operator.
      *
-     * @param params The parameters to use.
+     * @return The regular expression for this operator.
      */
-    abstract Pattern pattern(List<Variable> vars);
+    abstract String regex(List<Variable> vars);
 
     /**
      * Returns the map of the string to values given  the specified data.
@@ -376,9 +358,9 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
   private List<Variable> _vars;
 
   /**
-   * The pattern for this token.
+   * The pattern for this token, compiled the first time it is needed.
    */
-  private Pattern _pattern;
+  private volatile Pattern _pattern;
 
   /**
    * Creates a new operator token for one variable only.
@@ -393,9 +375,7 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
     if (op == null || var == null)
       throw new NullPointerException("The operator must have a value");
     this._operator = op;
-    this._vars = new ArrayList<Variable>(1);
-    this._vars.add(var);
-    this._pattern = op.pattern(this._vars);
+    this._vars = new VariableList(Collections.singletonList(var));
   }
 
   /**
@@ -411,8 +391,7 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
     if (op == null || vars == null)
       throw new NullPointerException("The operator must have a value");
     this._operator = op;
-    this._vars = vars;
-    this._pattern = op.pattern(vars);
+    this._vars = new VariableList(vars);
   }
 
   /**
@@ -466,14 +445,29 @@ public class TokenOperatorPS extends TokenBase implements TokenOperator, Matchab
    * {@inheritDoc}
    */
   public boolean match(String part) {
-    return this._pattern.matcher(part).matches();
+    return pattern().matcher(part).matches();
   }
 
   /**
    * {@inheritDoc}
+   *
+   * <p>The pattern is compiled the first time this method is invoked.
    */
   public Pattern pattern() {
-    return this._pattern;
+    Pattern p = this._pattern;
+    if (p == null) {
+      p = Pattern.compile(regex());
+      this._pattern = p;
+    }
+    return p;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  String regex() {
+    return this._operator.regex(this._vars);
   }
 
   /**
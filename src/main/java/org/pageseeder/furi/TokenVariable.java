@@ -93,6 +93,14 @@ public class TokenVariable extends TokenBase implements Token, Matchable {
     return Variable.VALID_VALUE;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  String regex() {
+    return Variable.VALID_VALUE.pattern();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An expander which keeps the most recent expansions of a URI template in a cache.
+ *
+ * <p>The expanded URI only depends on the values of the variables used in the template, so the
+ * cache is keyed on the values of these variables only: parameters which are not used by the
+ * template do not prevent the cached URI from being returned.
+ *
+ * <p>The cache is bounded and the least recently used URIs are evicted first. Templates using
+ * custom tokens are always expanded since the variables they depend on are not known.
+ *
+ * <p>Instances of this class can be used concurrently.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class URICachingExpander implements Expandable {
+
+  /**
+   * The default maximum number of URIs in the cache.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 1000;
+
+  /**
+   * The expander used when the URI is not in the cache.
+   */
+  private final URIExpander _expander;
+
+  /**
+   * The names of the variables used in the template, <code>null</code> if the URIs cannot be cached.
+   */
+  private final String[] _names;
+
+  /**
+   * The expanded URIs by variable values.
+   */
+  private final BoundedCache<Key, String> _cache;
+
+  /**
+   * Creates a new caching expander for the specified template using the default cache size.
+   *
+   * @param template The URI template to expand.
+   *
+   * @throws NullPointerException If the template is <code>null</code>.
+   */
+  public URICachingExpander(URITemplate template) {
+    this(template, DEFAULT_CACHE_SIZE, 0);
+  }
+
+  /**
+   * Creates a new caching expander for the specified template.
+   *
+   * @param template The URI template to expand.
+   * @param maxSize  The maximum number of URIs in the cache.
+   *
+   * @throws NullPointerException If the template is <code>null</code>.
+   * @throws IllegalArgumentException If the size is not strictly positive.
+   */
+  public URICachingExpander(URITemplate template, int maxSize) {
+    this(template, maxSize, 0);
+  }
+
+  /**
+   * Creates a new caching expander for the specified template.
+   *
+   * @param template  The URI template to expand.
+   * @param maxSize   The maximum number of URIs in the cache.
+   * @param ttlMillis The time-to-live of cached URIs in milliseconds, zero if they do not expire.
+   *
+   * @throws NullPointerException If the template is <code>null</code>.
+   * @throws IllegalArgumentException If the size is not strictly positive or the TTL is negative.
+   */
+  public URICachingExpander(URITemplate template, int maxSize, long ttlMillis) {
+    this._expander = new URIExpander(template);
+    this._names = isCacheable(template) ? toNames(template.variables()) : null;
+    this._cache = new BoundedCache<Key, String>(maxSize, ttlMillis);
+  }
+
+  /**
+   * Returns the template this expander was created from.
+   *
+   * @return the template this expander was created from.
+   */
+  public URITemplate template() {
+    return this._expander.template();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Returns the cached URI if the template was already expanded with the same values.
+   */
+  public String expand(Parameters parameters) {
+    if (this._names == null) return this._expander.expand(parameters);
+    Key key = new Key(this._names, parameters);
+    String uri = this._cache.get(key);
+    if (uri == null) {
+      uri = this._expander.expand(parameters);
+      this._cache.put(key, uri);
+    }
+    return uri;
+  }
+
+  /**
+   * Removes all the URIs from the cache.
+   */
+  public void clear() {
+    this._cache.clear();
+  }
+
+  /**
+   * Returns the number of URIs in the cache.
+   *
+   * @return the number of URIs in the cache.
+   */
+  public int size() {
+    return this._cache.size();
+  }
+
+  @Override
+  public String toString() {
+    return this._expander.toString();
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Indicates whether the variables used by all the tokens of the template are known.
+   *
+   * @param template The URI template.
+   *
+   * @return <code>true</code> if all tokens are literals, variables or operators.
+   */
+  private static boolean isCacheable(URITemplate template) {
+    for (Token t : template.tokens()) {
+      if (!(t instanceof TokenLiteral || t instanceof TokenVariable || t instanceof TokenOperator))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the names of the specified variables.
+   *
+   * @param variables The variables.
+   *
+   * @return The names of the variables.
+   */
+  private static String[] toNames(List<Variable> variables) {
+    String[] names = new String[variables.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = variables.get(i).name();
+    }
+    return names;
+  }
+
+  /**
+   * The values of the variables used by a template.
+   *
+   * <p>A variable which is not specified in the parameters has no value, which differs from a
+   * variable specified without any value.
+   */
+  private static final class Key {
+
+    /** Empty values */
+    private static final String[] EMPTY = new String[0];
+
+    /** The values for each variable, <code>null</code> if the variable is not specified */
+    private final String[][] _values;
+
+    /** The hash code */
+    private final int _hash;
+
+    Key(String[] names, Parameters parameters) {
+      this._values = new String[names.length][];
+      if (parameters != null) {
+        for (int i = 0; i < names.length; i++) {
+          if (parameters.exists(names[i])) {
+            String[] values = parameters.getValues(names[i]);
+            this._values[i] = values != null ? values.clone() : EMPTY;
+          }
+        }
+      }
+      this._hash = Arrays.deepHashCode(this._values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key)o;
+      return this._hash == key._hash && Arrays.deepEquals(this._values, key._values);
+    }
+
+    @Override
+    public int hashCode() {
+      return this._hash;
+    }
+  }
+
+}
@@ -15,6 +15,10 @@
  */
 package org.pageseeder.furi;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.text.Normalizer;
@@ -117,6 +121,150 @@ public class URICoder {
     return ascii ? minimalEncode_ASCII(s) : minimalEncode_UTF8(s);
   }
 
+  /**
+   * Appends the string encoded as valid URI fragment to the specified buffer.
+   *
+   * <p>This method produces the same result as {@link #encode(String)} but does not create any
+   * intermediate string when the string only contains ASCII characters.
+   *
+   * @param s  The string to encode.
+   * @param sb The buffer to append the encoded string to.
+   */
+  static void encode(String s, StringBuilder sb) {
+    if (!isASCII(s)) {
+      sb.append(encode_UTF8(s, '0'));
+      return;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (isUnreserved(c)) {
+        sb.append(c);
+      } else {
+        sb.append('%');
+        sb.append(HEX_DIGITS[(c >> 4) & 0x0f]);
+        sb.append(HEX_DIGITS[(c >> 0) & 0x0f]);
+      }
+    }
+  }
+
+  /**
+   * Writes the string encoded as valid URI fragment to the specified writer.
+   *
+   * <p>This method produces the same result as {@link #encode(String)} but writes the runs of
+   * unreserved characters directly from the string when it only contains ASCII characters.
+   *
+   * @param s   The string to encode.
+   * @param out The writer to write the encoded string to.
+   *
+   * @throws IOException If thrown by the writer.
+   */
+  static void encode(String s, Writer out) throws IOException {
+    if (!isASCII(s)) {
+      out.write(encode_UTF8(s, '0'));
+      return;
+    }
+    int start = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (!isUnreserved(c)) {
+        if (i > start) {
+          out.write(s, start, i - start);
+        }
+        out.write('%');
+        out.write(HEX_DIGITS[(c >> 4) & 0x0f]);
+        out.write(HEX_DIGITS[(c >> 0) & 0x0f]);
+        start = i + 1;
+      }
+    }
+    if (start < s.length()) {
+      out.write(s, start, s.length() - start);
+    }
+  }
+
+  /**
+   * Puts the string encoded as valid URI fragment into the specified buffer as UTF-8 bytes.
+   *
+   * <p>This method produces the UTF-8 bytes of {@link #encode(String)} but writes the bytes
+   * directly without creating any intermediate string when the string only contains ASCII
+   * characters. Since the encoded string only contains ASCII characters, each character is
+   * written as a single byte.
+   *
+   * @param s  The string to encode.
+   * @param bb The buffer to put the encoded bytes into.
+   *
+   * @throws BufferOverflowException If there is not enough space remaining in the buffer.
+   */
+  public static void encode(String s, ByteBuffer bb) {
+    if (isASCII(s)) {
+      for (int i = 0; i < s.length(); i++) {
+        putEncoded(bb, s.charAt(i));
+      }
+    } else {
+      String n = (Normalizer.isNormalized(s, Form.NFKC)) ? s : Normalizer.normalize(s, Form.NFKC);
+      for (int i = 0; i < n.length(); i++) {
+        char c = n.charAt(i);
+        if (c < 0x80) {
+          putEncoded(bb, c);
+        } else if (c < 0x800) {
+          putEscape(bb, 0xc0 | (c >> 6));
+          putEscape(bb, 0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < n.length() && Character.isLowSurrogate(n.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, n.charAt(++i));
+          putEscape(bb, 0xf0 | (cp >> 18));
+          putEscape(bb, 0x80 | ((cp >> 12) & 0x3f));
+          putEscape(bb, 0x80 | ((cp >> 6) & 0x3f));
+          putEscape(bb, 0x80 | (cp & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+          // malformed, replaced by '?' like the UTF-8 encoder
+          putEscape(bb, '?');
+        } else {
+          putEscape(bb, 0xe0 | (c >> 12));
+          putEscape(bb, 0x80 | ((c >> 6) & 0x3f));
+          putEscape(bb, 0x80 | (c & 0x3f));
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the string encoded as valid URI fragment to the specified output stream as UTF-8 bytes.
+   *
+   * <p>The bytes are written one at a time without any intermediate buffer, so the output stream
+   * should be buffered.
+   *
+   * @see #encode(String, ByteBuffer)
+   *
+   * @param s   The string to encode.
+   * @param out The output stream to write the encoded bytes to.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  public static void encode(String s, OutputStream out) throws IOException {
+    String n = (isASCII(s) || Normalizer.isNormalized(s, Form.NFKC)) ? s : Normalizer.normalize(s, Form.NFKC);
+    for (int i = 0; i < n.length(); i++) {
+      char c = n.charAt(i);
+      if (c < 0x80) {
+        writeEncoded(out, c);
+      } else if (c < 0x800) {
+        writeEscape(out, 0xc0 | (c >> 6));
+        writeEscape(out, 0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && i + 1 < n.length() && Character.isLowSurrogate(n.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, n.charAt(++i));
+        writeEscape(out, 0xf0 | (cp >> 18));
+        writeEscape(out, 0x80 | ((cp >> 12) & 0x3f));
+        writeEscape(out, 0x80 | ((cp >> 6) & 0x3f));
+        writeEscape(out, 0x80 | (cp & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        // malformed, replaced by '?' like the UTF-8 encoder
+        writeEscape(out, '?');
+      } else {
+        writeEscape(out, 0xe0 | (c >> 12));
+        writeEscape(out, 0x80 | ((c >> 6) & 0x3f));
+        writeEscape(out, 0x80 | (c & 0x3f));
+      }
+    }
+  }
+
   /**
    * Encodes a string containing only ASCII characters.
    *
@@ -205,6 +353,9 @@ public class URICoder {
   /**
    * Decode the string as valid URI fragment.
    *
+   * <p>A '%' which is not followed by two hexadecimal digits is not a valid escape sequence and
+   * is kept as is.
+   *
    * @param s The string to decode.
    *
    * @return The corresponding decoded string.
@@ -224,13 +375,10 @@ public class URICoder {
     StringBuffer sb = new StringBuffer();
     for (int i = 0; i < s.length(); i++) {
       char c = s.charAt(i);
-      if (c == '%') {
-        if (i < s.length() - 2) {
-          String hex = String.copyValueOf(new char[] { s.charAt(++i), s.charAt(++i) });
-          char x = (char) Integer.parseInt(hex, 16);
-          sb.append(x);
-        }
-        // TODO: handle error condition
+      int x = c == '%' ? unescape(s, i) : -1;
+      if (x >= 0) {
+        sb.append((char) x);
+        i += 2;
       } else if (c == '+') {
         sb.append(' ');
       } else {
@@ -248,12 +396,10 @@ public class URICoder {
     ByteBuffer bb = ByteBuffer.allocate(s.length());
     for (int i = 0; i < s.length(); i++) {
       char c = s.charAt(i);
-      if (c == '%') {
-        if (i < s.length() - 2) {
-          String hex = "" + s.charAt(++i) + s.charAt(++i);
-          byte b = (byte) (Integer.parseInt(hex, 16));
-          bb.put(b);
-        }
+      int b = c == '%' ? unescape(s, i) : -1;
+      if (b >= 0) {
+        bb.put((byte) b);
+        i += 2;
       } else if (c == '+') {
         bb.put((byte)' ');
       } else {
@@ -290,6 +436,58 @@ public class URICoder {
     sb.append(HEX_DIGITS[(c >> 0) & 0x0f]);
   }
 
+  /**
+   * Puts the ASCII character into the specified buffer, escaped if it is not unreserved.
+   *
+   * @param bb The byte buffer.
+   * @param c  The character to put.
+   */
+  private static void putEncoded(ByteBuffer bb, char c) {
+    if (isUnreserved(c)) {
+      bb.put((byte) c);
+    } else {
+      putEscape(bb, c);
+    }
+  }
+
+  /**
+   * Puts the escape sequence for the given byte into the specified buffer.
+   *
+   * @param bb The byte buffer.
+   * @param b  The byte to escape.
+   */
+  private static void putEscape(ByteBuffer bb, int b) {
+    bb.put((byte) '%');
+    bb.put((byte) HEX_DIGITS[(b >> 4) & 0x0f]);
+    bb.put((byte) HEX_DIGITS[(b >> 0) & 0x0f]);
+  }
+
+  /**
+   * Writes the ASCII character to the specified output stream, escaped if it is not unreserved.
+   *
+   * @param out The output stream.
+   * @param c   The character to write.
+   */
+  private static void writeEncoded(OutputStream out, char c) throws IOException {
+    if (isUnreserved(c)) {
+      out.write(c);
+    } else {
+      writeEscape(out, c);
+    }
+  }
+
+  /**
+   * Writes the escape sequence for the given byte to the specified output stream.
+   *
+   * @param out The output stream.
+   * @param b   The byte to escape.
+   */
+  private static void writeEscape(OutputStream out, int b) throws IOException {
+    out.write('%');
+    out.write(HEX_DIGITS[(b >> 4) & 0x0f]);
+    out.write(HEX_DIGITS[(b >> 0) & 0x0f]);
+  }
+
   /**
    * Indicates whether the character is unreserved of not.
    *
@@ -297,7 +495,7 @@ public class URICoder {
    *
    * @return <code>true</code> if it is unreserved; <code>false</code> otherwise.
    */
-  private static boolean isUnreserved(int c) {
+  static boolean isUnreserved(int c) {
     // ALPHA (lower)
     if (c >= 'a' && c <= 'z') return true;
     // ALPHA (UPPER)
@@ -325,6 +523,33 @@ public class URICoder {
     return true;
   }
 
+  /**
+   * Returns the value of the escape sequence starting at the specified index.
+   *
+   * @param s The string to decode.
+   * @param i The index of the '%' character.
+   *
+   * @return the value of the byte or <code>-1</code> if it is not a valid escape sequence.
+   */
+  private static int unescape(String s, int i) {
+    if (i + 2 >= s.length()) return -1;
+    int high = hex(s.charAt(i + 1));
+    int low = hex(s.charAt(i + 2));
+    return high >= 0 && low >= 0 ? high << 4 | low : -1;
+  }
+
+  /**
+   * Returns the value of the hexadecimal digit.
+   *
+   * @return the value or <code>-1</code> if the character is not an ASCII hexadecimal digit.
+   */
+  private static int hex(char c) {
+    if (c >= '0' && c <= '9') return c - '0';
+    else if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+    else if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+    return -1;
+  }
+
   /**
    * Indicates whether the string contains non-ASCII characters.
    */
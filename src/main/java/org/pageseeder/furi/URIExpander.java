@@ -0,0 +1,819 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An expander compiled from a URI template for templates which are expanded frequently.
+ *
+ * <p>The tokens of the template are compiled into a flat list of instructions when this object
+ * is created:
+ * <ul>
+ *   <li>Adjacent literal tokens are merged and appended as is;</li>
+ *   <li>Variable tokens are appended using the encoder, default values are encoded only once;</li>
+ *   <li>Other tokens are expanded as usual.</li>
+ * </ul>
+ *
+ * <p>The result of the expansion is always identical to {@link URITemplate#expand(Parameters)}.
+ * The expanded URI can also be produced directly as UTF-8 bytes, the literal text and default
+ * values are encoded once and the values of variables are percent-encoded straight into bytes.
+ *
+ * <p>To generate many URIs from the same template, the <code>expandAll</code> methods take the
+ * values of the variables as rows or columns of strings; the position of each variable is
+ * resolved only once and the URIs are written without copying them through a string.
+ *
+ * <p>Instances of this class are immutable and can be used concurrently.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class URIExpander implements Expandable {
+
+  /**
+   * The minimum number of rows for which the rows are expanded in parallel.
+   */
+  public static final int PARALLEL_THRESHOLD = 4096;
+
+  /**
+   * The maximum number of rows expanded sequentially by each task.
+   */
+  private static final int CHUNK_SIZE = 1024;
+
+  /**
+   * The UTF-8 character set.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /**
+   * Instruction to append literal text.
+   */
+  private static final byte LITERAL = 0;
+
+  /**
+   * Instruction to append the encoded value of a variable.
+   */
+  private static final byte VARIABLE = 1;
+
+  /**
+   * Instruction to expand a token.
+   */
+  private static final byte TOKEN = 2;
+
+  /**
+   * The template this expander was compiled from.
+   */
+  private final URITemplate _template;
+
+  /**
+   * The instructions for each step of the expansion.
+   */
+  private final byte[] _steps;
+
+  /**
+   * The literal text or encoded default value for each step.
+   */
+  private final String[] _text;
+
+  /**
+   * The UTF-8 bytes of the literal text or encoded default value for each step.
+   */
+  private final byte[][] _bytes;
+
+  /**
+   * The variable for each variable step.
+   */
+  private final Variable[] _vars;
+
+  /**
+   * The token for each token step.
+   */
+  private final Token[] _tokens;
+
+  /**
+   * The minimum length of the expanded URI, used to size the buffer.
+   */
+  private final int _length;
+
+  /**
+   * Creates a new expander for the specified template.
+   *
+   * @param template The URI template to compile.
+   *
+   * @throws NullPointerException If the template is <code>null</code>.
+   */
+  public URIExpander(URITemplate template) {
+    if (template == null)
+      throw new NullPointerException("Cannot create an expander with a null template");
+    this._template = template;
+    List<Token> tokens = merge(template.tokens());
+    int size = tokens.size();
+    this._steps = new byte[size];
+    this._text = new String[size];
+    this._bytes = new byte[size][];
+    this._vars = new Variable[size];
+    this._tokens = new Token[size];
+    int length = 0;
+    for (int i = 0; i < size; i++) {
+      Token t = tokens.get(i);
+      if (t instanceof TokenLiteral) {
+        this._steps[i] = LITERAL;
+        this._text[i] = t.expression();
+        this._bytes[i] = this._text[i].getBytes(UTF8);
+        length += t.expression().length();
+      } else if (t instanceof TokenVariable) {
+        Variable v = ((TokenVariable)t).getVariable();
+        this._steps[i] = VARIABLE;
+        this._vars[i] = v;
+        this._text[i] = URICoder.encode(v.defaultValue());
+        this._bytes[i] = this._text[i].getBytes(UTF8);
+      } else {
+        this._steps[i] = TOKEN;
+        this._tokens[i] = t;
+      }
+    }
+    this._length = length;
+  }
+
+  /**
+   * Returns the template this expander was compiled from.
+   *
+   * @return the template this expander was compiled from.
+   */
+  public URITemplate template() {
+    return this._template;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String expand(Parameters parameters) {
+    StringBuilder uri = new StringBuilder(this._length + 16 * this._steps.length);
+    expand(parameters, uri);
+    return uri.toString();
+  }
+
+  /**
+   * Expands the template and appends the result to the specified buffer.
+   *
+   * @param parameters The parameters for variable substitution.
+   * @param uri        The buffer to append the expanded URI to.
+   */
+  public void expand(Parameters parameters, StringBuilder uri) {
+    byte[] steps = this._steps;
+    for (int i = 0; i < steps.length; i++) {
+      switch (steps[i]) {
+        case LITERAL:
+          uri.append(this._text[i]);
+          break;
+        case VARIABLE:
+          String value = parameters != null ? value(parameters, this._vars[i]) : null;
+          if (value != null) {
+            URICoder.encode(value, uri);
+          } else {
+            uri.append(this._text[i]);
+          }
+          break;
+        default:
+          uri.append(this._tokens[i].expand(parameters));
+      }
+    }
+  }
+
+  /**
+   * Expands the template and puts the URI into the specified buffer as UTF-8 bytes.
+   *
+   * <p>The bytes are identical to the UTF-8 encoding of {@link #expand(Parameters)}.
+   *
+   * @param parameters The parameters for variable substitution.
+   * @param out        The buffer to put the expanded URI into.
+   *
+   * @throws BufferOverflowException If there is not enough space remaining in the buffer.
+   */
+  public void expand(Parameters parameters, ByteBuffer out) {
+    expand(parameters, null, null, out);
+  }
+
+  /**
+   * Expands the template and writes the URI to the specified output stream as UTF-8 bytes.
+   *
+   * <p>The bytes are identical to the UTF-8 encoding of {@link #expand(Parameters)}. They are
+   * written directly without any intermediate buffer, so the output stream should be buffered.
+   *
+   * @param parameters The parameters for variable substitution.
+   * @param out        The output stream to write the expanded URI to.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  public void expand(Parameters parameters, OutputStream out) throws IOException {
+    byte[] steps = this._steps;
+    for (int i = 0; i < steps.length; i++) {
+      switch (steps[i]) {
+        case LITERAL:
+          out.write(this._bytes[i]);
+          break;
+        case VARIABLE:
+          String value = parameters != null ? value(parameters, this._vars[i]) : null;
+          if (value != null) {
+            URICoder.encode(value, out);
+          } else {
+            out.write(this._bytes[i]);
+          }
+          break;
+        default:
+          write(this._tokens[i].expand(parameters), out);
+      }
+    }
+  }
+
+  /**
+   * Expands the template for each row of values and writes the URIs to the specified writer.
+   *
+   * <p>The value at index <code>j</code> of each row is the value of the variable
+   * <code>names[j]</code>, a <code>null</code> value indicates that the variable is not specified.
+   * The arrays returned by the iterator are not kept and can be reused.
+   *
+   * @param names     The names of the variables in each row.
+   * @param rows      The rows of values.
+   * @param out       The writer to write the URIs to.
+   * @param separator The string written after each URI.
+   *
+   * @return The number of URIs written.
+   *
+   * @throws IOException If thrown by the writer.
+   */
+  public int expandAll(String[] names, Iterator<String[]> rows, Writer out, String separator)
+      throws IOException {
+    Row row = new Row(names);
+    int[] slots = slots(row);
+    int count = 0;
+    while (rows.hasNext()) {
+      row._values = rows.next();
+      expand(row, slots, out);
+      out.write(separator);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Expands the template for each row of values and writes the URIs to the specified output
+   * stream using UTF-8.
+   *
+   * @see #expandAll(String[], Iterator, Writer, String)
+   *
+   * @param names     The names of the variables in each row.
+   * @param rows      The rows of values.
+   * @param out       The output stream to write the URIs to.
+   * @param separator The string written after each URI.
+   *
+   * @return The number of URIs written.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  public int expandAll(String[] names, Iterator<String[]> rows, OutputStream out, String separator)
+      throws IOException {
+    Row row = new Row(names);
+    int[] slots = slots(row);
+    byte[] end = separator.getBytes(UTF8);
+    ByteBuffer buffer = newBuffer();
+    int count = 0;
+    while (rows.hasNext()) {
+      row._values = rows.next();
+      buffer = expand(row, row._values, slots, buffer, end);
+      out.write(buffer.array(), 0, buffer.position());
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Expands the template for each row of values specified by column and writes the URIs to the
+   * specified writer.
+   *
+   * <p>The value at index <code>i</code> of the column <code>j</code> is the value of the
+   * variable <code>names[j]</code> for the row <code>i</code>, a <code>null</code> value
+   * indicates that the variable is not specified.
+   *
+   * @param names     The names of the variables for each column.
+   * @param columns   The columns of values.
+   * @param out       The writer to write the URIs to.
+   * @param separator The string written after each URI.
+   *
+   * @return The number of URIs written.
+   *
+   * @throws IOException If thrown by the writer.
+   * @throws IllegalArgumentException If there is not one column of the same size per name.
+   */
+  public int expandAll(String[] names, String[][] columns, Writer out, String separator)
+      throws IOException {
+    return expandAll(names, new Columns(columns, 0, rows(names, columns)), out, separator);
+  }
+
+  /**
+   * Expands the template for each row of values specified by column and writes the URIs to the
+   * specified output stream using UTF-8.
+   *
+   * @see #expandAll(String[], String[][], Writer, String)
+   *
+   * @param names     The names of the variables for each column.
+   * @param columns   The columns of values.
+   * @param out       The output stream to write the URIs to.
+   * @param separator The string written after each URI.
+   *
+   * @return The number of URIs written.
+   *
+   * @throws IOException If thrown by the output stream.
+   * @throws IllegalArgumentException If there is not one column of the same size per name.
+   */
+  public int expandAll(String[] names, String[][] columns, OutputStream out, String separator)
+      throws IOException {
+    return expandAll(names, new Columns(columns, 0, rows(names, columns)), out, separator);
+  }
+
+  /**
+   * Expands the template for each row of values specified by column using the specified pool.
+   *
+   * <p>When there are fewer rows than {@link #PARALLEL_THRESHOLD}, the rows are expanded
+   * sequentially.
+   *
+   * @see #expandAll(String[], String[][], Writer, String)
+   *
+   * @param names   The names of the variables for each column.
+   * @param columns The columns of values.
+   * @param pool    The pool to use.
+   *
+   * @return The expanded URIs in the order of the rows.
+   *
+   * @throws IllegalArgumentException If there is not one column of the same size per name.
+   */
+  public String[] expandAll(String[] names, String[][] columns, ForkJoinPool pool) {
+    int rows = rows(names, columns);
+    String[] uris = new String[rows];
+    ExpandTask task = new ExpandTask(this, names, columns, uris, 0, rows);
+    if (rows < PARALLEL_THRESHOLD) {
+      task.compute();
+    } else {
+      pool.invoke(task);
+    }
+    return uris;
+  }
+
+  @Override
+  public String toString() {
+    return this._template.toString();
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Expands the template using the values of the specified row.
+   *
+   * @param row   The row of values.
+   * @param slots The index of the value in the row for each variable step.
+   * @param uri   The buffer to append the expanded URI to.
+   */
+  private void expand(Row row, int[] slots, StringBuilder uri) {
+    byte[] steps = this._steps;
+    for (int i = 0; i < steps.length; i++) {
+      switch (steps[i]) {
+        case LITERAL:
+          uri.append(this._text[i]);
+          break;
+        case VARIABLE:
+          String value = slots[i] >= 0 ? row._values[slots[i]] : null;
+          if (value != null) {
+            URICoder.encode(value, uri);
+          } else {
+            uri.append(this._text[i]);
+          }
+          break;
+        default:
+          uri.append(this._tokens[i].expand(row));
+      }
+    }
+  }
+
+  /**
+   * Expands the template using the values of the specified row and writes it to the writer.
+   *
+   * @param row   The row of values.
+   * @param slots The index of the value in the row for each variable step.
+   * @param out   The writer to write the expanded URI to.
+   *
+   * @throws IOException If thrown by the writer.
+   */
+  private void expand(Row row, int[] slots, Writer out) throws IOException {
+    byte[] steps = this._steps;
+    for (int i = 0; i < steps.length; i++) {
+      switch (steps[i]) {
+        case LITERAL:
+          out.write(this._text[i]);
+          break;
+        case VARIABLE:
+          String value = slots[i] >= 0 ? row._values[slots[i]] : null;
+          if (value != null) {
+            URICoder.encode(value, out);
+          } else {
+            out.write(this._text[i]);
+          }
+          break;
+        default:
+          out.write(this._tokens[i].expand(row));
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the value in the row for each variable step.
+   *
+   * @param row The row of values.
+   *
+   * @return The index of the value for each variable step, <code>-1</code> if not in the row.
+   */
+  private int[] slots(Row row) {
+    int[] slots = new int[this._steps.length];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = this._steps[i] == VARIABLE ? row.slot(this._vars[i].name()) : -1;
+    }
+    return slots;
+  }
+
+  /**
+   * Returns the number of rows in the specified columns.
+   *
+   * @param names   The names of the variables for each column.
+   * @param columns The columns of values.
+   *
+   * @return The number of rows.
+   *
+   * @throws IllegalArgumentException If there is not one column of the same size per name.
+   */
+  private static int rows(String[] names, String[][] columns) {
+    if (names.length != columns.length)
+      throw new IllegalArgumentException("The number of columns must match the number of names");
+    int rows = columns.length > 0 ? columns[0].length : 0;
+    for (String[] column : columns) {
+      if (column.length != rows)
+        throw new IllegalArgumentException("All the columns must have the same number of rows");
+    }
+    return rows;
+  }
+
+  /**
+   * Expands the template and puts the URI into the specified buffer as UTF-8 bytes.
+   *
+   * <p>If a row is specified, the values of variable steps are taken from the row.
+   *
+   * @param parameters The parameters for variable substitution.
+   * @param row        The row of values (may be <code>null</code>).
+   * @param slots      The index of the value in the row for each variable step.
+   * @param out        The buffer to put the expanded URI into.
+   *
+   * @throws BufferOverflowException If there is not enough space remaining in the buffer.
+   */
+  private void expand(Parameters parameters, String[] row, int[] slots, ByteBuffer out) {
+    byte[] steps = this._steps;
+    for (int i = 0; i < steps.length; i++) {
+      switch (steps[i]) {
+        case LITERAL:
+          out.put(this._bytes[i]);
+          break;
+        case VARIABLE:
+          String value;
+          if (row != null) {
+            value = slots[i] >= 0 ? row[slots[i]] : null;
+          } else {
+            value = parameters != null ? value(parameters, this._vars[i]) : null;
+          }
+          if (value != null) {
+            URICoder.encode(value, out);
+          } else {
+            out.put(this._bytes[i]);
+          }
+          break;
+        default:
+          put(this._tokens[i].expand(parameters), out);
+      }
+    }
+  }
+
+  /**
+   * Expands the template followed by the specified bytes into the buffer after clearing it.
+   *
+   * <p>If the buffer is too small, the expansion is done again in a larger buffer.
+   *
+   * @param parameters The parameters for variable substitution.
+   * @param row        The row of values (may be <code>null</code>).
+   * @param slots      The index of the value in the row for each variable step.
+   * @param buffer     The buffer to reuse.
+   * @param end        The bytes to put after the URI.
+   *
+   * @return The buffer containing the URI from the start to its position.
+   */
+  private ByteBuffer expand(Parameters parameters, String[] row, int[] slots, ByteBuffer buffer, byte[] end) {
+    while (true) {
+      buffer.clear();
+      try {
+        expand(parameters, row, slots, buffer);
+        buffer.put(end);
+        return buffer;
+      } catch (BufferOverflowException ex) {
+        buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+      }
+    }
+  }
+
+  /**
+   * Returns a new buffer large enough for most expansions of the template.
+   *
+   * @return A new heap byte buffer.
+   */
+  private ByteBuffer newBuffer() {
+    return ByteBuffer.allocate(this._length * 2 + 32 * this._steps.length + 16);
+  }
+
+  /**
+   * Puts the specified string into the buffer as UTF-8 bytes.
+   *
+   * @param s   The string, usually containing only ASCII characters.
+   * @param out The buffer to put the bytes into.
+   *
+   * @throws BufferOverflowException If there is not enough space remaining in the buffer.
+   */
+  private static void put(String s, ByteBuffer out) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80) {
+        out.put(s.substring(i).getBytes(UTF8));
+        return;
+      }
+      out.put((byte)c);
+    }
+  }
+
+  /**
+   * Writes the specified string to the output stream as UTF-8 bytes.
+   *
+   * @param s   The string, usually containing only ASCII characters.
+   * @param out The output stream to write the bytes to.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  private static void write(String s, OutputStream out) throws IOException {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80) {
+        out.write(s.substring(i).getBytes(UTF8));
+        return;
+      }
+      out.write(c);
+    }
+  }
+
+  /**
+   * Returns the value of the variable if specified.
+   *
+   * <p>This method follows the same rules as {@link Variable#value(Parameters)}, but returns
+   * <code>null</code> instead of the default value so that the encoded default can be used.
+   *
+   * <p>Only the first value is used, so it is read using {@link Parameters#getValue(String)} to
+   * avoid creating an array of values.
+   *
+   * @param parameters The parameters.
+   * @param var        The variable.
+   *
+   * @return the value of the variable or <code>null</code>.
+   */
+  private static String value(Parameters parameters, Variable var) {
+    return parameters.getValue(var.name());
+  }
+
+  /**
+   * Merges adjacent literal tokens.
+   *
+   * @param tokens The tokens of the template.
+   *
+   * @return The list of tokens where adjacent literal tokens are merged.
+   */
+  private static List<Token> merge(List<Token> tokens) {
+    List<Token> merged = new ArrayList<Token>(tokens.size());
+    StringBuilder text = new StringBuilder();
+    for (Token t : tokens) {
+      if (t instanceof TokenLiteral) {
+        text.append(t.expression());
+      } else {
+        if (text.length() > 0) {
+          merged.add(new TokenLiteral(text.toString()));
+          text.setLength(0);
+        }
+        merged.add(t);
+      }
+    }
+    if (text.length() > 0) {
+      merged.add(new TokenLiteral(text.toString()));
+    }
+    return merged;
+  }
+
+  /**
+   * A read-only view of a row of values as parameters.
+   *
+   * <p>The values are replaced for each row so that the same object is used for all the rows.
+   */
+  private static final class Row implements Parameters {
+
+    /** The names of the variables */
+    private final String[] _names;
+
+    /** The values of the current row */
+    private String[] _values;
+
+    Row(String[] names) {
+      this._names = names;
+    }
+
+    /**
+     * Returns the index of the value of the specified variable in the row.
+     */
+    int slot(String name) {
+      for (int j = 0; j < this._names.length; j++) {
+        if (this._names[j].equals(name)) return j;
+      }
+      return -1;
+    }
+
+    @Override
+    public String getValue(String name) {
+      int j = slot(name);
+      return j >= 0 ? this._values[j] : null;
+    }
+
+    @Override
+    public String[] getValues(String name) {
+      String value = getValue(name);
+      return value != null ? new String[]{value} : null;
+    }
+
+    @Override
+    public boolean exists(String name) {
+      return getValue(name) != null;
+    }
+
+    @Override
+    public boolean hasValue(String name) {
+      String value = getValue(name);
+      return value != null && value.length() > 0;
+    }
+
+    @Override
+    public Set<String> names() {
+      Set<String> names = new HashSet<String>();
+      for (int j = 0; j < this._names.length; j++) {
+        if (this._values[j] != null) names.add(this._names[j]);
+      }
+      return Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public void set(String name, String value) {
+      throw new UnsupportedOperationException("Cannot modify the values of a row");
+    }
+
+    @Override
+    public void set(String name, String[] values) {
+      throw new UnsupportedOperationException("Cannot modify the values of a row");
+    }
+  }
+
+  /**
+   * An iterator over a range of rows of values specified by column.
+   *
+   * <p>The same array is returned for every row.
+   */
+  private static final class Columns implements Iterator<String[]> {
+
+    /** The columns of values */
+    private final String[][] _columns;
+
+    /** The values of the current row */
+    private final String[] _row;
+
+    /** The next row */
+    private int _next;
+
+    /** The end of the range (exclusive) */
+    private final int _to;
+
+    Columns(String[][] columns, int from, int to) {
+      this._columns = columns;
+      this._row = new String[columns.length];
+      this._next = from;
+      this._to = to;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this._next < this._to;
+    }
+
+    @Override
+    public String[] next() {
+      if (this._next >= this._to) throw new NoSuchElementException();
+      for (int j = 0; j < this._row.length; j++) {
+        this._row[j] = this._columns[j][this._next];
+      }
+      this._next++;
+      return this._row;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * A task expanding a range of rows.
+   */
+  private static final class ExpandTask extends RecursiveAction {
+
+    /** As required for serializable classes */
+    private static final long serialVersionUID = 1L;
+
+    /** The expander */
+    private final URIExpander _expander;
+
+    /** The names of the variables for each column */
+    private final String[] _names;
+
+    /** The columns of values */
+    private final String[][] _columns;
+
+    /** The expanded URIs */
+    private final String[] _uris;
+
+    /** The start of the range (inclusive) */
+    private final int _from;
+
+    /** The end of the range (exclusive) */
+    private final int _to;
+
+    ExpandTask(URIExpander expander, String[] names, String[][] columns, String[] uris, int from, int to) {
+      this._expander = expander;
+      this._names = names;
+      this._columns = columns;
+      this._uris = uris;
+      this._from = from;
+      this._to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this._to - this._from <= CHUNK_SIZE) {
+        Row row = new Row(this._names);
+        int[] slots = this._expander.slots(row);
+        Columns rows = new Columns(this._columns, this._from, this._to);
+        StringBuilder uri = new StringBuilder();
+        for (int i = this._from; i < this._to; i++) {
+          row._values = rows.next();
+          uri.setLength(0);
+          this._expander.expand(row, slots, uri);
+          this._uris[i] = uri.toString();
+        }
+        return;
+      }
+      int middle = (this._from + this._to) >>> 1;
+      invokeAll(new ExpandTask(this._expander, this._names, this._columns, this._uris, this._from, middle),
+                new ExpandTask(this._expander, this._names, this._columns, this._uris, middle, this._to));
+    }
+  }
+
+}
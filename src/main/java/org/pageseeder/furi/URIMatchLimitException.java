@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+/**
+ * Thrown to indicate that a URI exceeds the limits set for matching it against URI patterns.
+ *
+ * <p>A URI rejected because of a limit may match one of the patterns, so this is not the same
+ * as a URI which does not match any pattern.
+ *
+ * @see URIRouter#setMatchLimits(int, int)
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIMatchLimitException extends IllegalArgumentException {
+
+  /**
+   * For serialisation.
+   */
+  private static final long serialVersionUID = 4398216410387561503L;
+
+  /**
+   * Constructs an instance with the specified reason.
+   *
+   * @param reason A string explaining which limit was exceeded.
+   */
+  public URIMatchLimitException(String reason) {
+    super(reason);
+  }
+
+}
@@ -19,6 +19,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 
 /**
@@ -53,6 +54,49 @@ public class URIParameters implements Parameters {
     this._parameters = new HashMap<String, String[]>(parameters);
   }
 
+  /**
+   * Returns a read-only view of the specified map as parameters.
+   *
+   * <p>Unlike {@link #URIParameters(Map)}, the map is not copied so changes to the map are
+   * reflected in the parameters.
+   *
+   * @param parameters The values by parameter name.
+   *
+   * @return The corresponding parameters.
+   */
+  public static Parameters view(Map<String, String[]> parameters) {
+    return new ParametersView.MapView(parameters);
+  }
+
+  /**
+   * Returns a read-only view of the specified function as parameters.
+   *
+   * <p>The function is invoked each time the values of a parameter are requested, it must return
+   * <code>null</code> if the parameter is not specified. Since the names of the parameters cannot
+   * be listed, the {@link Parameters#names()} method of the view returns an empty set.
+   *
+   * @param values The function returning the values for a parameter name.
+   *
+   * @return The corresponding parameters.
+   */
+  public static Parameters view(Function<String, String[]> values) {
+    return new ParametersView.FunctionView(values);
+  }
+
+  /**
+   * Returns a read-only view of the specified query string as parameters.
+   *
+   * <p>The query string is only parsed when the values of a parameter are first requested, and
+   * only the values of this parameter are decoded. The view is not thread-safe.
+   *
+   * @param query The query string, with or without the leading '?'.
+   *
+   * @return The corresponding parameters.
+   */
+  public static Parameters viewQuery(String query) {
+    return new ParametersView.QueryView(query);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adapts objects of a class as the parameters to expand a URI template.
+ *
+ * <p>The value of each variable of the template is read directly from the object:
+ * <ul>
+ *   <li>for a <code>Map</code>, the value mapped to the name of the variable;</li>
+ *   <li>for other classes, the value returned by the public method <code>getName()</code> or
+ *   <code>isName()</code>, or by the public method <code>name()</code> as declared by records,
+ *   or the value of the field <code>name</code>, where <i>name</i> is the name of the variable.</li>
+ * </ul>
+ *
+ * <p>Values are converted to strings using their <code>toString()</code> method, primitive
+ * values are converted without boxing. Arrays and <code>Iterable</code> values provide the
+ * values of list variables and <code>Map</code> values the keys and values of associative
+ * arrays; operators iterate over them directly.
+ * <pre>
+ *   URIParametersAdapter&lt;Document&gt; links = new URIParametersAdapter&lt;Document&gt;(template, Document.class);
+ *   ...
+ *   String uri = links.expand(document);
+ * </pre>
+ *
+ * <p>The accessors are computed once when the adapter is created, so adapting an object does not
+ * create any map or array: the adapter should be created once for a template and class and
+ * reused. Instances of this class are immutable and can be used concurrently.
+ *
+ * @param <T> The type of objects to adapt.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class URIParametersAdapter<T> {
+
+  /**
+   * The lookup to find the conversions of values.
+   */
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * The type of the handles returning the value of a variable from an object.
+   */
+  private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  /**
+   * The template to expand.
+   */
+  private final URITemplate _template;
+
+  /**
+   * The class of objects to adapt.
+   */
+  private final Class<T> _type;
+
+  /**
+   * The expander for the template.
+   */
+  private final URIExpander _expander;
+
+  /**
+   * The names of the variables of the template.
+   */
+  private final String[] _names;
+
+  /**
+   * The index of each variable by name.
+   */
+  private final Map<String, Integer> _indexes;
+
+  /**
+   * The accessor for each variable; <code>null</code> if the objects are maps or if the
+   * class has no accessor for the variable.
+   */
+  private final MethodHandle[] _accessors;
+
+  /**
+   * Whether the objects are maps.
+   */
+  private final boolean _map;
+
+  /**
+   * Creates a new adapter for the specified template and class.
+   *
+   * @param template The URI template to expand.
+   * @param type     The class of objects to adapt.
+   *
+   * @throws NullPointerException If the template is <code>null</code>.
+   * @throws IllegalArgumentException If an accessor cannot be used.
+   */
+  public URIParametersAdapter(URITemplate template, Class<T> type) {
+    this._template = template;
+    this._type = type;
+    this._expander = new URIExpander(template);
+    List<Variable> variables = template.variables();
+    this._names = new String[variables.size()];
+    this._indexes = new HashMap<String, Integer>();
+    this._accessors = new MethodHandle[variables.size()];
+    this._map = Map.class.isAssignableFrom(type);
+    try {
+      for (int i = 0; i < this._names.length; i++) {
+        this._names[i] = variables.get(i).name();
+        this._indexes.put(this._names[i], i);
+        if (!this._map) {
+          this._accessors[i] = accessor(type, this._names[i]);
+        }
+      }
+    } catch (IllegalAccessException ex) {
+      throw new IllegalArgumentException("Unable to adapt "+type.getName()+" for "+template, ex);
+    }
+  }
+
+  /**
+   * Returns a read-only view of the specified object as parameters.
+   *
+   * <p>The values are read from the object when they are requested.
+   *
+   * @param object The object to adapt.
+   *
+   * @return the corresponding parameters.
+   */
+  public Parameters wrap(T object) {
+    return new View(this, object, false);
+  }
+
+  /**
+   * Expands the template using the values of the specified object.
+   *
+   * @param object The object to read the values from.
+   *
+   * @return the expanded URI.
+   */
+  public String expand(T object) {
+    return this._expander.expand(new View(this, object, true));
+  }
+
+  /**
+   * Returns the template this adapter expands.
+   *
+   * @return the template this adapter expands.
+   */
+  public URITemplate template() {
+    return this._template;
+  }
+
+  /**
+   * Returns the class of objects to adapt.
+   *
+   * @return the class of objects to adapt.
+   */
+  public Class<T> type() {
+    return this._type;
+  }
+
+  @Override
+  public String toString() {
+    return this._type.getName() + " -> " + this._template;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Returns the index of the specified variable.
+   *
+   * @return the index or <code>-1</code> if the template has no such variable.
+   */
+  private int indexOf(String name) {
+    Integer i = this._indexes.get(name);
+    return i != null ? i.intValue() : -1;
+  }
+
+  /**
+   * Returns the value of the variable at the specified index for the object.
+   *
+   * @return the value or <code>null</code>.
+   */
+  private Object value(Object object, int index) {
+    MethodHandle accessor = this._accessors[index];
+    if (object == null || accessor == null) return null;
+    try {
+      return (Object)accessor.invokeExact(object);
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Unable to read "+this._names[index]+" from "+this._type.getName(), ex);
+    }
+  }
+
+  /**
+   * Returns the accessor for the variable, converting primitive values to strings.
+   *
+   * @return the accessor or <code>null</code> if the class has no accessor for the variable.
+   */
+  private static MethodHandle accessor(Class<?> type, String name) throws IllegalAccessException {
+    MethodHandle accessor = null;
+    Method method = method(type, name);
+    if (method != null) {
+      setAccessible(method);
+      accessor = LOOKUP.unreflect(method);
+    } else {
+      Field field = field(type, name);
+      if (field == null) return null;
+      setAccessible(field);
+      accessor = LOOKUP.unreflectGetter(field);
+    }
+    Class<?> returned = accessor.type().returnType();
+    if (returned.isPrimitive()) {
+      Class<?> widened = returned == byte.class || returned == short.class ? int.class : returned;
+      MethodHandle toString;
+      try {
+        toString = LOOKUP.findStatic(String.class, "valueOf", MethodType.methodType(String.class, widened));
+      } catch (NoSuchMethodException ex) {
+        throw new IllegalArgumentException("Unsupported type "+returned+" for "+name, ex);
+      }
+      accessor = MethodHandles.filterReturnValue(accessor, toString.asType(MethodType.methodType(String.class, returned)));
+    }
+    return accessor.asType(ACCESSOR_TYPE);
+  }
+
+  /**
+   * Makes the member accessible if possible.
+   *
+   * <p>Members of packages which are not open (Java 9+) cannot be made accessible: public members
+   * can still be used, otherwise the lookup reports an <code>IllegalAccessException</code>.
+   */
+  private static void setAccessible(AccessibleObject member) {
+    try {
+      member.setAccessible(true);
+    } catch (RuntimeException ex) {
+      // InaccessibleObjectException or SecurityException, let the lookup decide
+    }
+  }
+
+  /**
+   * Returns the public method of the class returning the value of the specified variable.
+   */
+  private static Method method(Class<?> type, String name) {
+    if (name.isEmpty()) return null;
+    String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    Method found = null;
+    for (Method m : type.getMethods()) {
+      if (m.getParameterCount() != 0 || Modifier.isStatic(m.getModifiers())) continue;
+      if (m.getDeclaringClass() == Object.class || m.getReturnType() == void.class) continue;
+      String n = m.getName();
+      if (n.equals("get"+suffix) || (n.equals("is"+suffix) && m.getReturnType() == boolean.class)) return m;
+      if (n.equals(name)) found = m;
+    }
+    return found;
+  }
+
+  /**
+   * Returns the instance field of the class or its superclasses with the specified name.
+   */
+  private static Field field(Class<?> type, String name) {
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field f : c.getDeclaredFields()) {
+        if (f.getName().equals(name) && !Modifier.isStatic(f.getModifiers())) return f;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the first of the values as a string.
+   */
+  private static String first(Object value) {
+    if (value instanceof Iterable<?>) {
+      Iterator<?> i = ((Iterable<?>)value).iterator();
+      return i.hasNext() ? toString(i.next()) : null;
+    } else if (value != null && value.getClass().isArray()) {
+      return Array.getLength(value) > 0 ? toString(Array.get(value, 0)) : null;
+    }
+    return toString(value);
+  }
+
+  /**
+   * Returns all the values as strings.
+   */
+  private static String[] all(Object value) {
+    if (value == null) return null;
+    List<String> values = new ArrayList<String>();
+    if (value instanceof Iterable<?>) {
+      for (Object o : (Iterable<?>)value) {
+        values.add(toString(o));
+      }
+    } else if (value.getClass().isArray()) {
+      for (int i = 0; i < Array.getLength(value); i++) {
+        values.add(toString(Array.get(value, i)));
+      }
+    } else {
+      return new String[]{ toString(value) };
+    }
+    return values.toArray(new String[values.size()]);
+  }
+
+  /**
+   * Returns the string value of the object or <code>null</code>.
+   */
+  private static String toString(Object o) {
+    return o != null ? o.toString() : null;
+  }
+
+  /**
+   * A read-only view of an object as parameters.
+   *
+   * <p>During an expansion, operators usually check whether a variable exists and then read its
+   * values, so the view can keep the last value read to invoke the accessor only once.
+   */
+  private static final class View implements Parameters {
+
+    /** The adapter */
+    private final URIParametersAdapter<?> _adapter;
+
+    /** The object to read the values from */
+    private final Object _object;
+
+    /** Whether the last value read is kept */
+    private final boolean _keep;
+
+    /** The index of the last variable read, -1 if none */
+    private int _last = -1;
+
+    /** The value of the last variable read */
+    private Object _value;
+
+    View(URIParametersAdapter<?> adapter, Object object, boolean keep) {
+      this._adapter = adapter;
+      this._object = object;
+      this._keep = keep;
+    }
+
+    @Override
+    public String getValue(String name) {
+      return first(value(name));
+    }
+
+    @Override
+    public String[] getValues(String name) {
+      return all(value(name));
+    }
+
+    /**
+     * @return the value read from the object, lists and maps are not converted.
+     */
+    @Override
+    public Object getObject(String name) {
+      return value(name);
+    }
+
+    @Override
+    public boolean exists(String name) {
+      return value(name) != null;
+    }
+
+    @Override
+    public boolean hasValue(String name) {
+      String value = getValue(name);
+      return value != null && value.length() > 0;
+    }
+
+    @Override
+    public Set<String> names() {
+      Set<String> names = new HashSet<String>();
+      for (String name : this._adapter._names) {
+        if (exists(name)) names.add(name);
+      }
+      return Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public void set(String name, String value) {
+      throw new UnsupportedOperationException("Cannot modify the values of an object");
+    }
+
+    /**
+     * Returns the value of the specified variable.
+     */
+    private Object value(String name) {
+      URIParametersAdapter<?> adapter = this._adapter;
+      if (adapter._map)
+        return this._object != null ? ((Map<?, ?>)this._object).get(name) : null;
+      int i = adapter.indexOf(name);
+      if (i < 0) return null;
+      if (!this._keep) return adapter.value(this._object, i);
+      if (i != this._last) {
+        this._value = adapter.value(this._object, i);
+        this._last = i;
+      }
+      return this._value;
+    }
+
+    @Override
+    public void set(String name, String[] values) {
+      throw new UnsupportedOperationException("Cannot modify the values of an object");
+    }
+  }
+
+}
@@ -15,7 +15,9 @@
  */
 package org.pageseeder.furi;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
@@ -37,14 +39,47 @@ public class URIPattern extends URITemplate implements Matchable {
 
   /**
    * The regular expression pattern for matching URIs to this URI Pattern.
+   *
+   * <p>Compiled the first time it is needed, as many patterns are only ever used for expansion.
+   */
+  private volatile Pattern _pattern;
+
+  /**
+   * The leading literal token if any.
+   */
+  private TokenLiteral _prefix;
+
+  /**
+   * The trailing literal token if any.
+   */
+  private TokenLiteral _suffix;
+
+  /**
+   * Indicates whether this pattern contains only literal tokens.
+   */
+  private boolean _literal;
+
+  /**
+   * The matcher scanning the URI directly, <code>null</code> if the regular expression must be used.
+   */
+  private URIPatternMatcher _matcher;
+
+  /**
+   * The constraint on the value of each variable token, <code>null</code> if there is none.
    */
-  private Pattern _pattern;
+  private VariableConstraint[] _constraints;
 
   /**
    * The score for this pattern, the length of the literal text.
    */
   private int _score = -1;
 
+  /**
+   * Whether the offsets of the tokens are recorded when matching: 1 if they are, 0 if they are
+   * not and -1 if unknown.
+   */
+  private int _resolvable = -1;
+
   /**
    * Creates a new URI Pattern instance from the specified URI template string.
    *
@@ -57,7 +92,27 @@ public class URIPattern extends URITemplate implements Matchable {
     if (!isMatchable(this))
       throw new IllegalArgumentException(
           "Cannot create a URL pattern containing non-matchable tokens.");
-    this._pattern = computePattern(tokens());
+    init(tokens());
+  }
+
+  /**
+   * Creates a new URI Pattern instance with constraints on the values of variables.
+   *
+   * <p>The constraint registered for the type of each variable is compiled into the pattern, so
+   * that URIs with values which do not satisfy the constraints do not match.
+   *
+   * @param template    The string following the URI template syntax.
+   * @param constraints The constraints by variable type.
+   *
+   * @throws URITemplateSyntaxException If the string provided does not follow the proper syntax.
+   */
+  public URIPattern(String template, VariableConstraintRegistry constraints) throws IllegalArgumentException {
+    super(template);
+    if (!isMatchable(this))
+      throw new IllegalArgumentException(
+          "Cannot create a URL pattern containing non-matchable tokens.");
+    this._constraints = toConstraints(tokens(), constraints);
+    init(tokens());
   }
 
   /**
@@ -74,7 +129,44 @@ public class URIPattern extends URITemplate implements Matchable {
     if (!isMatchable(template))
       throw new IllegalArgumentException(
           "Cannot create a URL pattern from template containing non-matchable tokens.");
-    this._pattern = computePattern(tokens());
+    init(tokens());
+  }
+
+  /**
+   * Creates a new URI Pattern instance from tokens which have already been digested.
+   *
+   * <p>This constructor is used to load precompiled patterns without parsing the template again.
+   *
+   * @param template The string following the URI template syntax.
+   * @param tokens   The list of tokens corresponding to this template.
+   * @param score    The score for this pattern.
+   *
+   * @throws IllegalArgumentException If any of the tokens is not matchable.
+   */
+  URIPattern(String template, List<Token> tokens, int score) throws IllegalArgumentException {
+    this(template, tokens, score, null);
+  }
+
+  /**
+   * Creates a new URI Pattern instance from tokens which have already been digested and the
+   * constraints which apply to them.
+   *
+   * @param template    The string following the URI template syntax.
+   * @param tokens      The list of tokens corresponding to this template.
+   * @param score       The score for this pattern.
+   * @param constraints The constraint for each token or <code>null</code> if no token is constrained.
+   *
+   * @throws IllegalArgumentException If any of the tokens is not matchable.
+   */
+  URIPattern(String template, List<Token> tokens, int score, VariableConstraint[] constraints)
+      throws IllegalArgumentException {
+    super(template, tokens);
+    if (!isMatchable(this))
+      throw new IllegalArgumentException(
+          "Cannot create a URL pattern containing non-matchable tokens.");
+    this._constraints = constraints;
+    init(tokens);
+    this._score = score;
   }
 
   /**
@@ -106,27 +198,92 @@ public class URIPattern extends URITemplate implements Matchable {
    * @return <code>true</code> if this URI Pattern matches this
    */
   public boolean match(String uri) {
-    return this._pattern.matcher(uri).matches();
+    return match(uri, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Matches the specified URI and records the start and end offsets of each non-literal token.
+   *
+   * <p>The offsets of the token at index <code>i</code> are stored at <code>offsets[2*i]</code>
+   * and <code>offsets[2*i+1]</code>; the offsets of literal tokens are not significant.
+   *
+   * @param uri     The URI to match.
+   * @param offsets The array receiving the offsets, at least twice the number of tokens.
+   *
+   * @return <code>true</code> if the URI matches and the offsets were recorded;
+   *         <code>false</code> otherwise.
+   */
+  boolean match(String uri, int[] offsets) {
+    return match(uri, offsets, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Matches the specified URI within the specified number of steps.
+   *
+   * @see URIRouter#setMatchLimits(int, int)
+   *
+   * @param uri      The URI to match.
+   * @param offsets  The array receiving the offsets (may be <code>null</code>).
+   * @param maxSteps The maximum number of steps.
+   *
+   * @return <code>true</code> if the URI matches and the offsets were recorded if required;
+   *         <code>false</code> otherwise.
+   *
+   * @throws URIMatchLimitException If more steps are needed to match the URI.
+   */
+  boolean match(String uri, int[] offsets, int maxSteps) {
+    // check the literal text at either end before using the regular expression
+    if (this._prefix != null && !this._prefix.match(uri, 0))
+      return false;
+    if (this._literal)
+      return uri.length() == this._prefix.expression().length();
+    if (this._suffix != null && !this._suffix.match(uri, uri.length() - this._suffix.expression().length()))
+      return false;
+    if (this._matcher != null)
+      return this._matcher.match(uri, offsets, maxSteps);
+    Matcher mx = pattern().matcher(uri);
+    if (!mx.matches())
+      return false;
+    if (offsets == null)
+      return true;
+    // only non-literal tokens are captured, in order
+    List<Token> tokens = tokens();
+    int group = 0;
+    for (int i = 0; i < tokens.size(); i++) {
+      if (tokens.get(i) instanceof TokenLiteral) continue;
+      if (++group > mx.groupCount()) return false;
+      offsets[i*2] = mx.start(group);
+      offsets[i*2+1] = mx.end(group);
+    }
+    // tokens including their own capturing groups cannot be resolved
+    return group == mx.groupCount();
   }
 
   /**
    * Returns the regular expression pattern corresponding to this URI pattern.
    *
+   * <p>The pattern is compiled the first time this method is invoked.
+   *
    * @return The regular expression pattern corresponding to this URI pattern.
    */
   public Pattern pattern() {
-    return this._pattern;
+    Pattern p = this._pattern;
+    if (p == null) {
+      p = computePattern(tokens());
+      this._pattern = p;
+    }
+    return p;
   }
 
   @Override
   public boolean equals(Object o) {
-    return super.equals(o);
+    return super.equals(o) && Arrays.equals(this._constraints, ((URIPattern)o)._constraints);
   }
 
   @Override
   public int hashCode() {
-    // use the original regex pattern string because the Pattern object's hashCode
-    return 7 * this._pattern.pattern().hashCode() + 3 * toString().hashCode() + 31;
+    // the regex is derived from the template, so the template string is enough
+    return 3 * toString().hashCode() + 31;
   }
 
   /**
@@ -143,26 +300,129 @@ public class URIPattern extends URITemplate implements Matchable {
     return this._score;
   }
 
+  /**
+   * Indicates whether the values of some variables in this pattern are constrained.
+   *
+   * @return <code>true</code> if this pattern was created with constraints applying to its variables.
+   */
+  boolean isConstrained() {
+    return this._constraints != null;
+  }
+
+  /**
+   * Returns the constraint on the value of each token.
+   *
+   * <p>The returned array must not be modified.
+   *
+   * @return The constraint for each token or <code>null</code> if no token is constrained.
+   */
+  VariableConstraint[] constraints() {
+    return this._constraints;
+  }
+
+  /**
+   * Indicates whether the offsets of the tokens are recorded when a URI matches this pattern.
+   *
+   * <p>Offsets cannot be recorded when a token includes its own capturing groups.
+   *
+   * @return <code>true</code> if {@link #match(String, int[])} returns <code>true</code> for
+   *         every URI this pattern matches.
+   */
+  boolean isResolvable() {
+    if (this._matcher != null) return true;
+    if (this._resolvable < 0) {
+      int count = 0;
+      for (Token t : tokens()) {
+        if (!(t instanceof TokenLiteral)) count++;
+      }
+      this._resolvable = pattern().matcher("").groupCount() == count ? 1 : 0;
+    }
+    return this._resolvable == 1;
+  }
+
   // private helpers ----------------------------------------------------------
 
+  /**
+   * Returns the constraint on the value of each variable token.
+   *
+   * @param tokens      The tokens for this pattern.
+   * @param constraints The constraints by variable type (may be <code>null</code>).
+   *
+   * @return The constraint for each token or <code>null</code> if no token is constrained.
+   */
+  private static VariableConstraint[] toConstraints(List<Token> tokens, VariableConstraintRegistry constraints) {
+    if (constraints == null) return null;
+    VariableConstraint[] found = null;
+    for (int i = 0; i < tokens.size(); i++) {
+      Token t = tokens.get(i);
+      if (!(t instanceof TokenVariable)) continue;
+      VariableConstraint constraint = constraints.getConstraint(((TokenVariable)t).getVariable().type());
+      if (constraint == null) continue;
+      if (found == null) {
+        found = new VariableConstraint[tokens.size()];
+      }
+      found[i] = constraint;
+    }
+    return found;
+  }
+
+  /**
+   * Initialises the matcher and literal text used for matching without the regular expression.
+   *
+   * <p>Adjacent literal tokens are not merged, so only the first and last tokens are considered.
+   *
+   * @param tokens The tokens for this pattern.
+   */
+  private void init(List<Token> tokens) {
+    this._matcher = URIPatternMatcher.compile(tokens, this._constraints);
+    if (tokens.isEmpty()) return;
+    Token first = tokens.get(0);
+    Token last = tokens.get(tokens.size() - 1);
+    if (first instanceof TokenLiteral) {
+      this._prefix = (TokenLiteral)first;
+      this._literal = tokens.size() == 1;
+    }
+    if (last instanceof TokenLiteral && tokens.size() > 1) {
+      this._suffix = (TokenLiteral)last;
+    }
+  }
+
   /**
    * Compute the Regular Expression pattern for this URI Pattern.
    *
-   * Important note: the regular expression contain the same number of capturing groups as the
-   * number of token to facilitate the resolve process.
+   * Important note: the regular expression contains one capturing group for each non-literal
+   * token to facilitate the resolve process.
    *
    * @return The regex Pattern instance corresponding to this URI pattern.
    */
   private Pattern computePattern(List<Token> tokens) {
+    return Pattern.compile(computeRegex(tokens));
+  }
+
+  /**
+   * Compute the Regular Expression for this URI Pattern without compiling it.
+   *
+   * @return The regular expression corresponding to this URI pattern.
+   */
+  private String computeRegex(List<Token> tokens) {
     StringBuffer p = new StringBuffer();
-    for (Token t : tokens) {
-      Matchable mt = (Matchable) t;
-      // wrap each token in a capturing group to facilitate the resolve process.
+    for (int i = 0; i < tokens.size(); i++) {
+      Token t = tokens.get(i);
+      // literal text is never resolved, so it does not need a capturing group
+      if (t instanceof TokenLiteral) {
+        p.append(((TokenLiteral)t).regex());
+        continue;
+      }
+      if (this._constraints != null && this._constraints[i] != null) {
+        p.append('(').append(this._constraints[i].regex()).append(')');
+        continue;
+      }
+      // wrap other tokens in a capturing group to facilitate the resolve process.
       p.append('(');
-      p.append(mt.pattern());
+      p.append(t instanceof TokenBase ? ((TokenBase)t).regex() : ((Matchable)t).pattern().pattern());
       p.append(')');
     }
-    return Pattern.compile(p.toString());
+    return p.toString();
   }
 
   /**
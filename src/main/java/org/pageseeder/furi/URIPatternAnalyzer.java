@@ -0,0 +1,313 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Analyses a list of URI patterns to report the patterns which conflict with each other.
+ *
+ * <p>The patterns are compared using the structure of their tokens to determine whether a URI
+ * could match two patterns, and whether every URI matching a pattern also matches another one.
+ * The analyzer reports:
+ * <ul>
+ *   <li><b>duplicate</b> patterns matching exactly the same URIs as an earlier pattern;</li>
+ *   <li><b>shadowed</b> patterns which are never selected using <code>FIRST_MATCH</code> because
+ *   an earlier pattern matches all their URIs;</li>
+ *   <li><b>ambiguous</b> patterns which can match the same URI as an earlier pattern with the
+ *   same score, so that <code>BEST_MATCH</code> depends on their order.</li>
+ * </ul>
+ *
+ * <p>The analyzer can also suggest an order for the patterns which puts the most frequently
+ * matched and most specific patterns first, without changing the pattern selected by
+ * <code>FIRST_MATCH</code> for any URI: patterns are only moved ahead of patterns they cannot
+ * share a URI with.
+ *
+ * <p>Patterns using tokens which cannot be analysed are assumed to conflict with every other
+ * pattern when suggesting an order, and are not reported.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class URIPatternAnalyzer {
+
+  /**
+   * The kinds of conflicts between patterns.
+   */
+  public enum Kind {
+
+    /** The pattern matches exactly the same URIs as an earlier pattern. */
+    DUPLICATE,
+
+    /** All the URIs matching the pattern also match an earlier pattern. */
+    SHADOWED,
+
+    /** The pattern can match the same URI as an earlier pattern with the same score. */
+    AMBIGUOUS
+  }
+
+  /**
+   * A conflict between a pattern and an earlier pattern in the list.
+   */
+  public static final class Conflict {
+
+    /** The kind of conflict */
+    private final Kind _kind;
+
+    /** The pattern */
+    private final URIPattern _pattern;
+
+    /** The earlier pattern it conflicts with */
+    private final URIPattern _earlier;
+
+    /**
+     * Creates a new conflict.
+     */
+    private Conflict(Kind kind, URIPattern pattern, URIPattern earlier) {
+      this._kind = kind;
+      this._pattern = pattern;
+      this._earlier = earlier;
+    }
+
+    /**
+     * @return The kind of conflict.
+     */
+    public Kind kind() {
+      return this._kind;
+    }
+
+    /**
+     * @return The pattern.
+     */
+    public URIPattern pattern() {
+      return this._pattern;
+    }
+
+    /**
+     * @return The earlier pattern it conflicts with.
+     */
+    public URIPattern earlier() {
+      return this._earlier;
+    }
+
+    @Override
+    public String toString() {
+      return this._kind + " " + this._pattern + " by " + this._earlier;
+    }
+  }
+
+  /**
+   * The patterns to analyse.
+   */
+  private final List<URIPattern> _patterns;
+
+  /**
+   * The automaton for each pattern, <code>null</code> if it cannot be analysed.
+   */
+  private final URIPatternAutomaton[] _automata;
+
+  /**
+   * For each pattern, the earlier patterns which can match the same URI.
+   */
+  private final BitSet[] _intersects;
+
+  /**
+   * For each pattern, the later patterns which can match the same URI.
+   */
+  private final int[][] _later;
+
+  /**
+   * Creates a new analyzer for the specified patterns.
+   *
+   * <p>The patterns are compared when this object is created.
+   *
+   * @param patterns The patterns in the order they are evaluated.
+   */
+  public URIPatternAnalyzer(List<URIPattern> patterns) {
+    int size = patterns.size();
+    this._patterns = new ArrayList<URIPattern>(patterns);
+    this._automata = new URIPatternAutomaton[size];
+    this._intersects = new BitSet[size];
+    for (int j = 0; j < size; j++) {
+      this._automata[j] = URIPatternAutomaton.compile(this._patterns.get(j));
+      this._intersects[j] = new BitSet(j);
+      for (int i = 0; i < j; i++) {
+        URIPatternAutomaton a = this._automata[i];
+        URIPatternAutomaton b = this._automata[j];
+        if (a == null || b == null || a.intersects(b)) {
+          this._intersects[j].set(i);
+        }
+      }
+    }
+    int[] counts = new int[size];
+    for (int j = 0; j < size; j++) {
+      BitSet earlier = this._intersects[j];
+      for (int i = earlier.nextSetBit(0); i >= 0; i = earlier.nextSetBit(i + 1)) {
+        counts[i]++;
+      }
+    }
+    this._later = new int[size][];
+    for (int i = 0; i < size; i++) {
+      this._later[i] = new int[counts[i]];
+      counts[i] = 0;
+    }
+    for (int j = 0; j < size; j++) {
+      BitSet earlier = this._intersects[j];
+      for (int i = earlier.nextSetBit(0); i >= 0; i = earlier.nextSetBit(i + 1)) {
+        this._later[i][counts[i]++] = j;
+      }
+    }
+  }
+
+  /**
+   * Returns the conflicts between the patterns.
+   *
+   * <p>Each pattern is compared to the earlier patterns in the list, a pattern may be reported
+   * several times if it conflicts with several earlier patterns.
+   *
+   * @return The list of conflicts in the order of the patterns.
+   */
+  public List<Conflict> conflicts() {
+    List<Conflict> conflicts = new ArrayList<Conflict>();
+    for (int j = 0; j < this._patterns.size(); j++) {
+      URIPatternAutomaton b = this._automata[j];
+      if (b == null) continue;
+      URIPattern pattern = this._patterns.get(j);
+      BitSet earlier = this._intersects[j];
+      for (int i = earlier.nextSetBit(0); i >= 0; i = earlier.nextSetBit(i + 1)) {
+        URIPatternAutomaton a = this._automata[i];
+        if (a == null) continue;
+        URIPattern other = this._patterns.get(i);
+        if (a.includes(b)) {
+          conflicts.add(new Conflict(b.includes(a) ? Kind.DUPLICATE : Kind.SHADOWED, pattern, other));
+        } else if (pattern.score() == other.score()) {
+          conflicts.add(new Conflict(Kind.AMBIGUOUS, pattern, other));
+        }
+      }
+    }
+    return conflicts;
+  }
+
+  /**
+   * Indicates whether the two patterns can match the same URI.
+   *
+   * @param a A pattern to analyse.
+   * @param b Another pattern to analyse.
+   *
+   * @return <code>true</code> if a URI can match both patterns or if either pattern cannot be
+   *         analysed; <code>false</code> otherwise.
+   */
+  public static boolean intersects(URIPattern a, URIPattern b) {
+    URIPatternAutomaton x = URIPatternAutomaton.compile(a);
+    URIPatternAutomaton y = URIPatternAutomaton.compile(b);
+    return x == null || y == null || x.intersects(y);
+  }
+
+  /**
+   * Indicates whether all the URIs matching a pattern also match the other pattern.
+   *
+   * @param a A pattern to analyse.
+   * @param b Another pattern to analyse.
+   *
+   * @return <code>true</code> if every URI matching <code>b</code> also matches <code>a</code>;
+   *         <code>false</code> if not or if either pattern cannot be analysed.
+   */
+  public static boolean includes(URIPattern a, URIPattern b) {
+    URIPatternAutomaton x = URIPatternAutomaton.compile(a);
+    URIPatternAutomaton y = URIPatternAutomaton.compile(b);
+    return x != null && y != null && x.includes(y);
+  }
+
+  /**
+   * Suggests an order for the patterns which selects the same pattern as the current order using
+   * <code>FIRST_MATCH</code> but evaluates the most frequently matched patterns first.
+   *
+   * <p>Patterns which can match the same URI keep their relative order. Otherwise, the patterns
+   * with the most hits come first, then the patterns with the highest score, then the patterns
+   * which were first in the list.
+   *
+   * @param hits The number of times each pattern was matched (may be <code>null</code>).
+   *
+   * @return The patterns in the suggested order.
+   */
+  public List<URIPattern> suggestOrder(Map<URIPattern, Long> hits) {
+    int size = this._patterns.size();
+    long[] counts = new long[size];
+    for (int j = 0; j < size; j++) {
+      Long count = hits != null ? hits.get(this._patterns.get(j)) : null;
+      counts[j] = count != null ? count.longValue() : 0;
+    }
+    List<URIPattern> order = new ArrayList<URIPattern>(size);
+    for (int i : order(counts)) {
+      order.add(this._patterns.get(i));
+    }
+    return order;
+  }
+
+  /**
+   * Returns the indexes of the patterns in the suggested order.
+   *
+   * <p>This method does not compare the patterns, it only uses the comparisons made when this
+   * object was created.
+   *
+   * @see #suggestOrder(Map)
+   *
+   * @param counts The number of times each pattern was matched, by index.
+   *
+   * @return The indexes of the patterns in the suggested order.
+   */
+  int[] order(final long[] counts) {
+    int size = this._patterns.size();
+    final int[] scores = new int[size];
+    int[] pending = new int[size];
+    for (int j = 0; j < size; j++) {
+      scores[j] = this._patterns.get(j).score();
+    }
+    for (int[] later : this._later) {
+      for (int j : later) {
+        pending[j]++;
+      }
+    }
+    // a pattern is ready when all the earlier patterns it intersects with are placed
+    PriorityQueue<Integer> ready = new PriorityQueue<Integer>(Math.max(1, size), new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        if (counts[a] != counts[b]) return counts[a] > counts[b] ? -1 : 1;
+        if (scores[a] != scores[b]) return scores[a] > scores[b] ? -1 : 1;
+        return a.compareTo(b);
+      }
+    });
+    for (int j = 0; j < size; j++) {
+      if (pending[j] == 0) ready.add(j);
+    }
+    int[] order = new int[size];
+    int k = 0;
+    while (!ready.isEmpty()) {
+      int i = ready.poll();
+      order[k++] = i;
+      for (int j : this._later[i]) {
+        if (--pending[j] == 0) ready.add(j);
+      }
+    }
+    return order;
+  }
+
+}
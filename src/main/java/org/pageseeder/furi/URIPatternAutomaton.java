@@ -0,0 +1,543 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A non-deterministic automaton recognising the same URIs as a URI pattern.
+ *
+ * <p>The automaton is built from the tokens of the pattern rather than from its regular
+ * expression and is used to compare the sets of URIs matched by two patterns:
+ * <ul>
+ *   <li>{@link #intersects(URIPatternAutomaton)} indicates whether a URI can match both;</li>
+ *   <li>{@link #includes(URIPatternAutomaton)} indicates whether every URI matching the other
+ *   pattern also matches this one.</li>
+ * </ul>
+ *
+ * <p>Transitions are labelled with sets of ASCII characters; all other characters behave in the
+ * same way in URI patterns, so they are represented by the last character of the set (DEL).
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+final class URIPatternAutomaton {
+
+  /**
+   * The number of characters in the alphabet.
+   */
+  private static final int ALPHABET = 128;
+
+  /**
+   * The characters allowed in a variable value, other than escape sequences.
+   */
+  private static final long[] UNRESERVED = union(range('a', 'z'), range('A', 'Z'), range('0', '9'), chars("_.~-"));
+
+  /**
+   * The hexadecimal digits allowed in escape sequences.
+   */
+  private static final long[] HEX = union(range('0', '9'), range('A', 'F'));
+
+  /**
+   * The target state of each transition, by state.
+   */
+  private final int[][] _targets;
+
+  /**
+   * The set of characters of each transition, by state; <code>null</code> for epsilon transitions.
+   */
+  private final long[][][] _sets;
+
+  /**
+   * The initial state.
+   */
+  private final int _start;
+
+  /**
+   * The accepting state.
+   */
+  private final int _accept;
+
+  /**
+   * The literal text at the start of the pattern.
+   */
+  private final String _prefix;
+
+  /**
+   * The literal text at the end of the pattern.
+   */
+  private final String _suffix;
+
+  /**
+   * Creates a new automaton.
+   */
+  private URIPatternAutomaton(Builder builder, int start, int accept, String prefix, String suffix) {
+    int size = builder._targets.size();
+    this._targets = new int[size][];
+    this._sets = new long[size][][];
+    for (int i = 0; i < size; i++) {
+      List<Integer> targets = builder._targets.get(i);
+      List<long[]> sets = builder._sets.get(i);
+      this._targets[i] = new int[targets.size()];
+      this._sets[i] = new long[targets.size()][];
+      for (int j = 0; j < targets.size(); j++) {
+        this._targets[i][j] = targets.get(j);
+        this._sets[i][j] = sets.get(j);
+      }
+    }
+    this._start = start;
+    this._accept = accept;
+    this._prefix = prefix;
+    this._suffix = suffix;
+  }
+
+  /**
+   * Returns the automaton for the specified pattern.
+   *
+   * @param pattern The URI pattern.
+   *
+   * @return the corresponding automaton or <code>null</code> if the pattern uses tokens or
+   *         constraints which are not supported.
+   */
+  static URIPatternAutomaton compile(URIPattern pattern) {
+    // constraints are not represented
+    if (pattern.isConstrained()) return null;
+    List<Token> tokens = pattern.tokens();
+    Builder b = new Builder();
+    int start = b.state();
+    int end = start;
+    StringBuilder prefix = new StringBuilder();
+    StringBuilder suffix = new StringBuilder();
+    boolean leading = true;
+    for (Token t : tokens) {
+      int[] fragment;
+      if (t instanceof TokenLiteral) {
+        fragment = b.literal(t.expression());
+        if (leading) prefix.append(t.expression());
+        suffix.append(t.expression());
+      } else {
+        fragment = fragment(b, t);
+        if (fragment == null) return null;
+        leading = false;
+        suffix.setLength(0);
+      }
+      b.epsilon(end, fragment[0]);
+      end = fragment[1];
+    }
+    return new URIPatternAutomaton(b, start, end, prefix.toString(), suffix.toString());
+  }
+
+  /**
+   * Indicates whether some URI is recognised by both automata.
+   *
+   * @param other The other automaton.
+   *
+   * @return <code>true</code> if a URI can match both patterns.
+   */
+  boolean intersects(URIPatternAutomaton other) {
+    // the literal text at either end is often enough to tell the patterns apart
+    if (!isPrefix(this._prefix, other._prefix) || !isSuffix(this._suffix, other._suffix))
+      return false;
+    int size = other._targets.length;
+    BitSet visited = new BitSet(this._targets.length * size);
+    Deque<int[]> queue = new ArrayDeque<int[]>();
+    queue.add(new int[]{ this._start, other._start });
+    visited.set(this._start * size + other._start);
+    while (!queue.isEmpty()) {
+      int[] pair = queue.poll();
+      int a = pair[0];
+      int b = pair[1];
+      if (a == this._accept && b == other._accept)
+        return true;
+      for (int i = 0; i < this._targets[a].length; i++) {
+        long[] sa = this._sets[a][i];
+        int ta = this._targets[a][i];
+        if (sa == null) {
+          visit(ta, b, size, visited, queue);
+        } else {
+          for (int j = 0; j < other._targets[b].length; j++) {
+            long[] sb = other._sets[b][j];
+            if (sb != null && ((sa[0] & sb[0]) != 0 || (sa[1] & sb[1]) != 0)) {
+              visit(ta, other._targets[b][j], size, visited, queue);
+            }
+          }
+        }
+      }
+      for (int j = 0; j < other._targets[b].length; j++) {
+        if (other._sets[b][j] == null) {
+          visit(a, other._targets[b][j], size, visited, queue);
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indicates whether every URI recognised by the other automaton is also recognised by this one.
+   *
+   * @param other The other automaton.
+   *
+   * @return <code>true</code> if all the URIs matching the other pattern match this pattern.
+   */
+  boolean includes(URIPatternAutomaton other) {
+    // both patterns must be able to match a common URI
+    if (!isPrefix(this._prefix, other._prefix) || !isSuffix(this._suffix, other._suffix))
+      return false;
+    // explore the other automaton with the corresponding subset of states of this automaton
+    Map<BitSet, BitSet[]> steps = new HashMap<BitSet, BitSet[]>();
+    Set<List<Object>> visited = new HashSet<List<Object>>();
+    Deque<Object[]> queue = new ArrayDeque<Object[]>();
+    BitSet initial = new BitSet();
+    initial.set(this._start);
+    initial = closure(initial);
+    queue.add(new Object[]{ other._start, initial });
+    visited.add(key(other._start, initial));
+    while (!queue.isEmpty()) {
+      Object[] pair = queue.poll();
+      int b = (Integer)pair[0];
+      BitSet states = (BitSet)pair[1];
+      if (b == other._accept && !states.get(this._accept))
+        return false;
+      BitSet[] next = steps.get(states);
+      if (next == null) {
+        next = new BitSet[ALPHABET];
+        for (int c = 0; c < ALPHABET; c++) {
+          next[c] = step(states, c);
+        }
+        steps.put(states, next);
+      }
+      for (int j = 0; j < other._targets[b].length; j++) {
+        long[] set = other._sets[b][j];
+        int target = other._targets[b][j];
+        if (set == null) {
+          if (visited.add(key(target, states))) {
+            queue.add(new Object[]{ target, states });
+          }
+        } else {
+          for (int c = 0; c < ALPHABET; c++) {
+            if (contains(set, c) && visited.add(key(target, next[c]))) {
+              queue.add(new Object[]{ target, next[c] });
+            }
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Returns the fragment for a non-literal token.
+   *
+   * @return the start and end states or <code>null</code> if the token is not supported.
+   */
+  private static int[] fragment(Builder b, Token t) {
+    if (t instanceof TokenVariable)
+      return b.value();
+    if (t instanceof TokenOperatorPS) {
+      TokenOperatorPS op = (TokenOperatorPS)t;
+      switch (op.operator()) {
+        case URI_INSERT: return b.chars("?#");
+        case PATH_SEGMENT: return b.segments();
+        case PATH_PARAMETER: return b.pathParameters(op.variables());
+        case QUERY_PARAMETER: return b.query(op.variables());
+        default: return null;
+      }
+    }
+    if (t instanceof TokenOperatorDX) {
+      TokenOperatorDX op = (TokenOperatorDX)t;
+      switch (op.operator()) {
+        case URI_INSERT: return b.chars("?#");
+        case SUBSTITUTION: return b.chars(";/?#,&");
+        case PATH_SEGMENT: return b.segments();
+        case PATH_PARAMETER: return b.pathParameters(op.variables());
+        case QUERY_PARAMETER: return b.query(op.variables());
+        default: return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds the pair of states to the queue if it has not been visited.
+   */
+  private static void visit(int a, int b, int size, BitSet visited, Deque<int[]> queue) {
+    int index = a * size + b;
+    if (!visited.get(index)) {
+      visited.set(index);
+      queue.add(new int[]{ a, b });
+    }
+  }
+
+  /**
+   * Returns the key for a state of the other automaton and a subset of states of this automaton.
+   */
+  private static List<Object> key(int state, BitSet states) {
+    List<Object> key = new ArrayList<Object>(2);
+    key.add(state);
+    key.add(states);
+    return key;
+  }
+
+  /**
+   * Returns the states reachable from the specified states using epsilon transitions.
+   */
+  private BitSet closure(BitSet states) {
+    BitSet closure = (BitSet)states.clone();
+    Deque<Integer> stack = new ArrayDeque<Integer>();
+    for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+      stack.push(s);
+    }
+    while (!stack.isEmpty()) {
+      int s = stack.pop();
+      for (int i = 0; i < this._targets[s].length; i++) {
+        int t = this._targets[s][i];
+        if (this._sets[s][i] == null && !closure.get(t)) {
+          closure.set(t);
+          stack.push(t);
+        }
+      }
+    }
+    return closure;
+  }
+
+  /**
+   * Returns the closed set of states reached from the specified states with a character.
+   */
+  private BitSet step(BitSet states, int c) {
+    BitSet next = new BitSet();
+    for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+      for (int i = 0; i < this._targets[s].length; i++) {
+        long[] set = this._sets[s][i];
+        if (set != null && contains(set, c)) {
+          next.set(this._targets[s][i]);
+        }
+      }
+    }
+    return closure(next);
+  }
+
+  /**
+   * Indicates whether either string is a prefix of the other.
+   */
+  private static boolean isPrefix(String a, String b) {
+    return a.startsWith(b) || b.startsWith(a);
+  }
+
+  /**
+   * Indicates whether either string is a suffix of the other.
+   */
+  private static boolean isSuffix(String a, String b) {
+    return a.endsWith(b) || b.endsWith(a);
+  }
+
+  /**
+   * Indicates whether the set contains the specified character.
+   */
+  private static boolean contains(long[] set, int c) {
+    return (set[c >> 6] & (1L << (c & 63))) != 0;
+  }
+
+  /**
+   * Returns the set containing the specified character, all other characters are mapped to DEL.
+   */
+  private static long[] set(char c) {
+    long[] set = new long[2];
+    int i = c < ALPHABET ? c : ALPHABET - 1;
+    set[i >> 6] |= 1L << (i & 63);
+    return set;
+  }
+
+  /**
+   * Returns the set of the specified characters.
+   */
+  private static long[] chars(String chars) {
+    long[] set = new long[2];
+    for (int i = 0; i < chars.length(); i++) {
+      long[] c = set(chars.charAt(i));
+      set[0] |= c[0];
+      set[1] |= c[1];
+    }
+    return set;
+  }
+
+  /**
+   * Returns the set of characters in the specified range.
+   */
+  private static long[] range(char from, char to) {
+    long[] set = new long[2];
+    for (char c = from; c <= to; c++) {
+      set[c >> 6] |= 1L << (c & 63);
+    }
+    return set;
+  }
+
+  /**
+   * Returns the union of the specified sets.
+   */
+  private static long[] union(long[]... sets) {
+    long[] union = new long[2];
+    for (long[] set : sets) {
+      union[0] |= set[0];
+      union[1] |= set[1];
+    }
+    return union;
+  }
+
+  /**
+   * Returns the set of all characters except the specified ones.
+   */
+  private static long[] except(String chars) {
+    long[] set = chars(chars);
+    return new long[]{ ~set[0], ~set[1] };
+  }
+
+  /**
+   * Builds the states and transitions of an automaton.
+   */
+  private static final class Builder {
+
+    /** The targets of the transitions from each state */
+    private final List<List<Integer>> _targets = new ArrayList<List<Integer>>();
+
+    /** The characters of the transitions from each state */
+    private final List<List<long[]>> _sets = new ArrayList<List<long[]>>();
+
+    /**
+     * @return a new state.
+     */
+    int state() {
+      this._targets.add(new ArrayList<Integer>(2));
+      this._sets.add(new ArrayList<long[]>(2));
+      return this._targets.size() - 1;
+    }
+
+    /**
+     * Adds a transition.
+     */
+    void edge(int from, int to, long[] set) {
+      this._targets.get(from).add(to);
+      this._sets.get(from).add(set);
+    }
+
+    /**
+     * Adds an epsilon transition.
+     */
+    void epsilon(int from, int to) {
+      edge(from, to, null);
+    }
+
+    /**
+     * Adds the states to recognise the specified literal text from a state.
+     *
+     * @return the last state.
+     */
+    int text(int from, String text) {
+      int state = from;
+      for (int i = 0; i < text.length(); i++) {
+        int next = state();
+        edge(state, next, set(text.charAt(i)));
+        state = next;
+      }
+      return state;
+    }
+
+    /**
+     * Literal text.
+     */
+    int[] literal(String text) {
+      int start = state();
+      return new int[]{ start, text(start, text) };
+    }
+
+    /**
+     * One or more unreserved characters or escape sequences.
+     */
+    int[] value() {
+      int start = state();
+      int end = state();
+      int percent = state();
+      int hex = state();
+      edge(start, end, UNRESERVED);
+      edge(start, percent, set('%'));
+      edge(percent, hex, HEX);
+      edge(hex, end, HEX);
+      epsilon(end, start);
+      return new int[]{ start, end };
+    }
+
+    /**
+     * Any number of characters excluding the specified ones.
+     */
+    int[] chars(String excluded) {
+      int start = state();
+      edge(start, start, except(excluded));
+      return new int[]{ start, start };
+    }
+
+    /**
+     * Any number of path segments.
+     */
+    int[] segments() {
+      int start = state();
+      int segment = state();
+      edge(start, segment, set('/'));
+      edge(segment, segment, except("/?#"));
+      epsilon(segment, start);
+      return new int[]{ start, start };
+    }
+
+    /**
+     * A query: the '?' operator followed by any number of named parameters or separators.
+     */
+    int[] query(List<Variable> vars) {
+      int start = state();
+      int hub = state();
+      edge(start, hub, set('?'));
+      edge(hub, hub, set('&'));
+      for (Variable var : vars) {
+        int name = text(hub, var.name() + "=");
+        edge(name, name, except("&#"));
+        epsilon(name, hub);
+      }
+      return new int[]{ start, hub };
+    }
+
+    /**
+     * Any number of named path parameters or separators.
+     */
+    int[] pathParameters(List<Variable> vars) {
+      int hub = state();
+      edge(hub, hub, set(';'));
+      for (Variable var : vars) {
+        int name = text(hub, ";" + var.name() + "=");
+        edge(name, name, except(";/?#"));
+        epsilon(name, hub);
+      }
+      return new int[]{ hub, hub };
+    }
+  }
+
+}
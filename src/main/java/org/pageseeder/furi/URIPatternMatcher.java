@@ -0,0 +1,531 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A matcher for URI patterns which scans the characters of the URI directly instead of using a
+ * regular expression.
+ *
+ * <p>This matcher recognises the shapes of the regular expressions produced by the tokens:
+ * <ul>
+ *   <li>Literal text (<code>TokenLiteral</code>);</li>
+ *   <li>A variable value <code>(?:[\w.~-]|%[0-9A-F]{2})+</code> (<code>TokenVariable</code>);</li>
+ *   <li>A run of characters <code>[^?#]*</code> or <code>[^;/?#,&amp;]*</code> (URI insert and
+ *   substitution operators);</li>
+ *   <li>Path segments <code>(?:/[^/?#]*)*</code> (path segment operator);</li>
+ *   <li>Query parameters <code>\?</code> followed by <code>name=value</code> pairs separated by
+ *   <code>&amp;</code> (query parameter operator);</li>
+ *   <li>Path parameters, <code>name=value</code> pairs each preceded by <code>;</code> (path
+ *   parameter operator).</li>
+ * </ul>
+ *
+ * <p>The values of variables can be further restricted by constraints.
+ *
+ * <p>Other tokens are not supported and the pattern must use the regular expression instead.
+ *
+ * <p>This matcher considers the possible ends of each token in the same order as the regular
+ * expression would (longest first), so the offsets it records are identical to the capturing
+ * groups of the regular expression. In most cases, the token that follows restricts the possible
+ * ends to a single position and no backtracking is needed.
+ *
+ * <p>When several ends must be tried, the positions from which the rest of the pattern failed
+ * to match are remembered so that they are never tried twice: the time to match is at most
+ * quadratic in the length of the URI and the depth of recursion is bounded by the number of
+ * tokens. The number of ends tried can also be limited, see {@link URIRouter#setMatchLimits(int, int)}.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+final class URIPatternMatcher {
+
+  /**
+   * Element matching literal text.
+   */
+  private static final byte LITERAL = 0;
+
+  /**
+   * Element matching one or more unreserved characters or escape sequences.
+   */
+  private static final byte VALUE = 1;
+
+  /**
+   * Element matching any number of characters not in a set.
+   */
+  private static final byte CHARS = 2;
+
+  /**
+   * Element matching any number of path segments.
+   */
+  private static final byte SEGMENTS = 3;
+
+  /**
+   * Element matching query parameters.
+   */
+  private static final byte QUERY = 4;
+
+  /**
+   * Element matching path parameters.
+   */
+  private static final byte PARAMETERS = 5;
+
+  /**
+   * The characters excluded from URI inserts.
+   */
+  private static final String URI_INSERT_EXCLUDED = "?#";
+
+  /**
+   * The characters excluded from substitutions.
+   */
+  private static final String SUBSTITUTION_EXCLUDED = ";/?#,&";
+
+  /**
+   * The characters excluded from the values of query parameters.
+   */
+  private static final String QUERY_EXCLUDED = "&#";
+
+  /**
+   * The characters excluded from the values of path parameters.
+   */
+  private static final String PARAMETERS_EXCLUDED = ";/?#";
+
+  /**
+   * The kind of each element.
+   */
+  private final byte[] _kinds;
+
+  /**
+   * The literal text or excluded characters for each element.
+   */
+  private final String[] _text;
+
+  /**
+   * The variables for each query or path parameters element.
+   */
+  private final VariableList[] _vars;
+
+  /**
+   * The constraint on each value element, <code>null</code> if no value is constrained.
+   */
+  private final VariableConstraint[] _constraints;
+
+  /**
+   * Indicates for each element whether the element that follows allows only one possible end.
+   */
+  private final boolean[] _single;
+
+  /**
+   * Creates a new matcher.
+   */
+  private URIPatternMatcher(byte[] kinds, String[] text, VariableList[] vars, VariableConstraint[] constraints) {
+    this._kinds = kinds;
+    this._text = text;
+    this._vars = vars;
+    this._constraints = constraints;
+    this._single = new boolean[kinds.length];
+    for (int i = 0; i < kinds.length; i++) {
+      this._single[i] = isSingleEnd(i);
+    }
+  }
+
+  /**
+   * Returns the matcher for the specified tokens.
+   *
+   * @param tokens The tokens of a URI pattern.
+   *
+   * @return The corresponding matcher or <code>null</code> if any of the tokens is not supported.
+   */
+  static URIPatternMatcher compile(List<Token> tokens) {
+    return compile(tokens, null);
+  }
+
+  /**
+   * Returns the matcher for the specified tokens with constraints on the values of variables.
+   *
+   * @param tokens      The tokens of a URI pattern.
+   * @param constraints The constraint for each variable token (may be <code>null</code>).
+   *
+   * @return The corresponding matcher or <code>null</code> if any of the tokens is not supported.
+   */
+  static URIPatternMatcher compile(List<Token> tokens, VariableConstraint[] constraints) {
+    int size = tokens.size();
+    byte[] kinds = new byte[size];
+    String[] text = new String[size];
+    VariableList[] vars = new VariableList[size];
+    for (int i = 0; i < size; i++) {
+      Token t = tokens.get(i);
+      if (t instanceof TokenLiteral) {
+        kinds[i] = LITERAL;
+        text[i] = t.expression();
+      } else if (t instanceof TokenVariable) {
+        kinds[i] = VALUE;
+      } else if (t instanceof TokenOperatorPS) {
+        switch (((TokenOperatorPS)t).operator()) {
+          case URI_INSERT:
+            kinds[i] = CHARS;
+            text[i] = URI_INSERT_EXCLUDED;
+            break;
+          case PATH_SEGMENT:
+            kinds[i] = SEGMENTS;
+            break;
+          case QUERY_PARAMETER:
+            kinds[i] = QUERY;
+            text[i] = QUERY_EXCLUDED;
+            vars[i] = VariableList.of(((TokenOperatorPS)t).variables());
+            break;
+          case PATH_PARAMETER:
+            kinds[i] = PARAMETERS;
+            text[i] = PARAMETERS_EXCLUDED;
+            vars[i] = VariableList.of(((TokenOperatorPS)t).variables());
+            break;
+          default:
+            return null;
+        }
+      } else if (t instanceof TokenOperatorDX) {
+        switch (((TokenOperatorDX)t).operator()) {
+          case URI_INSERT:
+            kinds[i] = CHARS;
+            text[i] = URI_INSERT_EXCLUDED;
+            break;
+          case SUBSTITUTION:
+            kinds[i] = CHARS;
+            text[i] = SUBSTITUTION_EXCLUDED;
+            break;
+          case PATH_SEGMENT:
+            kinds[i] = SEGMENTS;
+            break;
+          case QUERY_PARAMETER:
+            kinds[i] = QUERY;
+            text[i] = QUERY_EXCLUDED;
+            vars[i] = VariableList.of(((TokenOperatorDX)t).variables());
+            break;
+          case PATH_PARAMETER:
+            kinds[i] = PARAMETERS;
+            text[i] = PARAMETERS_EXCLUDED;
+            vars[i] = VariableList.of(((TokenOperatorDX)t).variables());
+            break;
+          default:
+            return null;
+        }
+      } else return null;
+    }
+    return new URIPatternMatcher(kinds, text, vars, constraints);
+  }
+
+  /**
+   * Indicates whether the specified URI matches.
+   *
+   * @param uri     The URI to match.
+   * @param offsets If not <code>null</code>, receives the start and end offset of each token.
+   *
+   * @return <code>true</code> if the URI matches; <code>false</code> otherwise.
+   */
+  boolean match(String uri, int[] offsets) {
+    return match(uri, offsets, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Indicates whether the specified URI matches within the specified number of steps.
+   *
+   * <p>A step is counted each time an element could end at several positions and one of them is
+   * tried.
+   *
+   * @param uri      The URI to match.
+   * @param offsets  If not <code>null</code>, receives the start and end offset of each token.
+   * @param maxSteps The maximum number of steps.
+   *
+   * @return <code>true</code> if the URI matches; <code>false</code> otherwise.
+   *
+   * @throws URIMatchLimitException If more steps are needed to match the URI.
+   */
+  boolean match(String uri, int[] offsets, int maxSteps) {
+    return match(new State(uri, offsets, maxSteps), 0, 0);
+  }
+
+  /**
+   * Returns the number of elements in this matcher.
+   *
+   * @return the number of elements in this matcher.
+   */
+  int size() {
+    return this._kinds.length;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Matches the element at the specified index and all the elements after it.
+   *
+   * @param state The state of the match.
+   * @param i     The index of the element.
+   * @param start The position in the URI where the element starts.
+   *
+   * @return <code>true</code> if the rest of the URI matches; <code>false</code> otherwise.
+   */
+  private boolean match(State state, int i, int start) {
+    String uri = state._uri;
+    if (i == this._kinds.length)
+      return start == uri.length();
+    int max;
+    switch (this._kinds[i]) {
+      case LITERAL:
+        String text = this._text[i];
+        if (!uri.regionMatches(start, text, 0, text.length()))
+          return false;
+        return next(state, i, start, start + text.length());
+      case VALUE:
+        max = Variable.scanValue(uri, start);
+        if (max == start)
+          return false;
+        if (this._single[i])
+          return satisfies(uri, i, start, max) && next(state, i, start, max);
+        return backtrackValue(state, i, start, max);
+      case CHARS:
+        max = scanChars(uri, start, this._text[i]);
+        break;
+      case SEGMENTS:
+        max = scanSegments(uri, start);
+        break;
+      default:
+        if (this._single[i]) {
+          max = scanParameters(uri, start, this._kinds[i] == QUERY, this._text[i], this._vars[i], null);
+          return max >= 0 && next(state, i, start, max);
+        }
+        return backtrackParameters(state, i, start);
+    }
+    // characters and segments can end at any position, from the longest
+    if (this._single[i])
+      return next(state, i, start, max);
+    // only consider the positions where the literal text that follows can be found
+    String following = this._kinds[i+1] == LITERAL ? this._text[i+1] : null;
+    for (int end = max; end >= start; end--) {
+      if (following != null) {
+        end = uri.lastIndexOf(following, end);
+        if (end < start) return false;
+      }
+      if (attempt(state, i, start, end))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Records the offsets of the element and matches the next element.
+   */
+  private boolean next(State state, int i, int start, int end) {
+    if (state._offsets != null) {
+      state._offsets[i*2] = start;
+      state._offsets[i*2+1] = end;
+    }
+    return match(state, i+1, end);
+  }
+
+  /**
+   * Tries one of the possible ends of an element unless the rest of the pattern already failed
+   * to match from that position or the maximum number of steps is reached.
+   */
+  private boolean attempt(State state, int i, int start, int end) {
+    if (++state._steps > state._maxSteps)
+      throw new URIMatchLimitException("The URI requires more than "+state._maxSteps+" steps to match");
+    int key = (i + 1) * (state._uri.length() + 1) + end;
+    if (state._failed != null && state._failed.get(key))
+      return false;
+    if (next(state, i, start, end))
+      return true;
+    if (state._failed == null) {
+      state._failed = new BitSet();
+    }
+    state._failed.set(key);
+    return false;
+  }
+
+  /**
+   * Tries each possible end of a value from the longest, a value can only end after a character
+   * or an escape sequence.
+   */
+  private boolean backtrackValue(State state, int i, int start, int max) {
+    String uri = state._uri;
+    int[] ends = new int[max - start];
+    int count = 0;
+    for (int pos = start; pos < max; ) {
+      pos += uri.charAt(pos) == '%' ? 3 : 1;
+      ends[count++] = pos;
+    }
+    for (int j = count - 1; j >= 0; j--) {
+      if (satisfies(uri, i, start, ends[j]) && attempt(state, i, start, ends[j]))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Indicates whether the value satisfies the constraint of the element if any.
+   */
+  private boolean satisfies(String uri, int i, int start, int end) {
+    VariableConstraint constraint = this._constraints != null ? this._constraints[i] : null;
+    return constraint == null || constraint.matches(uri, start, end);
+  }
+
+  /**
+   * Tries each possible end of query or path parameters from the longest.
+   */
+  private boolean backtrackParameters(State state, int i, int start) {
+    String uri = state._uri;
+    int[] ranges = new int[(uri.length() - start + 2) * 4 + 1];
+    if (scanParameters(uri, start, this._kinds[i] == QUERY, this._text[i], this._vars[i], ranges) < 0)
+      return false;
+    for (int r = ranges[0]; r > 0; r -= 2) {
+      for (int end = ranges[r]; end >= ranges[r-1]; end--) {
+        if (attempt(state, i, start, end))
+          return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indicates whether the element at the specified index can only end at the furthest position
+   * it can reach.
+   *
+   * <p>This is the case when it is the last element or when it is followed by literal text
+   * starting with a character that the element cannot include.
+   */
+  private boolean isSingleEnd(int i) {
+    if (this._kinds[i] == LITERAL) return true;
+    if (i == this._kinds.length - 1) return true;
+    if (this._kinds[i+1] != LITERAL || this._text[i+1].length() == 0) return false;
+    char c = this._text[i+1].charAt(0);
+    switch (this._kinds[i]) {
+      case VALUE: return !URICoder.isUnreserved(c) && c != '%';
+      case CHARS: return this._text[i].indexOf(c) >= 0;
+      case SEGMENTS: return c == '?' || c == '#';
+      case QUERY: return c == '#';
+      default: return c == '/' || c == '?' || c == '#';
+    }
+  }
+
+  /**
+   * Returns the position of the first excluded character from the specified position.
+   */
+  private static int scanChars(String uri, int start, String excluded) {
+    int pos = start;
+    int length = uri.length();
+    while (pos < length && excluded.indexOf(uri.charAt(pos)) < 0) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Returns the end of the longest sequence of path segments from the specified position.
+   */
+  private static int scanSegments(String uri, int start) {
+    if (start >= uri.length() || uri.charAt(start) != '/')
+      return start;
+    return scanChars(uri, start, URI_INSERT_EXCLUDED);
+  }
+
+  /**
+   * Scans the query or path parameters from the specified position.
+   *
+   * <p>Query parameters start with '?' followed by parameters separated by '&amp;'; each path
+   * parameter is preceded by ';'. A parameter is either empty or the name of a variable followed
+   * by '=' and a value which does not contain any of the excluded characters.
+   *
+   * <p>The parameters can end right after a separator or anywhere in a value. If the ranges are
+   * specified, the ranges of possible ends are recorded in increasing order as pairs of
+   * positions (inclusive) from index 1 and the index of the last position is stored at index 0.
+   *
+   * @param uri      The URI.
+   * @param start    The position where the parameters start.
+   * @param query    <code>true</code> for query parameters; <code>false</code> for path parameters.
+   * @param excluded The characters excluded from values, the first one is the separator.
+   * @param vars     The variables which can be used as parameter names.
+   * @param ranges   Receives the ranges of possible ends (may be <code>null</code>)
+   *
+   * @return The furthest possible end or <code>-1</code> if query parameters do not start at the
+   *         specified position.
+   */
+  private static int scanParameters(String uri, int start, boolean query, String excluded,
+      VariableList vars, int[] ranges) {
+    int length = uri.length();
+    char separator = excluded.charAt(0);
+    int pos = start;
+    if (query) {
+      if (pos >= length || uri.charAt(pos) != '?') return -1;
+      pos++;
+    } else if (pos >= length || uri.charAt(pos) != separator) {
+      if (ranges != null) addRange(ranges, start, start);
+      return start;
+    } else {
+      if (ranges != null) addRange(ranges, start, start);
+      pos++;
+    }
+    while (true) {
+      // at the start of a parameter, which may be empty
+      if (ranges != null) addRange(ranges, pos, pos);
+      int equals = uri.indexOf('=', pos);
+      if (equals > pos && vars.indexOf(uri, pos, equals) >= 0 && scanChars(uri, pos, excluded) > equals) {
+        int end = scanChars(uri, equals + 1, excluded);
+        if (ranges != null) addRange(ranges, equals + 1, end);
+        pos = end;
+      }
+      if (pos >= length || uri.charAt(pos) != separator)
+        return pos;
+      pos++;
+    }
+  }
+
+  /**
+   * Adds a range of positions to the specified ranges.
+   */
+  private static void addRange(int[] ranges, int from, int to) {
+    int last = ranges[0];
+    ranges[last+1] = from;
+    ranges[last+2] = to;
+    ranges[0] = last + 2;
+  }
+
+  /**
+   * The state of a match.
+   */
+  private static final class State {
+
+    /** The URI to match */
+    private final String _uri;
+
+    /** Receives the offsets of each token (may be <code>null</code>) */
+    private final int[] _offsets;
+
+    /** The maximum number of steps */
+    private final int _maxSteps;
+
+    /** The number of steps so far */
+    private int _steps;
+
+    /** The elements and positions from which the rest of the pattern does not match */
+    private BitSet _failed;
+
+    State(String uri, int[] offsets, int maxSteps) {
+      this._uri = uri;
+      this._offsets = offsets;
+      this._maxSteps = maxSteps;
+    }
+  }
+
+}
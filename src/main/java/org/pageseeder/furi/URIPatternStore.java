@@ -0,0 +1,569 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pageseeder.furi.Variable.Form;
+import org.pageseeder.furi.Variable.Reserved;
+
+/**
+ * Reads and writes lists of URI patterns using a compact binary format.
+ *
+ * <p>Loading patterns from this format does not require the templates to be parsed again, the
+ * tokens, variables, types, constraints and scores are stored as they were digested. The order
+ * of the patterns is preserved so that the list can be used as is for routing.
+ *
+ * <p>This class is typically used as follows:
+ * <pre>
+ *   // At build time
+ *   URIPatternStore.write(patterns, new FileOutputStream("routes.furi"));
+ *
+ *   // At runtime
+ *   List&lt;URIPattern&gt; patterns = URIPatternStore.read(new FileInputStream("routes.furi"));
+ * </pre>
+ *
+ * <p>The format is as follows, all numbers are unsigned variable-length integers:
+ * <pre>
+ *   store       = magic version strings tokens constraints patterns
+ *   magic       = "FURI"
+ *   version     = byte
+ *   strings     = count *(UTF-8 string)
+ *   tokens      = count *(kind [operator] token-data)
+ *   constraints = count *(kind [chars | count *(string)] min max)
+ *   patterns    = count *(template score count *(token) count *(position constraint))
+ * </pre>
+ *
+ * <p>Strings, tokens and constraints are shared between patterns, so each distinct literal text,
+ * variable or constraint is only stored and loaded once. Stores written with the first version
+ * of the format, which has no constraints, can still be read.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class URIPatternStore {
+
+  /**
+   * The bytes at the start of every stored list of patterns.
+   */
+  private static final byte[] MAGIC = { 'F', 'U', 'R', 'I' };
+
+  /**
+   * The version of the format.
+   */
+  private static final int VERSION = 2;
+
+  /**
+   * Token kind for literal tokens.
+   */
+  private static final int LITERAL = 0;
+
+  /**
+   * Token kind for variable tokens.
+   */
+  private static final int VARIABLE = 1;
+
+  /**
+   * Token kind for PageSeeder operator tokens.
+   */
+  private static final int OPERATOR_PS = 2;
+
+  /**
+   * Token kind for draft operator tokens.
+   */
+  private static final int OPERATOR_DX = 3;
+
+  /**
+   * Constraint kind for constraints on the length only.
+   */
+  private static final int ANY_CHARS = 0;
+
+  /**
+   * Constraint kind for constraints on the characters.
+   */
+  private static final int CHARS = 1;
+
+  /**
+   * Constraint kind for constraints on the values.
+   */
+  private static final int VALUES = 2;
+
+  /**
+   * Prevents creation of instances.
+   */
+  private URIPatternStore() {
+  }
+
+  /**
+   * Writes the specified list of URI patterns to the output stream.
+   *
+   * <p>The output stream is flushed but not closed.
+   *
+   * @param patterns The URI patterns to write.
+   * @param out      The output stream.
+   *
+   * @throws IOException If thrown by the output stream.
+   * @throws IllegalArgumentException If a pattern contains a token that cannot be stored.
+   */
+  public static void write(List<URIPattern> patterns, OutputStream out) throws IOException {
+    Map<String, Integer> strings = new HashMap<String, Integer>();
+    List<String> stringList = new ArrayList<String>();
+    Map<String, Integer> tokens = new HashMap<String, Integer>();
+    List<Token> tokenList = new ArrayList<Token>();
+    Map<VariableConstraint, Integer> constraints = new HashMap<VariableConstraint, Integer>();
+    List<VariableConstraint> constraintList = new ArrayList<VariableConstraint>();
+    // collect the shared strings, tokens and constraints
+    for (URIPattern p : patterns) {
+      index(p.toString(), strings, stringList);
+      for (Token t : p.tokens()) {
+        String key = key(t);
+        if (!tokens.containsKey(key)) {
+          tokens.put(key, tokenList.size());
+          tokenList.add(t);
+          collect(t, strings, stringList);
+        }
+      }
+      if (p.isConstrained()) {
+        for (VariableConstraint c : p.constraints()) {
+          if (c != null && !constraints.containsKey(c)) {
+            constraints.put(c, constraintList.size());
+            constraintList.add(c);
+            collect(c, strings, stringList);
+          }
+        }
+      }
+    }
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.write(MAGIC);
+    data.writeByte(VERSION);
+    writeNumber(data, stringList.size());
+    for (String s : stringList) {
+      data.writeUTF(s);
+    }
+    writeNumber(data, tokenList.size());
+    for (Token t : tokenList) {
+      writeToken(data, t, strings);
+    }
+    writeNumber(data, constraintList.size());
+    for (VariableConstraint c : constraintList) {
+      writeConstraint(data, c, strings);
+    }
+    writeNumber(data, patterns.size());
+    for (URIPattern p : patterns) {
+      writeNumber(data, strings.get(p.toString()));
+      writeNumber(data, p.score());
+      List<Token> ts = p.tokens();
+      writeNumber(data, ts.size());
+      for (Token t : ts) {
+        writeNumber(data, tokens.get(key(t)));
+      }
+      VariableConstraint[] cs = p.isConstrained() ? p.constraints() : new VariableConstraint[0];
+      int count = 0;
+      for (VariableConstraint c : cs) {
+        if (c != null) count++;
+      }
+      writeNumber(data, count);
+      for (int i = 0; i < cs.length; i++) {
+        if (cs[i] == null) continue;
+        writeNumber(data, i);
+        writeNumber(data, constraints.get(cs[i]));
+      }
+    }
+    data.flush();
+  }
+
+  /**
+   * Reads a list of URI patterns from the specified input stream.
+   *
+   * <p>The input stream is not closed.
+   *
+   * @param in The input stream.
+   *
+   * @return The list of URI patterns in the same order as they were written.
+   *
+   * @throws IOException If thrown by the input stream or if the data is not in the expected format.
+   */
+  public static List<URIPattern> read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+    if (!readMagic(data))
+      throw new IOException("Not a stored list of URI patterns");
+    int version = data.readUnsignedByte();
+    if (version != 1 && version != VERSION)
+      throw new IOException("Unsupported version of stored URI patterns: "+version);
+    // shared strings
+    String[] strings = new String[readNumber(data)];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = data.readUTF();
+    }
+    // shared tokens
+    Map<String, VariableType> types = new HashMap<String, VariableType>();
+    Token[] tokens = new Token[readNumber(data)];
+    for (int i = 0; i < tokens.length; i++) {
+      tokens[i] = readToken(data, strings, types);
+    }
+    // shared constraints, since version 2
+    VariableConstraint[] constraints = new VariableConstraint[version > 1 ? readNumber(data) : 0];
+    for (int i = 0; i < constraints.length; i++) {
+      constraints[i] = readConstraint(data, strings);
+    }
+    // patterns
+    int count = readNumber(data);
+    List<URIPattern> patterns = new ArrayList<URIPattern>(count);
+    for (int i = 0; i < count; i++) {
+      String template = readIndexed(data, strings);
+      int score = readNumber(data);
+      int size = readNumber(data);
+      List<Token> ts = new ArrayList<Token>(size);
+      for (int j = 0; j < size; j++) {
+        ts.add(readIndexed(data, tokens));
+      }
+      VariableConstraint[] cs = null;
+      int constrained = version > 1 ? readNumber(data) : 0;
+      for (int j = 0; j < constrained; j++) {
+        int position = readNumber(data);
+        if (position >= size)
+          throw new IOException("Invalid token position: "+position);
+        if (cs == null) {
+          cs = new VariableConstraint[size];
+        }
+        cs[position] = readIndexed(data, constraints);
+      }
+      patterns.add(new URIPattern(template, ts, score, cs));
+    }
+    return patterns;
+  }
+
+  /**
+   * Indicates whether the specified file contains a stored list of URI patterns.
+   *
+   * @param file The file to check.
+   *
+   * @return <code>true</code> if the file starts with the bytes expected for this format;
+   *         <code>false</code> otherwise.
+   *
+   * @throws IOException If thrown while reading the file.
+   */
+  public static boolean isStore(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      return readMagic(new DataInputStream(in));
+    } finally {
+      in.close();
+    }
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Reads and checks the magic bytes at the start of the stream.
+   */
+  private static boolean readMagic(DataInputStream data) throws IOException {
+    for (byte b : MAGIC) {
+      int c = data.read();
+      if (c != b) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the key used to share identical tokens.
+   *
+   * <p>Token equality is not sufficient as it ignores the type and form of variables.
+   */
+  private static String key(Token t) {
+    StringBuffer key = new StringBuffer();
+    key.append(t.getClass().getSimpleName()).append(' ').append(t.expression());
+    if (t instanceof TokenVariable) {
+      Variable v = ((TokenVariable)t).getVariable();
+      key.append(' ').append(v.type()).append(' ').append(v.form());
+    } else if (t instanceof TokenOperator) {
+      for (Variable v : ((TokenOperator)t).variables()) {
+        key.append(' ').append(v.type()).append(' ').append(v.form());
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Collects the strings used by the specified token.
+   */
+  private static void collect(Token t, Map<String, Integer> strings, List<String> list) {
+    if (t instanceof TokenLiteral) {
+      index(t.expression(), strings, list);
+    } else if (t instanceof TokenVariable) {
+      collect(((TokenVariable)t).getVariable(), strings, list);
+    } else if (t instanceof TokenOperatorPS || t instanceof TokenOperatorDX) {
+      for (Variable v : ((TokenOperator)t).variables()) {
+        collect(v, strings, list);
+      }
+    } else
+      throw new IllegalArgumentException("Unable to store token "+t.getClass().getName());
+  }
+
+  /**
+   * Collects the strings used by the specified variable.
+   */
+  private static void collect(Variable v, Map<String, Integer> strings, List<String> list) {
+    index(v.name(), strings, list);
+    index(v.defaultValue(), strings, list);
+    if (v.type() != null) {
+      index(v.type().getName(), strings, list);
+    }
+  }
+
+  /**
+   * Collects the strings used by the specified constraint.
+   */
+  private static void collect(VariableConstraint c, Map<String, Integer> strings, List<String> list) {
+    String[] values = c.allowedValues();
+    if (values != null) {
+      for (String value : values) {
+        index(value, strings, list);
+      }
+    }
+  }
+
+  /**
+   * Adds the string to the list of shared strings if it is not already there.
+   */
+  private static void index(String s, Map<String, Integer> strings, List<String> list) {
+    if (!strings.containsKey(s)) {
+      strings.put(s, list.size());
+      list.add(s);
+    }
+  }
+
+  /**
+   * Writes the specified token.
+   */
+  private static void writeToken(DataOutputStream data, Token t, Map<String, Integer> strings)
+      throws IOException {
+    if (t instanceof TokenLiteral) {
+      data.writeByte(LITERAL);
+      writeNumber(data, strings.get(t.expression()));
+    } else if (t instanceof TokenVariable) {
+      data.writeByte(VARIABLE);
+      writeVariable(data, ((TokenVariable)t).getVariable(), strings);
+    } else {
+      List<Variable> vars;
+      if (t instanceof TokenOperatorPS) {
+        data.writeByte(OPERATOR_PS);
+        data.writeChar(((TokenOperatorPS)t).operator().character());
+        vars = ((TokenOperatorPS)t).variables();
+      } else {
+        data.writeByte(OPERATOR_DX);
+        data.writeChar(((TokenOperatorDX)t).operator().character());
+        vars = ((TokenOperatorDX)t).variables();
+      }
+      writeNumber(data, vars.size());
+      for (Variable v : vars) {
+        writeVariable(data, v, strings);
+      }
+    }
+  }
+
+  /**
+   * Reads a token.
+   */
+  private static Token readToken(DataInputStream data, String[] strings, Map<String, VariableType> types)
+      throws IOException {
+    int kind = data.readUnsignedByte();
+    switch (kind) {
+      case LITERAL:
+        return new TokenLiteral(readIndexed(data, strings));
+      case VARIABLE:
+        return new TokenVariable(readVariable(data, strings, types));
+      case OPERATOR_PS:
+      case OPERATOR_DX:
+        char c = data.readChar();
+        int count = readNumber(data);
+        List<Variable> vars = new ArrayList<Variable>(count);
+        for (int i = 0; i < count; i++) {
+          vars.add(readVariable(data, strings, types));
+        }
+        if (kind == OPERATOR_PS) {
+          TokenOperatorPS.Operator op = TokenOperatorPS.toOperator(c);
+          if (op == null)
+            throw new IOException("Unknown operator: "+c);
+          return new TokenOperatorPS(op, vars);
+        } else {
+          TokenOperatorDX.Operator op = TokenOperatorDX.toOperator(c);
+          if (op == null || op.character() != c)
+            throw new IOException("Unknown operator: "+c);
+          return new TokenOperatorDX(op, vars);
+        }
+      default:
+        throw new IOException("Unknown token kind: "+kind);
+    }
+  }
+
+  /**
+   * Writes the specified variable.
+   */
+  private static void writeVariable(DataOutputStream data, Variable v, Map<String, Integer> strings)
+      throws IOException {
+    writeNumber(data, strings.get(v.name()));
+    writeNumber(data, strings.get(v.defaultValue()));
+    // zero is used when the variable is untyped
+    writeNumber(data, v.type() != null ? strings.get(v.type().getName()) + 1 : 0);
+    data.writeByte(v.form().ordinal());
+  }
+
+  /**
+   * Reads a variable.
+   */
+  private static Variable readVariable(DataInputStream data, String[] strings, Map<String, VariableType> types)
+      throws IOException {
+    String name = readIndexed(data, strings);
+    String def = readIndexed(data, strings);
+    int type = readNumber(data);
+    if (type > strings.length)
+      throw new IOException("Invalid string index: "+(type - 1));
+    int form = data.readUnsignedByte();
+    if (Reserved.WILDCARD.symbol().equals(name))
+      return new Variable(Reserved.WILDCARD);
+    VariableType vt = null;
+    if (type > 0) {
+      String t = strings[type - 1];
+      vt = types.get(t);
+      if (vt == null) {
+        vt = new VariableType(t);
+        types.put(t, vt);
+      }
+    }
+    Form[] forms = Form.values();
+    if (form >= forms.length)
+      throw new IOException("Unknown variable form: "+form);
+    return new Variable(name, def, vt, forms[form]);
+  }
+
+  /**
+   * Writes the specified constraint.
+   */
+  private static void writeConstraint(DataOutputStream data, VariableConstraint c, Map<String, Integer> strings)
+      throws IOException {
+    boolean[] chars = c.allowedChars();
+    String[] values = c.allowedValues();
+    if (values != null) {
+      data.writeByte(VALUES);
+      writeNumber(data, values.length);
+      for (String value : values) {
+        writeNumber(data, strings.get(value));
+      }
+    } else if (chars != null) {
+      data.writeByte(CHARS);
+      // one bit for each ASCII character
+      for (int i = 0; i < 128; i += 8) {
+        int b = 0;
+        for (int j = 0; j < 8; j++) {
+          if (chars[i + j]) b |= 1 << j;
+        }
+        data.writeByte(b);
+      }
+    } else {
+      data.writeByte(ANY_CHARS);
+    }
+    writeNumber(data, c.minLength());
+    // zero is used when the length is unbounded
+    writeNumber(data, c.maxLength() != Integer.MAX_VALUE ? c.maxLength() + 1 : 0);
+  }
+
+  /**
+   * Reads a constraint.
+   */
+  private static VariableConstraint readConstraint(DataInputStream data, String[] strings) throws IOException {
+    int kind = data.readUnsignedByte();
+    boolean[] chars = null;
+    String[] values = null;
+    switch (kind) {
+      case ANY_CHARS:
+        break;
+      case CHARS:
+        chars = new boolean[128];
+        for (int i = 0; i < 128; i += 8) {
+          int b = data.readUnsignedByte();
+          for (int j = 0; j < 8; j++) {
+            chars[i + j] = (b & (1 << j)) != 0;
+          }
+        }
+        break;
+      case VALUES:
+        values = new String[readNumber(data)];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = readIndexed(data, strings);
+        }
+        break;
+      default:
+        throw new IOException("Unknown constraint kind: "+kind);
+    }
+    int min = readNumber(data);
+    int max = readNumber(data);
+    return VariableConstraint.of(chars, min, max > 0 ? max - 1 : Integer.MAX_VALUE, values);
+  }
+
+  /**
+   * Writes an unsigned number using as few bytes as possible.
+   */
+  private static void writeNumber(DataOutputStream data, int n) throws IOException {
+    while ((n & ~0x7F) != 0) {
+      data.writeByte((n & 0x7F) | 0x80);
+      n >>>= 7;
+    }
+    data.writeByte(n);
+  }
+
+  /**
+   * Reads an unsigned number written by {@link #writeNumber(DataOutputStream, int)}.
+   */
+  private static int readNumber(DataInputStream data) throws IOException {
+    int n = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = data.readUnsignedByte();
+      n |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        // numbers are never negative
+        if (n < 0) break;
+        return n;
+      }
+    }
+    throw new IOException("Malformed number");
+  }
+
+  /**
+   * Reads an index and returns the corresponding element of the array.
+   *
+   * @throws IOException If the index is out of range.
+   */
+  private static <T> T readIndexed(DataInputStream data, T[] array) throws IOException {
+    int index = readNumber(data);
+    if (index >= array.length)
+      throw new IOException("Invalid index: "+index+" for "+array.length+" elements");
+    return array[index];
+  }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rejects URIs which cannot match any of a list of URI patterns without matching the patterns.
+ *
+ * <p>The filter is compiled from the tokens of the patterns:
+ * <ul>
+ *   <li>the URI must be within the minimum and maximum length of the patterns;</li>
+ *   <li>the first segment of the URI, that is the text up to the first '/', '?' or '#' after the
+ *   first character, is looked up in a Bloom filter of the first segments of the patterns which
+ *   start with a literal including their first segment;</li>
+ *   <li>the other patterns are checked individually: the URI must have the length and number of
+ *   '/' the pattern requires and contain its literal text in order.</li>
+ * </ul>
+ *
+ * <p>The filter never rejects a URI matching one of the patterns, but a URI it accepts may not
+ * match any pattern. Instances of this class are immutable.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+final class URIPrefilter {
+
+  /**
+   * The number of bits in the Bloom filter for each first segment.
+   */
+  private static final int BITS_PER_KEY = 16;
+
+  /**
+   * The Bloom filter of the first segments.
+   */
+  private final long[] _bits;
+
+  /**
+   * The mask to compute the index of a bit in the Bloom filter.
+   */
+  private final int _mask;
+
+  /**
+   * The minimum length of a URI matching any pattern.
+   */
+  private final int _minLength;
+
+  /**
+   * The maximum length of a URI matching any pattern.
+   */
+  private final int _maxLength;
+
+  /**
+   * The patterns whose first segment is not known, checked individually.
+   */
+  private final Check[] _checks;
+
+  /**
+   * Compiles the filter for the specified patterns.
+   *
+   * @param patterns The patterns.
+   */
+  URIPrefilter(List<URIPattern> patterns) {
+    List<Check> checks = new ArrayList<Check>();
+    List<String> keys = new ArrayList<String>();
+    int min = Integer.MAX_VALUE;
+    int max = 0;
+    for (URIPattern pattern : patterns) {
+      Check check = new Check(pattern.tokens());
+      min = Math.min(min, check._minLength);
+      max = Math.max(max, check._maxLength);
+      String key = key(pattern.tokens());
+      if (key != null) {
+        keys.add(key);
+      } else {
+        checks.add(check);
+      }
+    }
+    int size = 64;
+    while (size < keys.size() * BITS_PER_KEY && size < (1 << 30)) {
+      size *= 2;
+    }
+    this._bits = new long[size / 64];
+    this._mask = size - 1;
+    for (String key : keys) {
+      int h = hash(key, key.length());
+      this._bits[(h & this._mask) >>> 6] |= 1L << h;
+      int g = rehash(h);
+      this._bits[(g & this._mask) >>> 6] |= 1L << g;
+    }
+    this._minLength = min;
+    this._maxLength = max;
+    this._checks = checks.toArray(new Check[checks.size()]);
+  }
+
+  /**
+   * Indicates whether the URI may match one of the patterns.
+   *
+   * @param uri The URI to test.
+   *
+   * @return <code>false</code> if the URI cannot match any of the patterns;
+   *         <code>true</code> otherwise.
+   */
+  boolean mayMatch(String uri) {
+    int length = uri.length();
+    if (length < this._minLength || length > this._maxLength) return false;
+    int h = hash(uri, end(uri));
+    if ((this._bits[(h & this._mask) >>> 6] & (1L << h)) != 0) {
+      int g = rehash(h);
+      if ((this._bits[(g & this._mask) >>> 6] & (1L << g)) != 0) return true;
+    }
+    if (this._checks.length == 0) return false;
+    int slashes = count(uri, '/');
+    for (Check check : this._checks) {
+      if (check.mayMatch(uri, slashes)) return true;
+    }
+    return false;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Returns the first segment of the pattern if it starts with a literal including the first
+   * segment or if it has only literal tokens.
+   *
+   * @return the first segment or <code>null</code> if it is not known.
+   */
+  private static String key(List<Token> tokens) {
+    StringBuilder text = new StringBuilder();
+    for (Token t : tokens) {
+      if (!(t instanceof TokenLiteral)) {
+        String prefix = text.toString();
+        int end = end(prefix);
+        return end < prefix.length() ? prefix.substring(0, end) : null;
+      }
+      text.append(t.expression());
+    }
+    String literal = text.toString();
+    return literal.substring(0, end(literal));
+  }
+
+  /**
+   * Returns the end of the first segment of the URI.
+   */
+  private static int end(String uri) {
+    for (int i = 1; i < uri.length(); i++) {
+      char c = uri.charAt(i);
+      if (c == '/' || c == '?' || c == '#') return i;
+    }
+    return uri.length();
+  }
+
+  /**
+   * Returns the hash of the text up to the specified index.
+   */
+  private static int hash(String s, int end) {
+    int h = 0;
+    for (int i = 0; i < end; i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns a second hash for the Bloom filter derived from the first one.
+   */
+  private static int rehash(int h) {
+    h *= 0x85EBCA6B;
+    return h ^ (h >>> 13);
+  }
+
+  /**
+   * Returns the number of occurrences of the character in the string.
+   */
+  private static int count(String s, char c) {
+    int count = 0;
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) == c) count++;
+    }
+    return count;
+  }
+
+  /**
+   * The conditions a URI must satisfy to match a pattern.
+   */
+  private static final class Check {
+
+    /** The literal text of the pattern in order, merged when adjacent */
+    private final String[] _literals;
+
+    /** Whether the pattern starts with the first literal */
+    private final boolean _start;
+
+    /** Whether the pattern ends with the last literal */
+    private final boolean _end;
+
+    /** The minimum length of a matching URI */
+    private final int _minLength;
+
+    /** The maximum length of a matching URI */
+    private final int _maxLength;
+
+    /** The minimum number of '/' in a matching URI */
+    private final int _minSlashes;
+
+    /** Whether the number of '/' is exactly the minimum */
+    private final boolean _exactSlashes;
+
+    Check(List<Token> tokens) {
+      List<String> literals = new ArrayList<String>();
+      StringBuilder text = new StringBuilder();
+      int length = 0;
+      boolean bounded = true;
+      boolean exact = true;
+      for (Token t : tokens) {
+        if (t instanceof TokenLiteral) {
+          text.append(t.expression());
+          continue;
+        }
+        if (text.length() > 0) {
+          literals.add(text.toString());
+          length += text.length();
+          text.setLength(0);
+        }
+        bounded = false;
+        // variable values are at least one character without '/'
+        if (t instanceof TokenVariable) {
+          length++;
+        } else {
+          exact = false;
+        }
+      }
+      if (text.length() > 0) {
+        literals.add(text.toString());
+        length += text.length();
+      }
+      int slashes = 0;
+      for (String literal : literals) {
+        slashes += count(literal, '/');
+      }
+      this._literals = literals.toArray(new String[literals.size()]);
+      this._start = !tokens.isEmpty() && tokens.get(0) instanceof TokenLiteral;
+      this._end = !tokens.isEmpty() && tokens.get(tokens.size() - 1) instanceof TokenLiteral;
+      this._minLength = length;
+      this._maxLength = bounded ? length : Integer.MAX_VALUE;
+      this._minSlashes = slashes;
+      this._exactSlashes = exact;
+    }
+
+    /**
+     * Indicates whether the URI may match the pattern.
+     */
+    boolean mayMatch(String uri, int slashes) {
+      int length = uri.length();
+      if (length < this._minLength || length > this._maxLength) return false;
+      if (slashes < this._minSlashes || (this._exactSlashes && slashes != this._minSlashes)) return false;
+      String[] literals = this._literals;
+      int from = 0;
+      int to = length;
+      int first = 0;
+      int last = literals.length;
+      if (this._start && last > 0) {
+        if (!uri.startsWith(literals[0])) return false;
+        from = literals[0].length();
+        first = 1;
+      }
+      if (this._end && last > first) {
+        if (!uri.endsWith(literals[last - 1]) || length - literals[last - 1].length() < from) return false;
+        to = length - literals[last - 1].length();
+        last--;
+      }
+      for (int i = first; i < last; i++) {
+        int at = uri.indexOf(literals[i], from);
+        if (at < 0 || at + literals[i].length() > to) return false;
+        from = at + literals[i].length();
+      }
+      return true;
+    }
+  }
+
+}
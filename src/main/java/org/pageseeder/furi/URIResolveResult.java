@@ -15,7 +15,10 @@
  */
 package org.pageseeder.furi;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -23,8 +26,18 @@ import java.util.Set;
 /**
  * Holds the results of a URI resolver.
  *
+ * <p>A result can be reused for several URIs: use the no-argument constructor, then pass the
+ * result to {@link URIResolver#resolve(String, URIPattern, VariableBinder, URIResolveResult)}
+ * which resets it first. A result is not thread-safe, so it is typically reused per thread or
+ * per connection. Once the internal arrays have grown to fit the patterns, resolving into a
+ * reused result only allocates the variable values.
+ *
+ * <p>The values of variables bound to the default resolver or to a
+ * {@link VariableResolverPrimitive} are not decoded nor resolved until they are requested:
+ * the typed accessors such as {@link #getInt(String)} read these values directly from the URI.
+ *
  * @author Christophe Lauret
- * @version 5 February 2010
+ * @version 19 October 2026
  */
 public class URIResolveResult implements ResolvedVariables {
 
@@ -39,14 +52,62 @@ public class URIResolveResult implements ResolvedVariables {
   private Status _status = Status.UNRESOLVED;
 
   /**
-   * Maps variable names to their corresponding resolved objects.
+   * The names of the variables which have been resolved.
+   */
+  private String[] _names = new String[4];
+
+  /**
+   * The resolved object for each variable name.
+   */
+  private Object[] _objects = new Object[4];
+
+  /**
+   * The list of resolved objects for variables resolved from multiple values.
+   */
+  private List<?>[] _lists = new List<?>[4];
+
+  /**
+   * The start and end offsets in the URI of the value of each variable which is resolved on
+   * demand, the start is <code>-1</code> for other variables.
    */
-  private final Map<String, Object> values = new HashMap<String, Object>();
+  private int[] _ranges = new int[8];
+
+  /**
+   * The resolver for each variable which has not been resolved yet.
+   */
+  private VariableResolver[] _deferred = new VariableResolver[4];
+
+  /**
+   * The URI that the values of variables resolved on demand are taken from.
+   */
+  private String _uri;
+
+  /**
+   * The number of variables which have been resolved.
+   */
+  private int _size;
 
   /**
    * The URI Pattern that was used to produce this result.
    */
-  private final URIPattern _pattern;
+  private URIPattern _pattern;
+
+  /**
+   * Token offsets reused by the resolver.
+   */
+  private int[] _offsets = new int[0];
+
+  /**
+   * Values mapped to variables reused by the resolver.
+   */
+  private Map<Variable, Object> _scratch;
+
+  /**
+   * Constructs an empty result which can be reused with any pattern.
+   */
+  public URIResolveResult() {
+    this._pattern = null;
+  }
 
   /**
    * Constructs an instance of this class with fields initialised to null.
@@ -59,14 +120,167 @@ public class URIResolveResult implements ResolvedVariables {
    * {@inheritDoc}
    */
   public Set<String> names() {
-    return this.values.keySet();
+    Set<String> names = new HashSet<String>(this._size * 2);
+    for (int i = 0; i < this._size; i++) {
+      names.add(this._names[i]);
+    }
+    return Collections.unmodifiableSet(names);
   }
 
   /**
    * {@inheritDoc}
+   *
+   * <p>If the variable was resolved from multiple values, such as a repeated query parameter,
+   * this method returns the last one; use {@link #getList(String)} to get all the objects.
    */
   public Object get(String name) {
-    return this.values.get(name);
+    int i = indexOf(name);
+    return i >= 0 ? object(i) : null;
+  }
+
+  /**
+   * Returns all the objects corresponding to the specified variable name.
+   *
+   * <p>Variables resolved from multiple values, such as repeated query parameters or path
+   * segments for a list variable, return an object for each value in order; other variables
+   * return a list containing their only object.
+   *
+   * @param name The name of the variable.
+   *
+   * @return The objects corresponding to the specified variable (never <code>null</code>).
+   */
+  @SuppressWarnings("unchecked")
+  public List<Object> getList(String name) {
+    int i = indexOf(name);
+    if (i < 0)
+      return Collections.emptyList();
+    if (this._lists[i] != null)
+      return (List<Object>)this._lists[i];
+    return Collections.singletonList(object(i));
+  }
+
+  /**
+   * Returns all the objects corresponding to the specified variable name as a typed list.
+   *
+   * @param name The name of the variable.
+   * @param type The class of the objects.
+   *
+   * @return The objects corresponding to the specified variable (never <code>null</code>).
+   *
+   * @throws ClassCastException If any of the objects is not an instance of the specified class.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> List<T> getList(String name, Class<T> type) {
+    List<Object> list = getList(name);
+    for (Object o : list) {
+      if (o != null && !type.isInstance(o))
+        throw new ClassCastException("Variable "+name+" resolved to "+o.getClass().getName()+" not "+type.getName());
+    }
+    return (List<T>)(List<?>)list;
+  }
+
+  /**
+   * Returns the value of the specified variable as an <code>int</code>.
+   *
+   * <p>The value is parsed directly from the URI if the variable was resolved on demand,
+   * otherwise the resolved object must be an integral number or its decimal representation.
+   *
+   * @param name The name of the variable.
+   *
+   * @return The value of the variable.
+   *
+   * @throws NumberFormatException If the variable has no value or if its value is not an
+   *         <code>int</code>.
+   */
+  public int getInt(String name) {
+    return (int)toLong(name, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the value of the specified variable as an <code>int</code>.
+   *
+   * @param name         The name of the variable.
+   * @param defaultValue The value to return if the variable has no value.
+   *
+   * @return The value of the variable or the default value.
+   *
+   * @throws NumberFormatException If the value of the variable is not an <code>int</code>.
+   */
+  public int getInt(String name, int defaultValue) {
+    return hasValue(indexOf(name)) ? getInt(name) : defaultValue;
+  }
+
+  /**
+   * Returns the value of the specified variable as a <code>long</code>.
+   *
+   * <p>The value is parsed directly from the URI if the variable was resolved on demand,
+   * otherwise the resolved object must be an integral number or its decimal representation.
+   *
+   * @param name The name of the variable.
+   *
+   * @return The value of the variable.
+   *
+   * @throws NumberFormatException If the variable has no value or if its value is not a
+   *         <code>long</code>.
+   */
+  public long getLong(String name) {
+    return toLong(name, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns the value of the specified variable as a <code>long</code>.
+   *
+   * @param name         The name of the variable.
+   * @param defaultValue The value to return if the variable has no value.
+   *
+   * @return The value of the variable or the default value.
+   *
+   * @throws NumberFormatException If the value of the variable is not a <code>long</code>.
+   */
+  public long getLong(String name, long defaultValue) {
+    return hasValue(indexOf(name)) ? getLong(name) : defaultValue;
+  }
+
+  /**
+   * Returns the value of the specified variable as a <code>boolean</code>.
+   *
+   * <p>The value is parsed directly from the URI if the variable was resolved on demand,
+   * otherwise the resolved object must be a <code>Boolean</code> or "true" or "false" ignoring
+   * case.
+   *
+   * @param name The name of the variable.
+   *
+   * @return The value of the variable.
+   *
+   * @throws IllegalArgumentException If the variable has no value or if its value is not a
+   *         <code>boolean</code>.
+   */
+  public boolean getBoolean(String name) {
+    int i = indexOf(name);
+    if (!hasValue(i))
+      throw new IllegalArgumentException("Variable "+name+" has no value");
+    Object o = this._ranges[i*2] >= 0 && !isEscaped(i) ? null : object(i);
+    if (o instanceof Boolean) return ((Boolean)o).booleanValue();
+    String s = o != null ? o.toString() : this._uri;
+    int start = o != null ? 0 : this._ranges[i*2];
+    int end = o != null ? s.length() : this._ranges[i*2+1];
+    if (!VariableResolverPrimitive.isBoolean(s, start, end))
+      throw new IllegalArgumentException("Variable "+name+" is not a boolean: "+s.substring(start, end));
+    return VariableResolverPrimitive.toBoolean(s, start, end);
+  }
+
+  /**
+   * Returns the value of the specified variable as a <code>boolean</code>.
+   *
+   * @param name         The name of the variable.
+   * @param defaultValue The value to return if the variable has no value.
+   *
+   * @return The value of the variable or the default value.
+   *
+   * @throws IllegalArgumentException If the value of the variable is not a <code>boolean</code>.
+   */
+  public boolean getBoolean(String name, boolean defaultValue) {
+    return hasValue(indexOf(name)) ? getBoolean(name) : defaultValue;
   }
 
   /**
@@ -87,6 +301,16 @@ public class URIResolveResult implements ResolvedVariables {
     return this._pattern;
   }
 
+  /**
+   * Clears this result so that it can be reused.
+   *
+   * <p>After this method is invoked, the result has no pattern, no variables and its status is
+   * <code>UNRESOLVED</code>.
+   */
+  public void reset() {
+    reset(null);
+  }
+
 // protected methods --------------------------------------------------------
 
   /**
@@ -96,7 +320,27 @@ public class URIResolveResult implements ResolvedVariables {
    * @param o    The corresponding object.
    */
   protected void put(String name, Object o) {
-    this.values.put(name, o);
+    int i = slot(name);
+    this._objects[i] = o;
+    this._lists[i] = null;
+    this._deferred[i] = null;
+    this._ranges[i*2] = -1;
+  }
+
+  /**
+   * Puts the objects corresponding to a variable resolved from multiple values in the results.
+   *
+   * <p>The last object is also available using {@link #get(String)}.
+   *
+   * @param name    The name of the variable.
+   * @param objects The corresponding objects.
+   */
+  protected void putList(String name, List<Object> objects) {
+    int i = slot(name);
+    this._objects[i] = objects.isEmpty() ? null : objects.get(objects.size() - 1);
+    this._lists[i] = Collections.unmodifiableList(objects);
+    this._deferred[i] = null;
+    this._ranges[i*2] = -1;
   }
 
   /**
@@ -108,4 +352,183 @@ public class URIResolveResult implements ResolvedVariables {
     this._status = status;
   }
 
+// package private methods used by the resolver -----------------------------
+
+  /**
+   * Clears this result and sets the pattern it is produced from.
+   *
+   * @param pattern The URI pattern used to produce this result.
+   */
+  void reset(URIPattern pattern) {
+    for (int i = 0; i < this._size; i++) {
+      this._names[i] = null;
+      this._objects[i] = null;
+      this._lists[i] = null;
+      this._deferred[i] = null;
+    }
+    this._size = 0;
+    this._uri = null;
+    this._status = Status.UNRESOLVED;
+    this._pattern = pattern;
+    if (this._scratch != null) {
+      this._scratch.clear();
+    }
+  }
+
+  /**
+   * Records the value of a variable in the URI to resolve it on demand.
+   *
+   * <p>The value must be resolvable using the specified resolver.
+   *
+   * @param name     The name of the variable.
+   * @param uri      The URI.
+   * @param start    The start of the value in the URI (inclusive).
+   * @param end      The end of the value in the URI (exclusive).
+   * @param resolver The resolver to use when the object is requested.
+   */
+  void putRange(String name, String uri, int start, int end, VariableResolver resolver) {
+    int i = slot(name);
+    this._objects[i] = null;
+    this._lists[i] = null;
+    this._deferred[i] = resolver;
+    this._ranges[i*2] = start;
+    this._ranges[i*2+1] = end;
+    this._uri = uri;
+  }
+
+  /**
+   * Indicates whether the specified variable has a value without resolving it.
+   *
+   * @param name The name of the variable.
+   *
+   * @return <code>true</code> if the variable has a value or a value to resolve on demand.
+   */
+  boolean hasValue(String name) {
+    return hasValue(indexOf(name));
+  }
+
+  /**
+   * Returns an array to record token offsets, at least as large as the specified size.
+   *
+   * @param size The minimum size of the array.
+   *
+   * @return The offsets array reused by this result.
+   */
+  int[] offsets(int size) {
+    if (this._offsets.length < size) {
+      this._offsets = new int[size];
+    }
+    return this._offsets;
+  }
+
+  /**
+   * Returns an empty map to record the values mapped to variables.
+   *
+   * @return The map reused by this result.
+   */
+  Map<Variable, Object> scratch() {
+    if (this._scratch == null) {
+      this._scratch = new HashMap<Variable, Object>();
+    } else {
+      this._scratch.clear();
+    }
+    return this._scratch;
+  }
+
+// private helpers ----------------------------------------------------------
+
+  /**
+   * Returns the object for the variable at the specified index, resolving it if necessary.
+   */
+  private Object object(int i) {
+    VariableResolver resolver = this._deferred[i];
+    if (resolver != null) {
+      String value = this._uri.substring(this._ranges[i*2], this._ranges[i*2+1]);
+      this._objects[i] = resolver.resolve(URICoder.decode(value));
+      this._deferred[i] = null;
+    }
+    return this._objects[i];
+  }
+
+  /**
+   * Indicates whether the variable at the specified index has a value.
+   */
+  private boolean hasValue(int i) {
+    return i >= 0 && (this._deferred[i] != null || this._objects[i] != null);
+  }
+
+  /**
+   * Indicates whether the value of the variable at the specified index contains escape sequences.
+   */
+  private boolean isEscaped(int i) {
+    int escape = this._uri.indexOf('%', this._ranges[i*2]);
+    return escape >= 0 && escape < this._ranges[i*2+1];
+  }
+
+  /**
+   * Returns the value of the specified variable as a number within the specified bounds.
+   */
+  private long toLong(String name, long min, long max) {
+    int i = indexOf(name);
+    if (!hasValue(i))
+      throw new NumberFormatException("Variable "+name+" has no value");
+    Object o = this._ranges[i*2] >= 0 && !isEscaped(i) ? null : object(i);
+    if (o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte) {
+      long n = ((Number)o).longValue();
+      if (n >= min && n <= max) return n;
+    }
+    String s = o != null ? o.toString() : this._uri;
+    int start = o != null ? 0 : this._ranges[i*2];
+    int end = o != null ? s.length() : this._ranges[i*2+1];
+    if (!VariableResolverPrimitive.exists(s, start, end, min, max))
+      throw new NumberFormatException("Variable "+name+" is not "+(max == Integer.MAX_VALUE ? "an int" : "a long")+": "+s.substring(start, end));
+    return VariableResolverPrimitive.toLong(s, start, end);
+  }
+
+  /**
+   * Returns the index of the specified variable name.
+   *
+   * @param name The name of the variable.
+   *
+   * @return its index or <code>-1</code>.
+   */
+  private int indexOf(String name) {
+    for (int i = 0; i < this._size; i++) {
+      if (this._names[i].equals(name)) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index for the specified variable name, adding it if necessary.
+   *
+   * @param name The name of the variable.
+   *
+   * @return its index.
+   */
+  private int slot(String name) {
+    int i = indexOf(name);
+    if (i >= 0) return i;
+    if (this._size == this._names.length) {
+      int capacity = this._size * 2;
+      String[] names = new String[capacity];
+      Object[] objects = new Object[capacity];
+      List<?>[] lists = new List<?>[capacity];
+      VariableResolver[] deferred = new VariableResolver[capacity];
+      int[] ranges = new int[capacity*2];
+      System.arraycopy(this._names, 0, names, 0, this._size);
+      System.arraycopy(this._objects, 0, objects, 0, this._size);
+      System.arraycopy(this._lists, 0, lists, 0, this._size);
+      System.arraycopy(this._deferred, 0, deferred, 0, this._size);
+      System.arraycopy(this._ranges, 0, ranges, 0, this._size*2);
+      this._names = names;
+      this._objects = objects;
+      this._lists = lists;
+      this._deferred = deferred;
+      this._ranges = ranges;
+    }
+    this._names[this._size] = name;
+    return this._size++;
+  }
+
 }
@@ -17,10 +17,12 @@ package org.pageseeder.furi;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.pageseeder.furi.URIResolveResult.Status;
 
@@ -40,9 +42,18 @@ import org.pageseeder.furi.URIResolveResult.Status;
  *   URIResolveResult result = resolver.resolve(p);
  * </pre>
  *
+ * <p>A resolver created without a URI is stateless and can be shared by threads, the URI and the
+ * result to reuse are then specified for each invocation:
+ * <pre>
+ *   URIResolver resolver = new URIResolver();
+ *   URIResolveResult result = new URIResolveResult();
+ *
+ *   URIPattern pattern = resolver.find(uri, patterns, MatchRule.FIRST_MATCH);
+ *   resolver.resolve(uri, pattern, binder, result);
+ * </pre>
  *
  * @author Christophe Lauret
- * @version 11 June 2009
+ * @version 19 October 2026
  */
 public class URIResolver {
 
@@ -67,11 +78,32 @@ public class URIResolver {
     BEST_MATCH;
   }
 
+  /**
+   * The minimum number of patterns for the pattern list to be split between tasks.
+   *
+   * <p>Smaller lists of patterns are always matched sequentially.
+   */
+  public static final int PARALLEL_THRESHOLD = 4096;
+
+  /**
+   * The maximum number of patterns matched sequentially by each task.
+   */
+  private static final int CHUNK_SIZE = 1024;
+
   /**
    * The URI to resolve.
    */
   private String _uri;
 
+  /**
+   * Creates a new stateless resolver.
+   *
+   * <p>Only the methods which take the URI as an argument can be used with this resolver.
+   */
+  public URIResolver() {
+    this._uri = null;
+  }
+
   /**
    * Creates a new resolver for the specified URI.
    *
@@ -98,7 +130,7 @@ public class URIResolver {
    * @return The first URI pattern that matches or <code>null</code>.
    */
   public URIPattern find(List<URIPattern> patterns) {
-    return findFirst(patterns);
+    return findFirst(this._uri, patterns);
   }
 
   /**
@@ -110,9 +142,22 @@ public class URIResolver {
    * @return The first URI pattern that matches or <code>null</code>.
    */
   public URIPattern find(List<URIPattern> patterns, MatchRule rule) {
+    return find(this._uri, patterns, rule);
+  }
+
+  /**
+   * Returns the URI pattern in the list which matches the specified URI.
+   *
+   * @param uri      The URI to match.
+   * @param patterns The URI patterns available.
+   * @param rule     The rule used to select the matching patterns in case of multiple matches.
+   *
+   * @return The URI pattern that matches or <code>null</code>.
+   */
+  public URIPattern find(String uri, List<URIPattern> patterns, MatchRule rule) {
     switch (rule) {
-      case FIRST_MATCH: return findFirst(patterns);
-      case BEST_MATCH: return findBest(patterns);
+      case FIRST_MATCH: return findFirst(uri, patterns);
+      case BEST_MATCH: return findBest(uri, patterns);
     }
     return null;
   }
@@ -138,6 +183,91 @@ public class URIResolver {
     return matches;
   }
 
+  /**
+   * Returns all the URI patterns in the list which match the underlying URI using the specified
+   * pool to match chunks of the list in parallel.
+   *
+   * @see #findAll(String, List, ForkJoinPool)
+   *
+   * @param patterns The URI patterns available.
+   * @param pool     The pool to use.
+   *
+   * @return A collection of matching URI patterns in the order of the list.
+   */
+  public Collection<URIPattern> findAll(List<URIPattern> patterns, ForkJoinPool pool) {
+    return findAll(this._uri, patterns, pool);
+  }
+
+  /**
+   * Returns all the URI patterns in the list which match the specified URI using the specified
+   * pool to match chunks of the list in parallel.
+   *
+   * <p>Lists of patterns smaller than {@link #PARALLEL_THRESHOLD} are matched sequentially.
+   *
+   * @param uri      The URI to match.
+   * @param patterns The URI patterns available.
+   * @param pool     The pool to use.
+   *
+   * @return A collection of matching URI patterns in the order of the list.
+   */
+  public Collection<URIPattern> findAll(String uri, List<URIPattern> patterns, ForkJoinPool pool) {
+    if (patterns == null || patterns.size() < PARALLEL_THRESHOLD) {
+      Collection<URIPattern> matches = new ArrayList<URIPattern>();
+      if (patterns == null) return matches;
+      for (URIPattern p : patterns) {
+        if (p.match(uri)) {
+          matches.add(p);
+        }
+      }
+      return matches;
+    }
+    List<URIPattern> list = patterns instanceof RandomAccess ? patterns : new ArrayList<URIPattern>(patterns);
+    return pool.invoke(new FindAllTask(uri, list, 0, list.size()));
+  }
+
+  /**
+   * Returns the URI pattern in the list which matches the underlying URI using the specified
+   * pool to match chunks of the list in parallel.
+   *
+   * @see #find(String, List, MatchRule, ForkJoinPool)
+   *
+   * @param patterns The URI patterns available.
+   * @param rule     The rule used to select the matching patterns in case of multiple matches.
+   * @param pool     The pool to use.
+   *
+   * @return The URI pattern that matches or <code>null</code>.
+   */
+  public URIPattern find(List<URIPattern> patterns, MatchRule rule, ForkJoinPool pool) {
+    return find(this._uri, patterns, rule, pool);
+  }
+
+  /**
+   * Returns the URI pattern in the list which matches the specified URI using the specified
+   * pool to match chunks of the list in parallel.
+   *
+   * <p>The result is always the same as the sequential method: each task returns the index of
+   * its match and the indexes are reduced so that the earliest pattern is returned for
+   * <code>FIRST_MATCH</code>, and the pattern with the highest score, then the earliest, for
+   * <code>BEST_MATCH</code>.
+   *
+   * <p>Lists of patterns smaller than {@link #PARALLEL_THRESHOLD} are matched sequentially.
+   *
+   * @param uri      The URI to match.
+   * @param patterns The URI patterns available.
+   * @param rule     The rule used to select the matching patterns in case of multiple matches.
+   * @param pool     The pool to use.
+   *
+   * @return The URI pattern that matches or <code>null</code>.
+   */
+  public URIPattern find(String uri, List<URIPattern> patterns, MatchRule rule, ForkJoinPool pool) {
+    if (patterns == null || patterns.size() < PARALLEL_THRESHOLD)
+      return find(uri, patterns, rule);
+    List<URIPattern> list = patterns instanceof RandomAccess ? patterns : new ArrayList<URIPattern>(patterns);
+    AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+    int index = pool.invoke(new FindTask(uri, list, rule, 0, list.size(), first));
+    return index >= 0 ? list.get(index) : null;
+  }
+
   /**
    * Resolves the given URI pattern.
    *
@@ -159,98 +289,354 @@ public class URIResolver {
    */
   public URIResolveResult resolve(URIPattern pattern, VariableBinder binder) {
     URIResolveResult result = new URIResolveResult(pattern);
-    Matcher mx = pattern.pattern().matcher(this._uri);
-    boolean match = mx.matches();
-    // it is an error condition if there is no match
-    // or if the number of capturing groups is not the same as the number of tokens
-    if (!match || mx.groupCount() != pattern.tokens().size()) {
+    resolve(this._uri, pattern, binder, result);
+    return result;
+  }
+
+  /**
+   * Resolves the specified URI with the given URI pattern into the specified result.
+   *
+   * <p>The result is reset first, so the same result can be reused for every URI resolved by a
+   * thread. The status of the result is set to <code>ERROR</code> if the URI does not match.
+   *
+   * @param uri     The URI to resolve.
+   * @param pattern The pattern to resolve.
+   * @param binder  The variable binder.
+   * @param result  The result to reset and populate.
+   *
+   * @return The status of the result.
+   */
+  public Status resolve(String uri, URIPattern pattern, VariableBinder binder, URIResolveResult result) {
+    result.reset(pattern);
+    List<Token> tokens = pattern.tokens();
+    int[] offsets = result.offsets(tokens.size() * 2);
+    // it is an error condition if there is no match or if the tokens could not be captured
+    if (!pattern.match(uri, offsets)) {
       result.setStatus(Status.ERROR);
-      return result;
+      return Status.ERROR;
     }
-    // extracts the variable token
-    List<Token> tokens = pattern.tokens();
-    Map<Variable, Object> map = new HashMap<Variable, Object>();
-    for (int i = 0; i < mx.groupCount(); i++) {
+    // extracts the variable tokens, literal tokens have nothing to resolve
+    Status status = Status.RESOLVED;
+    Map<Variable, Object> map = null;
+    for (int i = 0; i < tokens.size(); i++) {
       Token mt = tokens.get(i);
-      String s = mx.group(i + 1);
-      mt.resolve(s, map);
+      if (mt instanceof TokenLiteral) continue;
+      // most common case: a single variable is looked up directly
+      if (mt instanceof TokenVariable) {
+        Variable var = ((TokenVariable)mt).getVariable();
+        status = worst(status, lookup(result, var, uri, offsets[i*2], offsets[i*2+1], binder));
+      } else {
+        if (map == null) map = result.scratch();
+        mt.resolve(uri.substring(offsets[i*2], offsets[i*2+1]), map);
+      }
     }
     // lookup variable values
-    lookup(result, map, binder);
-    return result;
+    if (map != null) {
+      status = worst(status, lookup(result, map, binder));
+    }
+    result.setStatus(status);
+    return status;
   }
 
-  // private helpers ----------------------------------------------------------
+  // package private helpers --------------------------------------------------
+
+  /**
+   * Extracts the decoded values of the variables from a URI using the specified pattern.
+   *
+   * @param uri     The URI to resolve.
+   * @param pattern The pattern to resolve.
+   * @param offsets The array to record the offsets of each token.
+   * @param values  Receives the values mapped to the variables.
+   *
+   * @return <code>true</code> if the URI matches; <code>false</code> otherwise.
+   */
+  static boolean extract(String uri, URIPattern pattern, int[] offsets, Map<Variable, Object> values) {
+    if (!pattern.match(uri, offsets))
+      return false;
+    values(uri, pattern, offsets, values);
+    return true;
+  }
+
+  /**
+   * Maps the values of the tokens at the specified offsets to the variables.
+   *
+   * @param uri     The URI matched by the pattern.
+   * @param pattern The pattern.
+   * @param offsets The offsets of each token recorded when matching the URI.
+   * @param values  Receives the values mapped to the variables.
+   */
+  static void values(String uri, URIPattern pattern, int[] offsets, Map<Variable, Object> values) {
+    List<Token> tokens = pattern.tokens();
+    for (int i = 0; i < tokens.size(); i++) {
+      Token mt = tokens.get(i);
+      if (mt instanceof TokenLiteral) continue;
+      mt.resolve(uri.substring(offsets[i*2], offsets[i*2+1]), values);
+    }
+  }
 
   /**
    * Lookup the variable values using the variable resolvers specified in the bindings from the
    * values mapped to the variables.
    *
-   * Set the status of the result accordingly.
+   * <p>This method does not set the status of the result.
    *
    * @param result Where the results go.
-   * @param map    Values mapped to the variables.
+   * @param values Values mapped to the variables.
    * @param binder The resolvers to use for each variable.
+   *
+   * @return The status for these variables.
    */
-  private void lookup(URIResolveResult result, Map<Variable, Object> map, VariableBinder binder) {
+  static Status lookup(URIResolveResult result, Map<Variable, Object> values, VariableBinder binder) {
     Status status = Status.RESOLVED;
-    // lookup variable values
-    for (Map.Entry<Variable, Object> entry : map.entrySet()) {
-      Variable var = entry.getKey();
-      VariableResolver r = binder.getResolver(var.name(), var.type());
-      Object value = entry.getValue();
-
-      // most common case: a string
-      if (value instanceof String) {
-        Object o = r.resolve(value.toString());
-        result.put(entry.getKey().name(), o);
+    for (Map.Entry<Variable, Object> entry : values.entrySet()) {
+      status = worst(status, lookup(result, entry.getKey(), entry.getValue(), binder));
+    }
+    return status;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Lookup the value of a variable using the variable resolver specified in the bindings.
+   *
+   * @param result Where the results go.
+   * @param var    The variable.
+   * @param value  The value mapped to the variable.
+   * @param binder The resolvers to use for each variable.
+   *
+   * @return The status for this variable.
+   */
+  private static Status lookup(URIResolveResult result, Variable var, Object value, VariableBinder binder) {
+    VariableResolver r = binder.getResolver(var.name(), var.type());
+
+    // most common case: a string
+    if (value instanceof String) {
+      Object o = r.resolve(value.toString());
+      result.put(var.name(), o);
+      return o != null ? Status.RESOLVED : Status.UNRESOLVED;
+
+    // returned an array of values, each value is resolved in order
+    } else if (value instanceof String[]) {
+      Status status = Status.RESOLVED;
+      String[] values = (String[])value;
+      List<Object> objects = new ArrayList<Object>(values.length);
+      for (String v : values) {
+        Object o = r.resolve(v);
+        objects.add(o);
         if (o == null) {
           status = Status.UNRESOLVED;
         }
+      }
+      result.putList(var.name(), objects);
+      return status;
+    }
 
-      // returned an array of values
-      } else if (value instanceof String[]) {
-        // FIXME: handle arrays
-        status = Status.ERROR;
+    // unknown object
+    return Status.ERROR;
+  }
 
-        // unknown object
-      } else {
-        status = Status.ERROR;
+  /**
+   * Lookup the value of a variable matched in the URI.
+   *
+   * <p>Values for the default resolver or a primitive resolver are only decoded and resolved
+   * when they are requested from the result.
+   *
+   * @param result Where the results go.
+   * @param var    The variable.
+   * @param uri    The URI.
+   * @param start  The start of the value in the URI (inclusive).
+   * @param end    The end of the value in the URI (exclusive).
+   * @param binder The resolvers to use for each variable.
+   *
+   * @return The status for this variable.
+   */
+  private static Status lookup(URIResolveResult result, Variable var, String uri, int start, int end, VariableBinder binder) {
+    VariableResolver r = binder.getResolver(var.name(), var.type());
+    if (r == VariableBinder.DEFAULT_RESOLVER) {
+      result.putRange(var.name(), uri, start, end, r);
+      return Status.RESOLVED;
+    } else if (r instanceof VariableResolverPrimitive) {
+      if (((VariableResolverPrimitive)r).exists(uri, start, end)) {
+        result.putRange(var.name(), uri, start, end, r);
+        return Status.RESOLVED;
       }
+      result.put(var.name(), null);
+      return Status.UNRESOLVED;
     }
-    result.setStatus(status);
+    return lookup(result, var, URICoder.decode(uri.substring(start, end)), binder);
   }
 
   /**
-   * Returns the first URI pattern in the list which matches the underlying URI.
+   * Returns the least resolved of the two statuses.
+   */
+  private static Status worst(Status a, Status b) {
+    if (a == Status.ERROR || b == Status.ERROR) return Status.ERROR;
+    if (a == Status.UNRESOLVED || b == Status.UNRESOLVED) return Status.UNRESOLVED;
+    return Status.RESOLVED;
+  }
+
+  /**
+   * A task matching a range of patterns and returning the matching patterns in order.
+   */
+  private static final class FindAllTask extends RecursiveTask<List<URIPattern>> {
+
+    /** As required for serializable classes */
+    private static final long serialVersionUID = 1L;
+
+    /** The URI to match */
+    private final String _uri;
+
+    /** The patterns */
+    private final List<URIPattern> _patterns;
+
+    /** The start of the range (inclusive) */
+    private final int _from;
+
+    /** The end of the range (exclusive) */
+    private final int _to;
+
+    FindAllTask(String uri, List<URIPattern> patterns, int from, int to) {
+      this._uri = uri;
+      this._patterns = patterns;
+      this._from = from;
+      this._to = to;
+    }
+
+    @Override
+    protected List<URIPattern> compute() {
+      if (this._to - this._from <= CHUNK_SIZE) {
+        List<URIPattern> matches = new ArrayList<URIPattern>();
+        for (int i = this._from; i < this._to; i++) {
+          URIPattern p = this._patterns.get(i);
+          if (p.match(this._uri)) {
+            matches.add(p);
+          }
+        }
+        return matches;
+      }
+      int middle = (this._from + this._to) >>> 1;
+      FindAllTask right = new FindAllTask(this._uri, this._patterns, middle, this._to);
+      right.fork();
+      List<URIPattern> matches = new FindAllTask(this._uri, this._patterns, this._from, middle).compute();
+      matches.addAll(right.join());
+      return matches;
+    }
+  }
+
+  /**
+   * A task matching a range of patterns and returning the index of the first or best match.
+   */
+  private static final class FindTask extends RecursiveTask<Integer> {
+
+    /** As required for serializable classes */
+    private static final long serialVersionUID = 1L;
+
+    /** The URI to match */
+    private final String _uri;
+
+    /** The patterns */
+    private final List<URIPattern> _patterns;
+
+    /** The rule */
+    private final MatchRule _rule;
+
+    /** The start of the range (inclusive) */
+    private final int _from;
+
+    /** The end of the range (exclusive) */
+    private final int _to;
+
+    /** The index of the earliest match found so far, used to skip later patterns for FIRST_MATCH */
+    private final AtomicInteger _first;
+
+    FindTask(String uri, List<URIPattern> patterns, MatchRule rule, int from, int to, AtomicInteger first) {
+      this._uri = uri;
+      this._patterns = patterns;
+      this._rule = rule;
+      this._from = from;
+      this._to = to;
+      this._first = first;
+    }
+
+    @Override
+    protected Integer compute() {
+      if (this._to - this._from <= CHUNK_SIZE)
+        return this._rule == MatchRule.FIRST_MATCH ? first() : best();
+      int middle = (this._from + this._to) >>> 1;
+      FindTask right = new FindTask(this._uri, this._patterns, this._rule, middle, this._to, this._first);
+      right.fork();
+      int a = new FindTask(this._uri, this._patterns, this._rule, this._from, middle, this._first).compute();
+      int b = right.join();
+      if (a < 0) return b;
+      if (b < 0 || this._rule == MatchRule.FIRST_MATCH) return a;
+      // ties go to the earliest pattern
+      return this._patterns.get(b).score() > this._patterns.get(a).score() ? b : a;
+    }
+
+    /**
+     * Returns the index of the first match in the range.
+     */
+    private int first() {
+      for (int i = this._from; i < this._to && i < this._first.get(); i++) {
+        if (this._patterns.get(i).match(this._uri)) {
+          // record the match so that tasks for later patterns can stop
+          int current = this._first.get();
+          while (i < current && !this._first.compareAndSet(current, i)) {
+            current = this._first.get();
+          }
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Returns the index of the best match in the range.
+     */
+    private int best() {
+      int best = -1;
+      for (int i = this._from; i < this._to; i++) {
+        URIPattern p = this._patterns.get(i);
+        if (p.match(this._uri) && (best < 0 || p.score() > this._patterns.get(best).score())) {
+          best = i;
+        }
+      }
+      return best;
+    }
+  }
+
+  /**
+   * Returns the first URI pattern in the list which matches the specified URI.
    *
+   * @param uri      The URI to match.
    * @param patterns The URI patterns available.
    *
    * @return The first URI pattern that matches or <code>null</code>.
    */
-  private final URIPattern findFirst(List<URIPattern> patterns) {
+  private static URIPattern findFirst(String uri, List<URIPattern> patterns) {
     if (patterns == null || patterns.size() == 0)
       return null;
     for (URIPattern p : patterns) {
-      if (p.match(this._uri))
+      if (p.match(uri))
         return p;
     }
     return null;
   }
 
   /**
-   * Returns the best URI pattern in the list which matches the underlying URI.
+   * Returns the best URI pattern in the list which matches the specified URI.
    *
+   * @param uri      The URI to match.
    * @param patterns The URI patterns available.
    *
    * @return The best URI pattern that matches or <code>null</code>.
    */
-  private final URIPattern findBest(List<URIPattern> patterns) {
+  private static URIPattern findBest(String uri, List<URIPattern> patterns) {
     if (patterns == null || patterns.size() == 0)
       return null;
     URIPattern best = null;
     for (URIPattern p : patterns) {
-      if (p.match(this._uri)) {
+      if (p.match(uri)) {
         if (best == null || p.score() > best.score()) {
           best = p;
         }
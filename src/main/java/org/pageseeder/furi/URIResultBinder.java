@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binds the variables resolved from a URI pattern to a new instance of a class.
+ *
+ * <p>The variables are bound to the parameters of a constructor or to the fields of the class
+ * with the same name:
+ * <ul>
+ *   <li>if the class has a constructor with parameter names (for example the canonical
+ *   constructor of a record or a class compiled with <code>-parameters</code>) which are all
+ *   variables of the pattern, the constructor with the most parameters is used;</li>
+ *   <li>otherwise, the class is instantiated using its no-argument constructor and each field
+ *   named after a variable of the pattern is set, other fields are left unchanged.</li>
+ * </ul>
+ *
+ * <p>Parameters and fields can be of type <code>int</code>, <code>long</code>,
+ * <code>boolean</code>, their wrapper types, <code>List</code> for all the objects of the
+ * variable, or any type the resolved object is an instance of. Primitive values are read
+ * using the typed accessors of the result; a variable without value binds to zero or
+ * <code>false</code> for primitive types and to <code>null</code> otherwise.
+ * <pre>
+ *   URIResultBinder&lt;GroupRequest&gt; binder = new URIResultBinder&lt;GroupRequest&gt;(pattern, GroupRequest.class);
+ *   ...
+ *   resolver.resolve(uri, pattern, variables, result);
+ *   GroupRequest request = binder.bind(result);
+ * </pre>
+ *
+ * <p>The accessors are computed once when the binder is created, so that binding a result does
+ * not involve any reflection or lookup by name: the binder should be created once for a pattern
+ * and class and reused. Instances of this class are immutable and can be used concurrently.
+ *
+ * @param <T> The type of objects to bind the variables to.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class URIResultBinder<T> {
+
+  /**
+   * The lookup to find the accessors of the result.
+   */
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * The type of the handle creating objects from a result.
+   */
+  private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class, URIResolveResult.class);
+
+  /**
+   * The pattern the variables are resolved from.
+   */
+  private final URIPattern _pattern;
+
+  /**
+   * The class of objects created by this binder.
+   */
+  private final Class<T> _type;
+
+  /**
+   * Creates a new object from a result.
+   */
+  private final MethodHandle _factory;
+
+  /**
+   * Creates a new binder for the specified pattern and class.
+   *
+   * @param pattern The URI pattern the variables are resolved from.
+   * @param type    The class of objects to create.
+   *
+   * @throws IllegalArgumentException If the class cannot be instantiated or if a parameter or
+   *         field bound to a variable has an unsupported primitive type.
+   */
+  public URIResultBinder(URIPattern pattern, Class<T> type) {
+    this._pattern = pattern;
+    this._type = type;
+    Set<String> names = new HashSet<String>();
+    for (Variable v : pattern.variables()) {
+      names.add(v.name());
+    }
+    try {
+      Constructor<?> constructor = toConstructor(type, names);
+      MethodHandle factory = constructor != null ? fromConstructor(constructor) : fromFields(type, names);
+      this._factory = factory.asType(FACTORY_TYPE);
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalArgumentException("Unable to bind "+pattern+" to "+type.getName(), ex);
+    }
+  }
+
+  /**
+   * Returns a new object bound to the variables of the specified result.
+   *
+   * @param result The result of resolving a URI with the pattern of this binder.
+   *
+   * @return The new object.
+   *
+   * @throws ClassCastException If a resolved object is not an instance of the type it is bound to.
+   * @throws NumberFormatException If a value cannot be bound to a numeric type.
+   */
+  public T bind(URIResolveResult result) {
+    try {
+      return this._type.cast((Object)this._factory.invokeExact(result));
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Unable to create "+this._type.getName(), ex);
+    }
+  }
+
+  /**
+   * Returns the pattern the variables are resolved from.
+   *
+   * @return the pattern the variables are resolved from.
+   */
+  public URIPattern pattern() {
+    return this._pattern;
+  }
+
+  /**
+   * Returns the class of objects created by this binder.
+   *
+   * @return the class of objects created by this binder.
+   */
+  public Class<T> type() {
+    return this._type;
+  }
+
+  @Override
+  public String toString() {
+    return this._pattern + " -> " + this._type.getName();
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Returns the constructor with the most parameters which are all named after a variable.
+   *
+   * @return the constructor or <code>null</code> if no constructor has named parameters.
+   */
+  private static Constructor<?> toConstructor(Class<?> type, Set<String> names) {
+    Constructor<?> found = null;
+    for (Constructor<?> c : type.getDeclaredConstructors()) {
+      Parameter[] parameters = c.getParameters();
+      if (parameters.length == 0 || (found != null && found.getParameterCount() >= parameters.length)) continue;
+      boolean bound = true;
+      for (Parameter p : parameters) {
+        bound = bound && p.isNamePresent() && names.contains(p.getName());
+      }
+      if (bound) found = c;
+    }
+    return found;
+  }
+
+  /**
+   * Returns a handle invoking the constructor with the values of the variables.
+   *
+   * <p>Each parameter is filtered by the accessor for its variable, then all the parameters are
+   * mapped to the same result.
+   */
+  private static MethodHandle fromConstructor(Constructor<?> constructor) throws ReflectiveOperationException {
+    constructor.setAccessible(true);
+    MethodHandle factory = LOOKUP.unreflectConstructor(constructor);
+    Parameter[] parameters = constructor.getParameters();
+    MethodHandle[] getters = new MethodHandle[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      getters[i] = getter(parameters[i].getName(), parameters[i].getType());
+    }
+    factory = MethodHandles.filterArguments(factory, 0, getters);
+    MethodType type = MethodType.methodType(factory.type().returnType(), URIResolveResult.class);
+    return MethodHandles.permuteArguments(factory, type, new int[parameters.length]);
+  }
+
+  /**
+   * Returns a handle invoking the no-argument constructor then setting the fields named after
+   * the variables.
+   */
+  private static MethodHandle fromFields(Class<?> type, Set<String> names) throws ReflectiveOperationException {
+    Constructor<?> constructor = type.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    // (T, URIResolveResult) -> T, each setter is folded in front
+    MethodHandle bind = MethodHandles.dropArguments(MethodHandles.identity(type), 1, URIResolveResult.class);
+    for (Field f : fields(type, names)) {
+      f.setAccessible(true);
+      MethodHandle setter = MethodHandles.filterArguments(LOOKUP.unreflectSetter(f), 1, getter(f.getName(), f.getType()));
+      bind = MethodHandles.foldArguments(bind, setter.asType(MethodType.methodType(void.class, type, URIResolveResult.class)));
+    }
+    return MethodHandles.foldArguments(bind, LOOKUP.unreflectConstructor(constructor));
+  }
+
+  /**
+   * Returns the instance fields of the class and its superclasses named after a variable.
+   */
+  private static List<Field> fields(Class<?> type, Set<String> names) {
+    List<Field> fields = new ArrayList<Field>();
+    Set<String> found = new HashSet<String>();
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field f : c.getDeclaredFields()) {
+        int modifiers = f.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) continue;
+        if (names.contains(f.getName()) && found.add(f.getName())) {
+          fields.add(f);
+        }
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Returns a handle returning the value of the variable from a result as the specified type.
+   */
+  private static MethodHandle getter(String name, Class<?> type) throws ReflectiveOperationException {
+    String method = "toObject";
+    Class<?> returned = Object.class;
+    if (type == int.class || type == long.class || type == boolean.class
+     || type == Integer.class || type == Long.class || type == Boolean.class || type == List.class) {
+      method = "to" + type.getSimpleName();
+      returned = type;
+    } else if (type.isPrimitive())
+      throw new IllegalArgumentException("Unsupported type "+type+" for variable "+name);
+    MethodType accessor = MethodType.methodType(returned, URIResolveResult.class, String.class);
+    MethodHandle getter = LOOKUP.findStatic(URIResultBinder.class, method, accessor);
+    getter = MethodHandles.insertArguments(getter, 1, name);
+    return getter.asType(MethodType.methodType(type, URIResolveResult.class));
+  }
+
+  // accessors used by the handles --------------------------------------------
+
+  /** @return the value as an int or zero */
+  private static int toint(URIResolveResult result, String name) {
+    return result.getInt(name, 0);
+  }
+
+  /** @return the value as a long or zero */
+  private static long tolong(URIResolveResult result, String name) {
+    return result.getLong(name, 0L);
+  }
+
+  /** @return the value as a boolean or false */
+  private static boolean toboolean(URIResolveResult result, String name) {
+    return result.getBoolean(name, false);
+  }
+
+  /** @return the value as an Integer or null */
+  private static Integer toInteger(URIResolveResult result, String name) {
+    return result.hasValue(name) ? Integer.valueOf(result.getInt(name)) : null;
+  }
+
+  /** @return the value as a Long or null */
+  private static Long toLong(URIResolveResult result, String name) {
+    return result.hasValue(name) ? Long.valueOf(result.getLong(name)) : null;
+  }
+
+  /** @return the value as a Boolean or null */
+  private static Boolean toBoolean(URIResolveResult result, String name) {
+    return result.hasValue(name) ? Boolean.valueOf(result.getBoolean(name)) : null;
+  }
+
+  /** @return all the objects of the variable */
+  private static List<Object> toList(URIResolveResult result, String name) {
+    return result.getList(name);
+  }
+
+  /** @return the object of the variable or null */
+  private static Object toObject(URIResolveResult result, String name) {
+    return result.get(name);
+  }
+
+}
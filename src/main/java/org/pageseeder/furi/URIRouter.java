@@ -0,0 +1,669 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.pageseeder.furi.URIResolveResult.Status;
+import org.pageseeder.furi.URIResolver.MatchRule;
+
+/**
+ * Routes URIs to the matching pattern in a route table.
+ *
+ * <p>A router selects the same pattern as {@link URIResolver#find(List, MatchRule)} for the same
+ * list of patterns and rule, but evaluates the patterns in an order which reduces the number of
+ * patterns to match:
+ * <ul>
+ *   <li>For <code>BEST_MATCH</code>, the patterns are evaluated from the highest score so that the
+ *   first matching pattern is the best one;</li>
+ *   <li>For <code>FIRST_MATCH</code>, the patterns are evaluated in the order of the list. When
+ *   a reorder interval is specified, the router counts the hits for each pattern and periodically
+ *   reorders the patterns so that the most frequently matched patterns are evaluated first. A
+ *   pattern is only moved ahead of the patterns which cannot match the same URI, so the first
+ *   matching pattern is always the same as in the list.</li>
+ * </ul>
+ *
+ * <p>Reordering requires every pair of patterns to be compared, which is done when the router
+ * is created or its patterns are replaced; this takes time for large route tables. Lookups
+ * which trigger a reordering only sort the patterns using these comparisons.
+ *
+ * <p>Patterns without variables are indexed by their literal text: a URI equal to the text of
+ * one of these patterns is routed with a single hash lookup to the pattern selected by the rule,
+ * which may be an earlier or better pattern with variables. Other URIs are only matched against
+ * the patterns with variables.
+ *
+ * <p>URIs which cannot match any pattern, such as most requests from crawlers and scanners, are
+ * rejected by a prefilter compiled from the literal text and length of the patterns before any
+ * pattern is matched.
+ *
+ * <p>A cache can be enabled using {@link #setCache(int, long)} to map URIs which are routed
+ * repeatedly to their pattern and decoded variable values, so that they are resolved without
+ * matching or decoding. Another cache can be enabled using {@link #setNegativeCache(int, long)}
+ * to remember the URIs which did not match any pattern.
+ *
+ * <p>Limits on the length of URIs and on the time spent matching them can be set using
+ * {@link #setMatchLimits(int, int)}; URIs exceeding these limits are rejected with an exception.
+ *
+ * <p>The route table can be replaced at any time using {@link #setPatterns(List)}, this clears
+ * the cache. This class is thread-safe.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class URIRouter {
+
+  /**
+   * A suggested number of lookups between two reorderings for routers reordering patterns.
+   */
+  public static final int DEFAULT_REORDER_INTERVAL = 10000;
+
+  /**
+   * The rule used to select the matching pattern.
+   */
+  private final MatchRule _rule;
+
+  /**
+   * The number of lookups between two reorderings, zero to disable reordering.
+   */
+  private final int _interval;
+
+  /**
+   * The maximum number of URIs in the cache, zero if there is no cache.
+   */
+  private volatile int _cacheSize;
+
+  /**
+   * The time-to-live of URIs in the cache in milliseconds, zero if they do not expire.
+   */
+  private volatile long _cacheTTL;
+
+  /**
+   * The maximum number of URIs in the negative cache, zero if there is no negative cache.
+   */
+  private volatile int _negativeCacheSize;
+
+  /**
+   * The time-to-live of URIs in the negative cache in milliseconds, zero if they do not expire.
+   */
+  private volatile long _negativeCacheTTL;
+
+  /**
+   * The maximum length of the URIs which can be matched, zero for no limit.
+   */
+  private volatile int _maxLength;
+
+  /**
+   * The maximum number of steps to match a URI against a pattern.
+   */
+  private volatile int _maxSteps = Integer.MAX_VALUE;
+
+  /**
+   * The current route table.
+   */
+  private volatile Table _table;
+
+  /**
+   * Creates a new router using the <code>FIRST_MATCH</code> rule without reordering.
+   *
+   * @param patterns The patterns in the route table.
+   */
+  public URIRouter(List<URIPattern> patterns) {
+    this(patterns, MatchRule.FIRST_MATCH, 0);
+  }
+
+  /**
+   * Creates a new router without reordering.
+   *
+   * @param patterns The patterns in the route table.
+   * @param rule     The rule used to select the matching pattern.
+   */
+  public URIRouter(List<URIPattern> patterns, MatchRule rule) {
+    this(patterns, rule, 0);
+  }
+
+  /**
+   * Creates a new router.
+   *
+   * <p>The reorder interval is the average number of lookups between two reorderings, lookups
+   * are sampled rather than counted exactly. It only applies to the <code>FIRST_MATCH</code> rule.
+   *
+   * @param patterns The patterns in the route table.
+   * @param rule     The rule used to select the matching pattern.
+   * @param interval The number of lookups between two reorderings, zero to disable reordering.
+   *
+   * @throws NullPointerException If the patterns or rule are <code>null</code>.
+   * @throws IllegalArgumentException If the interval is negative.
+   */
+  public URIRouter(List<URIPattern> patterns, MatchRule rule, int interval) {
+    if (rule == null)
+      throw new NullPointerException("The match rule must be specified");
+    if (interval < 0)
+      throw new IllegalArgumentException("The reorder interval must be positive or zero");
+    this._rule = rule;
+    this._interval = interval;
+    this._table = new Table(patterns, rule, interval > 0);
+  }
+
+  /**
+   * Returns the pattern matching the specified URI.
+   *
+   * @param uri The URI to match.
+   *
+   * @return The matching pattern or <code>null</code>.
+   *
+   * @throws URIMatchLimitException If the URI exceeds the limits set for matching.
+   */
+  public URIPattern find(String uri) {
+    checkLength(uri);
+    Table table = this._table;
+    BoundedCache<String, Route> cache = table._cache;
+    Route route = cache != null ? cache.get(uri) : null;
+    if (route != null) {
+      count(table, route._index);
+      return route._pattern;
+    }
+    int index = table.find(uri, null, this._maxSteps);
+    count(table, index);
+    if (index < 0) return null;
+    if (cache != null) {
+      // the values are extracted if the URI is resolved
+      cache.put(uri, new Route(index, table._patterns[index], null));
+    }
+    return table._patterns[index];
+  }
+
+  /**
+   * Resolves the specified URI with the matching pattern.
+   *
+   * @param uri    The URI to resolve.
+   * @param binder The variable binder.
+   *
+   * @return The result or <code>null</code> if no pattern matches the URI.
+   *
+   * @throws URIMatchLimitException If the URI exceeds the limits set for matching.
+   */
+  public URIResolveResult resolve(String uri, VariableBinder binder) {
+    URIResolveResult result = new URIResolveResult();
+    resolve(uri, binder, result);
+    return result.getURIPattern() != null ? result : null;
+  }
+
+  /**
+   * Resolves the specified URI with the matching pattern into the specified result.
+   *
+   * <p>If no pattern matches the URI, the result has no pattern and its status is
+   * <code>ERROR</code>.
+   *
+   * @param uri    The URI to resolve.
+   * @param binder The variable binder.
+   * @param result The result to reset and populate.
+   *
+   * @return The status of the result.
+   *
+   * @throws URIMatchLimitException If the URI exceeds the limits set for matching.
+   */
+  public Status resolve(String uri, VariableBinder binder, URIResolveResult result) {
+    checkLength(uri);
+    Table table = this._table;
+    BoundedCache<String, Route> cache = table._cache;
+    Route route = cache != null ? cache.get(uri) : null;
+    if (route != null && route._values != null) {
+      count(table, route._index);
+    } else {
+      int[] offsets = result.offsets(table._offsets);
+      int index;
+      boolean recorded;
+      if (route == null) {
+        index = table.find(uri, offsets, this._maxSteps);
+        recorded = true;
+      } else {
+        // the URI was routed without recording the offsets
+        index = route._index;
+        recorded = route._pattern.match(uri, offsets);
+      }
+      count(table, index);
+      URIPattern pattern = index >= 0 ? table._patterns[index] : null;
+      if (pattern == null || !recorded || !pattern.isResolvable()) {
+        result.reset(pattern);
+        result.setStatus(Status.ERROR);
+        return Status.ERROR;
+      }
+      Map<Variable, Object> values = new HashMap<Variable, Object>();
+      URIResolver.values(uri, pattern, offsets, values);
+      route = new Route(index, pattern, values);
+      if (cache != null) {
+        cache.put(uri, route);
+      }
+    }
+    result.reset(route._pattern);
+    Status status = URIResolver.lookup(result, route._values, binder);
+    result.setStatus(status);
+    return status;
+  }
+
+  /**
+   * Enables or disables the cache of routed URIs.
+   *
+   * <p>The cache maps URIs to their pattern and decoded variable values. It is cleared whenever
+   * this method is invoked or the route table is replaced.
+   *
+   * @param maxSize   The maximum number of URIs in the cache, zero to disable the cache.
+   * @param ttlMillis The time-to-live of cached URIs in milliseconds, zero if they do not expire.
+   *
+   * @throws IllegalArgumentException If either argument is negative.
+   */
+  public void setCache(int maxSize, long ttlMillis) {
+    if (maxSize < 0 || ttlMillis < 0)
+      throw new IllegalArgumentException("The cache size and time-to-live must be positive or zero");
+    this._cacheSize = maxSize;
+    this._cacheTTL = ttlMillis;
+    this._table._cache = newCache();
+  }
+
+  /**
+   * Enables or disables the cache of URIs which do not match any pattern.
+   *
+   * <p>URIs rejected by the prefilter are not cached. The cache is cleared whenever this method
+   * is invoked or the route table is replaced.
+   *
+   * @param maxSize   The maximum number of URIs in the cache, zero to disable the cache.
+   * @param ttlMillis The time-to-live of cached URIs in milliseconds, zero if they do not expire.
+   *
+   * @throws IllegalArgumentException If either argument is negative.
+   */
+  public void setNegativeCache(int maxSize, long ttlMillis) {
+    if (maxSize < 0 || ttlMillis < 0)
+      throw new IllegalArgumentException("The cache size and time-to-live must be positive or zero");
+    this._negativeCacheSize = maxSize;
+    this._negativeCacheTTL = ttlMillis;
+    this._table._misses = newNegativeCache();
+  }
+
+  /**
+   * Sets the limits applying when matching a URI, there are no limits by default.
+   *
+   * <p>URIs longer than the maximum length are rejected. When a token of a pattern can end at
+   * several positions in the URI, each position tried is counted as a step; a URI which requires
+   * more steps than the maximum to match a pattern is rejected as well. These limits bound the time
+   * spent on long or hostile URIs.
+   *
+   * <p>Since a rejected URI may match one of the patterns, rejections are reported with a
+   * {@link URIMatchLimitException} rather than as a URI without a matching pattern, and they are
+   * not cached.
+   *
+   * @param maxLength The maximum length of the URIs which can be matched, zero for no limit.
+   * @param maxSteps  The maximum number of steps to match a URI against a pattern, zero for no limit.
+   *
+   * @throws IllegalArgumentException If either limit is negative.
+   */
+  public void setMatchLimits(int maxLength, int maxSteps) {
+    if (maxLength < 0 || maxSteps < 0)
+      throw new IllegalArgumentException("The limits must be positive or zero");
+    this._maxLength = maxLength;
+    this._maxSteps = maxSteps > 0 ? maxSteps : Integer.MAX_VALUE;
+  }
+
+  /**
+   * Replaces the patterns in the route table.
+   *
+   * <p>Hit statistics are reset and the caches are cleared.
+   *
+   * @param patterns The new patterns in the route table.
+   */
+  public void setPatterns(List<URIPattern> patterns) {
+    Table table = new Table(patterns, this._rule, this._interval > 0);
+    table._cache = newCache();
+    table._misses = newNegativeCache();
+    this._table = table;
+  }
+
+  /**
+   * Returns the patterns in the route table in their original order.
+   *
+   * @return the patterns in the route table.
+   */
+  public List<URIPattern> patterns() {
+    List<URIPattern> patterns = new ArrayList<URIPattern>(this._table._patterns.length);
+    Collections.addAll(patterns, this._table._patterns);
+    return Collections.unmodifiableList(patterns);
+  }
+
+  /**
+   * Returns the patterns in the order they are currently evaluated.
+   *
+   * @return the patterns in evaluation order.
+   */
+  public List<URIPattern> evaluationOrder() {
+    Table table = this._table;
+    int[] order = table._order;
+    List<URIPattern> patterns = new ArrayList<URIPattern>(order.length);
+    for (int i : order) {
+      patterns.add(table._patterns[i]);
+    }
+    return Collections.unmodifiableList(patterns);
+  }
+
+  /**
+   * Reorders the patterns using the current hit statistics.
+   *
+   * <p>This method is invoked automatically for <code>FIRST_MATCH</code> after the number of
+   * lookups specified by the reorder interval.
+   */
+  public void reorder() {
+    this._table.reorder();
+  }
+
+  /**
+   * Returns the average number of patterns matched for each lookup since the route table was set.
+   *
+   * @return the average number of patterns matched for each lookup.
+   */
+  public double averageDepth() {
+    Table table = this._table;
+    long lookups = table._lookups.sum();
+    return lookups > 0 ? (double)table._evaluated.sum() / lookups : 0;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Checks that the URI does not exceed the maximum length.
+   *
+   * @throws URIMatchLimitException If the URI is longer than the maximum length.
+   */
+  private void checkLength(String uri) {
+    int max = this._maxLength;
+    if (max > 0 && uri.length() > max)
+      throw new URIMatchLimitException("The URI is longer than "+max+" characters");
+  }
+
+  /**
+   * Records the hit for the pattern at the specified index if the patterns are reordered.
+   */
+  private void count(Table table, int index) {
+    if (this._interval > 0 && this._rule == MatchRule.FIRST_MATCH) {
+      table.count(index, this._interval);
+    }
+  }
+
+  /**
+   * Returns a new cache using the current settings or <code>null</code>.
+   */
+  private BoundedCache<String, Route> newCache() {
+    int size = this._cacheSize;
+    return size > 0 ? new BoundedCache<String, Route>(size, this._cacheTTL) : null;
+  }
+
+  /**
+   * Returns a new negative cache using the current settings or <code>null</code>.
+   */
+  private BoundedCache<String, Boolean> newNegativeCache() {
+    int size = this._negativeCacheSize;
+    return size > 0 ? new BoundedCache<String, Boolean>(size, this._negativeCacheTTL) : null;
+  }
+
+  /**
+   * A pattern and the decoded values of its variables for a URI.
+   */
+  private static final class Route {
+
+    /** The index of the matching pattern in the table */
+    private final int _index;
+
+    /** The matching pattern */
+    private final URIPattern _pattern;
+
+    /** The decoded values mapped to the variables, null if the URI was only routed */
+    private final Map<Variable, Object> _values;
+
+    Route(int index, URIPattern pattern, Map<Variable, Object> values) {
+      this._index = index;
+      this._pattern = pattern;
+      this._values = values;
+    }
+  }
+
+  /**
+   * A list of patterns with its evaluation order and statistics.
+   */
+  private static final class Table {
+
+    /** The patterns in their original order */
+    private final URIPattern[] _patterns;
+
+    /** The size of the array to record the offsets of the tokens of any pattern */
+    private final int _offsets;
+
+    /** Whether the patterns can be reordered */
+    private final boolean _adaptive;
+
+    /** Determines the possible evaluation orders for FIRST_MATCH, null if not adaptive */
+    private final URIPatternAnalyzer _analyzer;
+
+    /** The index of the patterns in evaluation order */
+    private volatile int[] _order;
+
+    /** The index of the pattern selected for the text of each pattern without variables */
+    private final Map<String, Integer> _literals;
+
+    /** Whether each pattern is only matched using its literal text */
+    private final boolean[] _indexed;
+
+    /** The index of the patterns to match in evaluation order, excluding indexed patterns */
+    private volatile int[] _scan;
+
+    /** The number of hits for each pattern since the last reordering */
+    private final AtomicLongArray _hits;
+
+    /** The number of lookups */
+    private final LongAdder _lookups = new LongAdder();
+
+    /** The number of patterns evaluated */
+    private final LongAdder _evaluated = new LongAdder();
+
+    /** Whether a reordering is in progress */
+    private final AtomicBoolean _reordering = new AtomicBoolean();
+
+    /** The cache of routed URIs for this table, may be null */
+    private volatile BoundedCache<String, Route> _cache;
+
+    /** Rejects the URIs which cannot match any pattern */
+    private final URIPrefilter _prefilter;
+
+    /** The cache of URIs which did not match any pattern, may be null */
+    private volatile BoundedCache<String, Boolean> _misses;
+
+    Table(List<URIPattern> patterns, MatchRule rule, boolean adaptive) {
+      int size = patterns.size();
+      this._patterns = patterns.toArray(new URIPattern[size]);
+      int tokens = 0;
+      for (URIPattern p : this._patterns) {
+        tokens = Math.max(tokens, p.tokens().size());
+      }
+      this._offsets = tokens * 2;
+      this._hits = new AtomicLongArray(size);
+      this._order = new int[size];
+      if (rule == MatchRule.FIRST_MATCH) {
+        this._adaptive = adaptive;
+        for (int i = 0; i < size; i++) {
+          this._order[i] = i;
+        }
+      } else {
+        this._adaptive = false;
+        // the first matching pattern by decreasing score then index is the best match
+        List<Integer> order = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+          order.add(i);
+        }
+        final URIPattern[] p = this._patterns;
+        Collections.sort(order, new Comparator<Integer>() {
+          @Override
+          public int compare(Integer a, Integer b) {
+            int sa = p[a].score();
+            int sb = p[b].score();
+            return sa != sb ? (sa > sb ? -1 : 1) : a.compareTo(b);
+          }
+        });
+        for (int i = 0; i < size; i++) {
+          this._order[i] = order.get(i);
+        }
+      }
+      // the initial order selects the same pattern as the rule
+      this._literals = new HashMap<String, Integer>();
+      this._indexed = new boolean[size];
+      for (int i = 0; i < size; i++) {
+        String text = literal(this._patterns[i]);
+        if (text == null) continue;
+        Integer selected = this._literals.get(text);
+        if (selected == null) {
+          int index = match(text);
+          if (index < 0) continue;
+          this._literals.put(text, index);
+        }
+        this._indexed[i] = true;
+      }
+      this._scan = scan(this._order);
+      this._prefilter = new URIPrefilter(patterns);
+      // compare the patterns now so that no lookup has to
+      this._analyzer = this._adaptive ? new URIPatternAnalyzer(patterns) : null;
+    }
+
+    /**
+     * Returns the index of the pattern matching the URI.
+     *
+     * <p>If an array is specified, it receives the offsets of the tokens of the matching pattern
+     * unless the pattern is not resolvable.
+     *
+     * @throws URIMatchLimitException If a pattern requires more steps to match the URI.
+     */
+    int find(String uri, int[] offsets, int maxSteps) {
+      if (!this._literals.isEmpty()) {
+        Integer index = this._literals.get(uri);
+        if (index != null) {
+          this._lookups.increment();
+          // the selected pattern may have variables
+          if (offsets != null && !this._indexed[index]) {
+            this._patterns[index].match(uri, offsets);
+          }
+          return index;
+        }
+      }
+      BoundedCache<String, Boolean> misses = this._misses;
+      if (!this._prefilter.mayMatch(uri) || (misses != null && misses.get(uri) != null)) {
+        this._lookups.increment();
+        return -1;
+      }
+      int[] order = this._scan;
+      for (int k = 0; k < order.length; k++) {
+        URIPattern p = this._patterns[order[k]];
+        if (p.match(uri, offsets != null && p.isResolvable() ? offsets : null, maxSteps)) {
+          this._evaluated.add(k + 1);
+          this._lookups.increment();
+          return order[k];
+        }
+      }
+      this._evaluated.add(order.length);
+      this._lookups.increment();
+      if (misses != null) {
+        misses.put(uri, Boolean.TRUE);
+      }
+      return -1;
+    }
+
+    /**
+     * Records a hit and reorders the patterns on average after the specified number of lookups.
+     */
+    void count(int index, int interval) {
+      if (index >= 0) {
+        this._hits.incrementAndGet(index);
+      }
+      // sample lookups instead of sharing a counter between threads
+      if (ThreadLocalRandom.current().nextInt(interval) == 0) {
+        reorder();
+      }
+    }
+
+    /**
+     * Reorders the patterns using the hits, unless another thread is already reordering.
+     */
+    void reorder() {
+      if (!this._adaptive || !this._reordering.compareAndSet(false, true)) return;
+      try {
+        long[] counts = new long[this._patterns.length];
+        for (int i = 0; i < counts.length; i++) {
+          counts[i] = this._hits.get(i);
+          // halve the hits so that recent traffic weighs more
+          this._hits.addAndGet(i, -(counts[i] / 2));
+        }
+        int[] order = this._analyzer.order(counts);
+        this._scan = scan(order);
+        this._order = order;
+      } finally {
+        this._reordering.set(false);
+      }
+    }
+
+    /**
+     * Returns the index of the first pattern in evaluation order matching the URI.
+     */
+    private int match(String uri) {
+      for (int i : this._order) {
+        if (this._patterns[i].match(uri)) return i;
+      }
+      return -1;
+    }
+
+    /**
+     * Returns the evaluation order without the patterns indexed by their literal text.
+     */
+    private int[] scan(int[] order) {
+      int count = 0;
+      for (int i : order) {
+        if (!this._indexed[i]) count++;
+      }
+      int[] scan = new int[count];
+      int k = 0;
+      for (int i : order) {
+        if (!this._indexed[i]) scan[k++] = i;
+      }
+      return scan;
+    }
+
+    /**
+     * Returns the text of a pattern without variables.
+     *
+     * @return the literal text or <code>null</code> if the pattern has other tokens.
+     */
+    private static String literal(URIPattern pattern) {
+      StringBuilder text = new StringBuilder();
+      for (Token t : pattern.tokens()) {
+        if (!(t instanceof TokenLiteral)) return null;
+        text.append(t.expression());
+      }
+      return text.toString();
+    }
+  }
+
+}
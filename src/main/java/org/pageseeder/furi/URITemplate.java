@@ -16,7 +16,10 @@
 package org.pageseeder.furi;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -68,8 +71,6 @@ public class URITemplate implements Expandable {
     this._template = template;
   }
 
-  // TODO: method to indicate how many variables are used involved in the template
-
   /**
    * Creates a new URI Template instance using the specified token factory.
    *
@@ -88,6 +89,19 @@ public class URITemplate implements Expandable {
     this._template = template;
   }
 
+  /**
+   * Creates a new URI Template instance from tokens which have already been digested.
+   *
+   * <p>The tokens must correspond to the specified template, this is not checked.
+   *
+   * @param template A String following the URI template syntax.
+   * @param tokens   The list of tokens corresponding to this template.
+   */
+  URITemplate(String template, List<Token> tokens) {
+    this._tokens = tokens;
+    this._template = template;
+  }
+
   /**
    * Expands the template to produce a URI as defined by the URI Template specifications.
    *
@@ -183,6 +197,30 @@ public class URITemplate implements Expandable {
     return this._tokens;
   }
 
+  /**
+   * Returns the variables used in this template.
+   *
+   * <p>Each variable is listed once in the order it first appears in the template; variables
+   * using the same name in different tokens are considered to be the same.
+   *
+   * @return The list of variables used in this template.
+   */
+  public List<Variable> variables() {
+    List<Variable> variables = new ArrayList<Variable>();
+    Set<String> names = new HashSet<String>();
+    for (Token t : this._tokens) {
+      if (t instanceof TokenVariable) {
+        Variable v = ((TokenVariable)t).getVariable();
+        if (names.add(v.name())) variables.add(v);
+      } else if (t instanceof TokenOperator) {
+        for (Variable v : ((TokenOperator)t).variables()) {
+          if (names.add(v.name())) variables.add(v);
+        }
+      }
+    }
+    return Collections.unmodifiableList(variables);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o == this)
@@ -159,11 +159,6 @@ public class Variable {
 
   }
 
-  /**
-   * The pattern for a valid variable name.
-   */
-  private static final Pattern VALID_NAME = Pattern.compile("[a-zA-Z0-9][\\w.-]*");
-
   /**
    * The pattern for a valid normalised variable value: any unreserved character or an escape
    * sequence. This pattern contains non-capturing parentheses to make it easier to get variable
@@ -171,6 +166,30 @@ public class Variable {
    */
   protected static final Pattern VALID_VALUE = Pattern.compile("(?:[\\w.~-]|(?:%[0-9A-F]{2}))+");
 
+  /**
+   * The ASCII characters allowed as the first character of a name: <code>[a-zA-Z0-9]</code>.
+   */
+  private static final boolean[] NAME_START = new boolean[128];
+
+  /**
+   * The ASCII characters allowed in a name after the first character: <code>[\w.-]</code>.
+   */
+  private static final boolean[] NAME_PART = new boolean[128];
+
+  /**
+   * The ASCII characters allowed in a normalised value without escape: <code>[\w.~-]</code>.
+   */
+  private static final boolean[] VALUE_PART = new boolean[128];
+
+  static {
+    for (int c = 0; c < 128; c++) {
+      boolean alphanumeric = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+      NAME_START[c] = alphanumeric;
+      NAME_PART[c] = alphanumeric || c == '_' || c == '.' || c == '-';
+      VALUE_PART[c] = NAME_PART[c] || c == '~';
+    }
+  }
+
   /**
    * The default value is an empty string.
    */
@@ -199,6 +218,11 @@ public class Variable {
    */
   private String _default;
 
+  /**
+   * The default value as the only value, shared by all expansions.
+   */
+  private String[] _defaults;
+
   /**
    * Creates a new untyped reserved variable.
    *
@@ -210,6 +234,7 @@ public class Variable {
   public Variable(Reserved reserved) throws NullPointerException, IllegalArgumentException {
     this._name = reserved.symbol();
     this._default = DEFAULT_VALUE;
+    this._defaults = new String[] { this._default };
     this._form = Form.STRING;
     this._type = null;
   }
@@ -257,6 +282,7 @@ public class Variable {
       throw new IllegalArgumentException("The variable name is not valid: " + name);
     this._name = name;
     this._default = def != null ? def : DEFAULT_VALUE;
+    this._defaults = new String[] { this._default };
     this._type = type;
     this._form = Form.getType(name);
   }
@@ -279,6 +305,7 @@ public class Variable {
       throw new IllegalArgumentException("The variable name is not valid: " + name);
     this._name = name;
     this._default = def != null ? def : DEFAULT_VALUE;
+    this._defaults = new String[] { this._default };
     this._type = type;
     this._form = form != null? form : Form.STRING;
   }
@@ -362,12 +389,38 @@ public class Variable {
   public String[] values(Parameters parameters) {
     // No parameters: use the default value
     if (parameters == null)
-      return new String[] { this._default };
+      return this._defaults.clone();
     String[] values = parameters.getValues(this._name);
     // Defined and non-empty: return the values
-    if (values != null && values.length > 0 && values[0].length() > 0) return values;
+    if (values != null && values.length > 0 && values[0] != null && values[0].length() > 0) return values;
     // Empty or undefined: return the default
-    else return new String[] { this._default };
+    else return this._defaults.clone();
+  }
+
+  /**
+   * Returns the values of this variable as supplied by the parameters, without converting them
+   * to an array.
+   *
+   * <p>This method follows the same rules as {@link #values(Parameters)}, but reads the values
+   * using {@link Parameters#getObject(String)} so that lists and maps are iterated directly.
+   *
+   * <p>The values must be read with {@link VariableValues#size(Object)} and
+   * {@link VariableValues#get(Object, int)}; the array returned for the default value is shared
+   * and must not be modified.
+   *
+   * @param parameters The parameters.
+   *
+   * @return The values.
+   */
+  Object valuesOf(Parameters parameters) {
+    Object value = parameters != null ? parameters.getObject(this._name) : null;
+    if (value != null) {
+      Object values = VariableValues.of(value);
+      // Defined and non-empty: return the values
+      if (VariableValues.size(values) > 0 && VariableValues.get(values, 0).length() > 0) return values;
+    }
+    // Empty or undefined: return the default
+    return this._defaults;
   }
 
   /**
@@ -466,9 +519,17 @@ public class Variable {
    * @return <code>true</code> if the name is valid; <code>false</code> otherwise.
    */
   public static boolean isValidName(String name) {
-    if (name == null)
+    if (name == null || name.length() == 0)
+      return false;
+    char c = name.charAt(0);
+    if (c >= 128 || !NAME_START[c])
       return false;
-    return VALID_NAME.matcher(name).matches();
+    for (int i = 1; i < name.length(); i++) {
+      c = name.charAt(i);
+      if (c >= 128 || !NAME_PART[c])
+        return false;
+    }
+    return true;
   }
 
   /**
@@ -479,13 +540,48 @@ public class Variable {
    * @return <code>true</code> if the name is not valid; <code>false</code> otherwise.
    */
   public static boolean isValidValue(String value) {
-    if (value == null)
+    if (value == null || value.length() == 0)
       return false;
-    return VALID_VALUE.matcher(value).matches();
+    return scanValue(value, 0) == value.length();
+  }
+
+  /**
+   * Returns the end of the longest valid value starting at the specified position.
+   *
+   * @param s     The string to scan.
+   * @param start The position where the value starts.
+   *
+   * @return The end of the value, equal to the start if there is no valid value at this position.
+   */
+  static int scanValue(String s, int start) {
+    int length = s.length();
+    int pos = start;
+    while (pos < length) {
+      char c = s.charAt(pos);
+      if (c < 128 && VALUE_PART[c]) {
+        pos++;
+      } else if (c == '%' && pos + 2 < length && isHex(s.charAt(pos+1)) && isHex(s.charAt(pos+2))) {
+        pos += 3;
+      } else {
+        break;
+      }
+    }
+    return pos;
   }
 
   // helpers -------------------------------------------------------------------
 
+  /**
+   * Indicates whether the character is an upper case hexadecimal digit as used in escape sequences.
+   *
+   * @param c The character to test.
+   *
+   * @return <code>true</code> if the character is in <code>[0-9A-F]</code>.
+   */
+  private static boolean isHex(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F');
+  }
+
   /**
    * Returns the name of this variable as a regular expression pattern string for use in a regular
    * expression.
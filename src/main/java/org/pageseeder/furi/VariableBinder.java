@@ -54,7 +54,7 @@ public class VariableBinder {
   /**
    * The default resolver accepts everything and resolves all values to themselves.
    */
-  private final static VariableResolver DEFAULT_RESOLVER = new VariableResolver() {
+  final static VariableResolver DEFAULT_RESOLVER = new VariableResolver() {
     public boolean exists(String value) { return true; }
     public Object resolve(String value) { return value; }
   };
@@ -102,6 +102,21 @@ public class VariableBinder {
     this._bytype.put(type, resolver);
   }
 
+  /**
+   * Binds the variables typed <code>int</code>, <code>long</code> and <code>boolean</code> to the
+   * corresponding primitive resolvers.
+   *
+   * <p>The values of these variables can then be read from the result without creating any
+   * object, using {@link URIResolveResult#getInt(String)} for example.
+   *
+   * @see VariableResolverPrimitive
+   */
+  public void bindPrimitiveTypes() {
+    this._bytype.put("int", VariableResolverPrimitive.INT);
+    this._bytype.put("long", VariableResolverPrimitive.LONG);
+    this._bytype.put("boolean", VariableResolverPrimitive.BOOLEAN);
+  }
+
   /**
    * Returns the resolver used for the variable of the specified name or type.
    *
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A constraint on the values a variable can match in a URI pattern.
+ *
+ * <p>A constraint restricts the value of a variable as it appears in the URI, before it is
+ * decoded. It can limit the characters of the value, its length, or the values themselves:
+ * <pre>
+ *   VariableConstraint.digits().withLength(1, 9);
+ *   VariableConstraint.chars("a-z0-9-");
+ *   VariableConstraint.values("asc", "desc");
+ * </pre>
+ *
+ * <p>The length is the number of characters or escape sequences in the value.
+ *
+ * <p>Instances of this class are immutable.
+ *
+ * @see VariableConstraintRegistry
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class VariableConstraint {
+
+  /**
+   * The characters allowed in the value, indexed by ASCII code; <code>null</code> for any
+   * unreserved character or escape sequence.
+   */
+  private final boolean[] _chars;
+
+  /**
+   * The minimum length of the value.
+   */
+  private final int _min;
+
+  /**
+   * The maximum length of the value.
+   */
+  private final int _max;
+
+  /**
+   * The allowed values; <code>null</code> if any value is allowed.
+   */
+  private final String[] _values;
+
+  /**
+   * The regular expression corresponding to this constraint.
+   */
+  private final String _regex;
+
+  /**
+   * Creates a new constraint.
+   */
+  private VariableConstraint(boolean[] chars, int min, int max, String[] values) {
+    this._chars = chars;
+    this._min = min;
+    this._max = max;
+    this._values = values;
+    this._regex = toRegex(chars, min, max, values);
+  }
+
+  /**
+   * Returns a constraint with the specified properties.
+   *
+   * <p>This method is used to load constraints which were created using the public methods, so
+   * the properties are not checked.
+   *
+   * @param chars  The characters allowed, indexed by ASCII code (may be <code>null</code>)
+   * @param min    The minimum length of the value.
+   * @param max    The maximum length of the value.
+   * @param values The allowed values (may be <code>null</code>)
+   *
+   * @return the corresponding constraint.
+   */
+  static VariableConstraint of(boolean[] chars, int min, int max, String[] values) {
+    return new VariableConstraint(chars, min, max, values);
+  }
+
+  /**
+   * Returns a constraint allowing only digits.
+   *
+   * @return a constraint allowing only digits.
+   */
+  public static VariableConstraint digits() {
+    return chars("0-9");
+  }
+
+  /**
+   * Returns a constraint allowing only the specified characters.
+   *
+   * <p>The characters are listed as in a regular expression character class, so
+   * <code>"a-z0-9_"</code> allows lower case letters, digits and the underscore. A '-' at the
+   * start or end of the list is not a range. Escape sequences are not allowed.
+   *
+   * @param chars The characters allowed.
+   *
+   * @return the corresponding constraint.
+   *
+   * @throws IllegalArgumentException If no character or a character which is not an unreserved
+   *         character is allowed.
+   */
+  public static VariableConstraint chars(String chars) {
+    boolean[] allowed = new boolean[128];
+    for (int i = 0; i < chars.length(); i++) {
+      char from = chars.charAt(i);
+      char to = from;
+      if (i + 2 < chars.length() && chars.charAt(i+1) == '-') {
+        to = chars.charAt(i+2);
+        i += 2;
+      }
+      if (to < from)
+        throw new IllegalArgumentException("Invalid range of characters " + from + '-' + to);
+      for (char c = from; c <= to; c++) {
+        if (!URICoder.isUnreserved(c))
+          throw new IllegalArgumentException("Only unreserved characters can be allowed: " + c);
+        allowed[c] = true;
+      }
+    }
+    if (chars.length() == 0)
+      throw new IllegalArgumentException("At least one character must be allowed");
+    return new VariableConstraint(allowed, 1, Integer.MAX_VALUE, null);
+  }
+
+  /**
+   * Returns a constraint allowing any value with a length within the specified bounds.
+   *
+   * @param min The minimum length of the value.
+   * @param max The maximum length of the value.
+   *
+   * @return the corresponding constraint.
+   *
+   * @throws IllegalArgumentException If the minimum is negative or greater than the maximum.
+   */
+  public static VariableConstraint length(int min, int max) {
+    checkLength(min, max);
+    return new VariableConstraint(null, Math.max(min, 1), max, null);
+  }
+
+  /**
+   * Returns a constraint allowing only the specified values.
+   *
+   * @param values The values allowed, as they appear in the URI.
+   *
+   * @return the corresponding constraint.
+   *
+   * @throws IllegalArgumentException If no value is specified or a value is not a valid value.
+   */
+  public static VariableConstraint values(String... values) {
+    if (values.length == 0)
+      throw new IllegalArgumentException("At least one value must be allowed");
+    for (String value : values) {
+      if (!Variable.isValidValue(value))
+        throw new IllegalArgumentException("Not a valid variable value: " + value);
+    }
+    return new VariableConstraint(null, 1, Integer.MAX_VALUE, values.clone());
+  }
+
+  /**
+   * Returns a constraint which also limits the length of the value.
+   *
+   * @param min The minimum length of the value.
+   * @param max The maximum length of the value.
+   *
+   * @return the corresponding constraint.
+   *
+   * @throws IllegalArgumentException If the minimum is negative or greater than the maximum, or
+   *         if the bounds do not overlap the current bounds.
+   */
+  public VariableConstraint withLength(int min, int max) {
+    checkLength(min, max);
+    int from = Math.max(this._min, Math.max(min, 1));
+    int to = Math.min(this._max, max);
+    if (from > to)
+      throw new IllegalArgumentException("The length bounds do not overlap " + this._min + ".." + this._max);
+    if (this._values == null)
+      return new VariableConstraint(this._chars, from, to, null);
+    List<String> values = new ArrayList<String>();
+    for (String value : this._values) {
+      int length = length(value, 0, value.length());
+      if (length >= from && length <= to) values.add(value);
+    }
+    return new VariableConstraint(null, from, to, values.toArray(new String[values.size()]));
+  }
+
+  /**
+   * Indicates whether the specified value satisfies this constraint.
+   *
+   * @param value The value as it appears in the URI.
+   *
+   * @return <code>true</code> if the value is allowed; <code>false</code> otherwise.
+   */
+  public boolean matches(String value) {
+    return value != null && Variable.isValidValue(value) && matches(value, 0, value.length());
+  }
+
+  /**
+   * Indicates whether the region of the URI satisfies this constraint.
+   *
+   * <p>The region must be a valid variable value.
+   *
+   * @param uri   The URI.
+   * @param start The start of the value (inclusive).
+   * @param end   The end of the value (exclusive).
+   *
+   * @return <code>true</code> if the value is allowed; <code>false</code> otherwise.
+   */
+  boolean matches(String uri, int start, int end) {
+    if (this._values != null) {
+      for (String value : this._values) {
+        if (value.length() == end - start && uri.regionMatches(start, value, 0, value.length()))
+          return true;
+      }
+      return false;
+    }
+    if (this._chars != null) {
+      for (int i = start; i < end; i++) {
+        char c = uri.charAt(i);
+        if (c >= 128 || !this._chars[c]) return false;
+      }
+    }
+    int length = this._chars != null ? end - start : length(uri, start, end);
+    return length >= this._min && length <= this._max;
+  }
+
+  /**
+   * Returns the characters allowed in the value, the returned array must not be modified.
+   *
+   * @return the characters allowed indexed by ASCII code or <code>null</code> for any character.
+   */
+  boolean[] allowedChars() {
+    return this._chars;
+  }
+
+  /**
+   * Returns the minimum length of the value.
+   *
+   * @return the minimum length of the value.
+   */
+  int minLength() {
+    return this._min;
+  }
+
+  /**
+   * Returns the maximum length of the value.
+   *
+   * @return the maximum length of the value.
+   */
+  int maxLength() {
+    return this._max;
+  }
+
+  /**
+   * Returns the allowed values, the returned array must not be modified.
+   *
+   * @return the allowed values or <code>null</code> if any value is allowed.
+   */
+  String[] allowedValues() {
+    return this._values;
+  }
+
+  /**
+   * Returns the regular expression matching the values satisfying this constraint.
+   *
+   * <p>The regular expression does not contain any capturing group.
+   *
+   * @return the regular expression for this constraint.
+   */
+  public String regex() {
+    return this._regex;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) return true;
+    if (!(o instanceof VariableConstraint)) return false;
+    return this._regex.equals(((VariableConstraint)o)._regex);
+  }
+
+  @Override
+  public int hashCode() {
+    return this._regex.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return this._regex;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Checks that the length bounds are valid.
+   */
+  private static void checkLength(int min, int max) {
+    if (min < 0 || max < min)
+      throw new IllegalArgumentException("Invalid length bounds " + min + ".." + max);
+  }
+
+  /**
+   * Returns the number of characters or escape sequences in the value.
+   */
+  private static int length(String value, int start, int end) {
+    int length = 0;
+    for (int i = start; i < end; length++) {
+      i += value.charAt(i) == '%' ? 3 : 1;
+    }
+    return length;
+  }
+
+  /**
+   * Returns the regular expression for the specified constraint.
+   */
+  private static String toRegex(boolean[] chars, int min, int max, String[] values) {
+    StringBuilder regex = new StringBuilder();
+    if (values != null) {
+      regex.append("(?:");
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) regex.append('|');
+        regex.append(Pattern.quote(values[i]));
+      }
+      // no values left after restricting the length
+      if (values.length == 0) regex.append("(?!)");
+      return regex.append(')').toString();
+    }
+    if (chars != null) {
+      regex.append('[');
+      for (char c = 0; c < chars.length; c++) {
+        if (!chars[c]) continue;
+        if (c == '-') regex.append('\\');
+        regex.append(c);
+      }
+      regex.append(']');
+    } else {
+      regex.append("(?:[\\w.~-]|%[0-9A-F]{2})");
+    }
+    if (min == 1 && max == Integer.MAX_VALUE) {
+      regex.append('+');
+    } else {
+      regex.append('{').append(min).append(',');
+      if (max != Integer.MAX_VALUE) regex.append(max);
+      regex.append('}');
+    }
+    return regex.toString();
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.Hashtable;
+import java.util.Map;
+
+/**
+ * Maps variable types to the constraints on the values they can match.
+ *
+ * <p>When a URI pattern is created with a registry, the constraint registered for the type of
+ * each variable is compiled into the pattern, so that a URI with a value which does not satisfy
+ * the constraint does not match the pattern at all. This is faster than rejecting the value
+ * with a {@link VariableResolver} after the pattern has been selected, and lets the next pattern
+ * be selected instead.
+ *
+ * <p>The following example restricts all variables typed <code>int</code> to digits:
+ * <pre>
+ *   VariableConstraintRegistry registry = new VariableConstraintRegistry();
+ *   registry.register("int", VariableConstraint.digits().withLength(1, 9));
+ *   URIPattern pattern = new URIPattern("/document/{int:id}", registry);
+ * </pre>
+ *
+ * <p>Constraints apply to simple variables only, not to the variables of operators.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class VariableConstraintRegistry {
+
+  /**
+   * Maps a variable types to a constraint.
+   */
+  private final Map<String, VariableConstraint> _bytype = new Hashtable<String, VariableConstraint>();
+
+  /**
+   * Registers the constraint for the variables of the specified type.
+   *
+   * @param type       The variable type.
+   * @param constraint The constraint on the values of these variables.
+   *
+   * @return this registry.
+   *
+   * @throws NullPointerException If the type or constraint is <code>null</code>.
+   */
+  public VariableConstraintRegistry register(String type, VariableConstraint constraint) {
+    this._bytype.put(type, constraint);
+    return this;
+  }
+
+  /**
+   * Returns the constraint for the variables of the specified type.
+   *
+   * @param type The type of the variable (may be <code>null</code>).
+   *
+   * @return the corresponding constraint or <code>null</code> if none was registered.
+   */
+  public VariableConstraint getConstraint(VariableType type) {
+    if (type == null) return null;
+    return this._bytype.get(type.getName());
+  }
+
+  /**
+   * Indicates whether a constraint is registered for the specified variable type.
+   *
+   * @param type The variable type.
+   *
+   * @return <code>true</code> if a constraint is registered for the type;
+   *         <code>false</code> otherwise (including if the type is <code>null</code>).
+   */
+  public boolean isTypeRegistered(String type) {
+    if (type == null) return false;
+    return this._bytype.containsKey(type);
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of variables which can find a variable by name in a region of a string.
+ *
+ * <p>The names are indexed in a small open-addressing table so that parameter names can be looked
+ * up while parsing a URI without creating a string for each name.
+ *
+ * <p>If several variables have the same name, the first one is found.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+final class VariableList extends AbstractList<Variable> implements RandomAccess {
+
+  /**
+   * The variables.
+   */
+  private final Variable[] _vars;
+
+  /**
+   * The open-addressing table, each slot contains the index of a variable plus one, or zero.
+   */
+  private final int[] _slots;
+
+  /**
+   * Creates a new list from the specified variables.
+   *
+   * @param vars The variables.
+   *
+   * @throws NullPointerException If the list or any variable is <code>null</code>.
+   */
+  VariableList(List<Variable> vars) {
+    this._vars = vars.toArray(new Variable[vars.size()]);
+    int capacity = 4;
+    while (capacity < this._vars.length * 2) {
+      capacity <<= 1;
+    }
+    this._slots = new int[capacity];
+    for (int i = 0; i < this._vars.length; i++) {
+      String name = this._vars[i].name();
+      if (indexOf(name, 0, name.length()) < 0) {
+        int slot = hash(name, 0, name.length()) & (capacity - 1);
+        while (this._slots[slot] != 0) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        this._slots[slot] = i + 1;
+      }
+    }
+  }
+
+  /**
+   * Returns the specified list as a variable list.
+   *
+   * @param vars The variables.
+   *
+   * @return the same list if it is already a variable list or a new variable list.
+   */
+  static VariableList of(List<Variable> vars) {
+    return vars instanceof VariableList ? (VariableList)vars : new VariableList(vars);
+  }
+
+  @Override
+  public Variable get(int index) {
+    return this._vars[index];
+  }
+
+  @Override
+  public int size() {
+    return this._vars.length;
+  }
+
+  /**
+   * Returns the index of the variable whose name is the specified region of a string.
+   *
+   * @param s     The string containing the name.
+   * @param start The start of the name (inclusive).
+   * @param end   The end of the name (exclusive).
+   *
+   * @return the index of the variable or <code>-1</code> if there is no variable with that name.
+   */
+  int indexOf(String s, int start, int end) {
+    int mask = this._slots.length - 1;
+    int length = end - start;
+    for (int slot = hash(s, start, end) & mask; this._slots[slot] != 0; slot = (slot + 1) & mask) {
+      int index = this._slots[slot] - 1;
+      String name = this._vars[index].name();
+      if (name.length() == length && name.regionMatches(0, s, start, length))
+        return index;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the hash of the specified region of a string.
+   */
+  private static int hash(String s, int start, int end) {
+    int h = 0;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+/**
+ * A variable resolver accepting only the values of a primitive type.
+ *
+ * <p>When a variable in a URI pattern is bound to one of these resolvers, the resolver checks the
+ * value directly in the URI and the object is only created if it is requested: use the typed
+ * accessors of the result such as {@link URIResolveResult#getInt(String)} to read the value
+ * without creating any string or boxed object.
+ * <pre>
+ *  VariableBinder binder = new VariableBinder();
+ *  binder.bindType("int", VariableResolverPrimitive.INT);
+ *
+ *  URIResolveResult result = new URIResolveResult();
+ *  resolver.resolve(uri, new URIPattern("/group/{int:id}/home"), binder, result);
+ *  int id = result.getInt("id");
+ * </pre>
+ *
+ * @see VariableBinder#bindPrimitiveTypes()
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public final class VariableResolverPrimitive implements VariableResolver {
+
+  /**
+   * Accepts decimal values within the range of an <code>int</code> and resolves them to an
+   * <code>Integer</code>.
+   */
+  public static final VariableResolverPrimitive INT = new VariableResolverPrimitive(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+  /**
+   * Accepts decimal values within the range of a <code>long</code> and resolves them to a
+   * <code>Long</code>.
+   */
+  public static final VariableResolverPrimitive LONG = new VariableResolverPrimitive(Long.MIN_VALUE, Long.MAX_VALUE);
+
+  /**
+   * Accepts "true" or "false" ignoring case and resolves them to a <code>Boolean</code>.
+   */
+  public static final VariableResolverPrimitive BOOLEAN = new VariableResolverPrimitive(1, 0);
+
+  /**
+   * The minimum value.
+   */
+  private final long _min;
+
+  /**
+   * The maximum value, less than the minimum for booleans.
+   */
+  private final long _max;
+
+  /**
+   * Creates a new resolver.
+   */
+  private VariableResolverPrimitive(long min, long max) {
+    this._min = min;
+    this._max = max;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean exists(String value) {
+    return value != null && exists(value, 0, value.length());
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @return an <code>Integer</code>, <code>Long</code> or <code>Boolean</code> or <code>null</code>.
+   */
+  public Object resolve(String value) {
+    if (!exists(value)) return null;
+    if (this == BOOLEAN) return Boolean.valueOf(toBoolean(value, 0, value.length()));
+    long n = toLong(value, 0, value.length());
+    return this == INT ? (Object)Integer.valueOf((int)n) : (Object)Long.valueOf(n);
+  }
+
+  @Override
+  public String toString() {
+    return this == INT ? "int" : this == LONG ? "long" : "boolean";
+  }
+
+  // package private helpers --------------------------------------------------
+
+  /**
+   * Indicates whether the region of the URI is a value of this type.
+   *
+   * <p>Values containing escape sequences are decoded first.
+   *
+   * @param uri   The URI.
+   * @param start The start of the value (inclusive).
+   * @param end   The end of the value (exclusive).
+   *
+   * @return <code>true</code> if the value can be resolved; <code>false</code> otherwise.
+   */
+  boolean exists(String uri, int start, int end) {
+    int escape = uri.indexOf('%', start);
+    if (escape >= 0 && escape < end) {
+      String value = URICoder.decode(uri.substring(start, end));
+      return exists(value, 0, value.length(), this._min, this._max);
+    }
+    return exists(uri, start, end, this._min, this._max);
+  }
+
+  /**
+   * Indicates whether the region of the string is a decimal number within the specified bounds
+   * or a boolean if the bounds are inverted.
+   */
+  static boolean exists(String s, int start, int end, long min, long max) {
+    if (min > max)
+      return isBoolean(s, start, end);
+    if (start >= end) return false;
+    boolean negative = s.charAt(start) == '-';
+    int i = negative || s.charAt(start) == '+' ? start + 1 : start;
+    if (i == end) return false;
+    // accumulate negatively to reach Long.MIN_VALUE, as Long.parseLong does
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long n = 0;
+    for (; i < end; i++) {
+      int d = s.charAt(i) - '0';
+      if (d < 0 || d > 9 || n < limit / 10) return false;
+      n *= 10;
+      if (n < limit + d) return false;
+      n -= d;
+    }
+    if (!negative) n = -n;
+    return n >= min && n <= max;
+  }
+
+  /**
+   * Returns the decimal number in the region of the string which must be valid.
+   */
+  static long toLong(String s, int start, int end) {
+    boolean negative = s.charAt(start) == '-';
+    int i = negative || s.charAt(start) == '+' ? start + 1 : start;
+    long n = 0;
+    for (; i < end; i++) {
+      n = n * 10 - (s.charAt(i) - '0');
+    }
+    return negative ? n : -n;
+  }
+
+  /**
+   * Indicates whether the region of the string is "true" or "false" ignoring case.
+   */
+  static boolean isBoolean(String s, int start, int end) {
+    return (end - start == 4 && s.regionMatches(true, start, "true", 0, 4))
+        || (end - start == 5 && s.regionMatches(true, start, "false", 0, 5));
+  }
+
+  /**
+   * Returns the boolean in the region of the string which must be valid.
+   */
+  static boolean toBoolean(String s, int start, int end) {
+    return end - start == 4;
+  }
+
+}
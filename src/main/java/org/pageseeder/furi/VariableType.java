@@ -15,8 +15,6 @@
  */
 package org.pageseeder.furi;
 
-import java.util.regex.Pattern;
-
 /**
  * Defines a variable type.
  *
@@ -31,11 +29,6 @@ import java.util.regex.Pattern;
  */
 public class VariableType {
 
-  /**
-   * The pattern for a valid variable name.
-   */
-  private static final Pattern VALID_NAME = Pattern.compile("[a-zA-Z0-9][\\w.-]*");
-
   /**
    * The name of this variable type.
    */
@@ -93,9 +86,8 @@ public class VariableType {
    * @return <code>true</code> if the name is valid; <code>false</code> otherwise.
    */
   protected static boolean isValidName(String name) {
-    if (name == null)
-      return false;
-    return VALID_NAME.matcher(name).matches();
+    // same rules as variable names
+    return Variable.isValidName(name);
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The values of a variable during expansion, read directly from the object supplied by the
+ * parameters.
+ *
+ * <p>The values can be an array, including an array of primitives, an <code>Iterable</code>,
+ * a <code>Map</code> or a single object. Arrays, random access lists and single objects are
+ * read in place, so most expansions do not allocate anything to read the values. Maps and
+ * other iterables are wrapped in an instance of this class, which reads the entries of a map
+ * as alternating keys and values, as expected for associative arrays, without flattening the
+ * map into an array.
+ *
+ * <p>Values are best read in order: iterables are iterated again only when an earlier value
+ * is requested. Instances must not be shared between threads.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+final class VariableValues extends AbstractList<Object> implements RandomAccess {
+
+  /**
+   * The values or map entries to iterate over.
+   */
+  private final Iterable<?> _iterable;
+
+  /**
+   * Whether the elements are the entries of a map.
+   */
+  private final boolean _map;
+
+  /**
+   * The number of values.
+   */
+  private final int _size;
+
+  /**
+   * The iterator over the elements of the iterable.
+   */
+  private Iterator<?> _cursor;
+
+  /**
+   * The number of elements returned by the cursor.
+   */
+  private int _position;
+
+  /**
+   * The last element returned by the cursor.
+   */
+  private Object _current;
+
+  /**
+   * Creates the values of an iterable.
+   *
+   * @param iterable The values or map entries.
+   * @param map      Whether the elements are the entries of a map.
+   * @param size     The number of values.
+   */
+  private VariableValues(Iterable<?> iterable, boolean map, int size) {
+    this._iterable = iterable;
+    this._map = map;
+    this._size = size;
+  }
+
+  /**
+   * Returns the values from the object supplied by the parameters in a form that can be read
+   * by index.
+   *
+   * <p>Arrays, random access lists and single objects are returned as they are.
+   *
+   * @param value An array, an <code>Iterable</code>, a <code>Map</code> or a single value.
+   *
+   * @return The values to use with {@link #size(Object)} and {@link #get(Object, int)}.
+   */
+  static Object of(Object value) {
+    if (value instanceof Map<?, ?>)
+      return new VariableValues(((Map<?, ?>)value).entrySet(), true, ((Map<?, ?>)value).size() * 2);
+    if (value instanceof List<?> && value instanceof RandomAccess)
+      return value;
+    if (value instanceof Collection<?>)
+      return new VariableValues((Collection<?>)value, false, ((Collection<?>)value).size());
+    if (value instanceof Iterable<?>) {
+      int size = 0;
+      for (Iterator<?> i = ((Iterable<?>)value).iterator(); i.hasNext(); i.next()) {
+        size++;
+      }
+      return new VariableValues((Iterable<?>)value, false, size);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the number of values, twice the number of entries for a map.
+   *
+   * @param values The values returned by {@link #of(Object)}.
+   *
+   * @return the number of values.
+   */
+  static int size(Object values) {
+    if (values instanceof Object[]) return ((Object[])values).length;
+    if (values instanceof List<?>) return ((List<?>)values).size();
+    if (values != null && values.getClass().isArray()) return Array.getLength(values);
+    return 1;
+  }
+
+  /**
+   * Returns the value at the specified index as a string.
+   *
+   * <p>For a map, even indexes return the keys and odd indexes the values.
+   *
+   * @param values The values returned by {@link #of(Object)}.
+   * @param index  The index of the value.
+   *
+   * @return The value as a string, an empty string if the value is <code>null</code>.
+   *
+   * @throws IndexOutOfBoundsException If the index is out of range.
+   */
+  static String get(Object values, int index) {
+    Object o;
+    if (values instanceof Object[]) {
+      o = ((Object[])values)[index];
+    } else if (values instanceof List<?>) {
+      o = ((List<?>)values).get(index);
+    } else if (values != null && values.getClass().isArray()) {
+      o = Array.get(values, index);
+    } else if (index == 0) {
+      o = values;
+    } else throw new IndexOutOfBoundsException("Index: "+index+", Size: 1");
+    return o != null ? o.toString() : "";
+  }
+
+  /**
+   * Returns the value at the specified index.
+   *
+   * <p>For a map, even indexes return the keys and odd indexes the values.
+   */
+  @Override
+  public Object get(int index) {
+    if (index < 0 || index >= this._size)
+      throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this._size);
+    if (this._map) {
+      Map.Entry<?, ?> entry = (Map.Entry<?, ?>)element(index / 2);
+      return index % 2 == 0 ? entry.getKey() : entry.getValue();
+    }
+    return element(index);
+  }
+
+  @Override
+  public int size() {
+    return this._size;
+  }
+
+  // private helpers ----------------------------------------------------------
+
+  /**
+   * Returns the element of the iterable at the specified index.
+   */
+  private Object element(int index) {
+    if (this._cursor == null || index < this._position - 1) {
+      this._cursor = this._iterable.iterator();
+      this._position = 0;
+    }
+    while (this._position <= index) {
+      this._current = this._cursor.next();
+      this._position++;
+    }
+    return this._current;
+  }
+
+}
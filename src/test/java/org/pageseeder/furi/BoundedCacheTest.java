@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>BoundedCache</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class BoundedCacheTest extends TestCase {
+
+  /**
+   * Test the <code>get</code> and <code>put</code> methods.
+   */
+  public void testGetPut() {
+    BoundedCache<String, String> cache = new BoundedCache<String, String>(10, 0);
+    assertNull(cache.get("a"));
+    cache.put("a", "1");
+    assertEquals("1", cache.get("a"));
+    cache.put("a", "2");
+    assertEquals("2", cache.get("a"));
+    assertEquals(1, cache.size());
+    cache.clear();
+    assertNull(cache.get("a"));
+  }
+
+  /**
+   * Test that the least recently used entries are evicted.
+   */
+  public void testEviction() {
+    BoundedCache<String, String> cache = new BoundedCache<String, String>(3, 0);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.put("c", "3");
+    cache.get("a");
+    cache.put("d", "4");
+    assertEquals(3, cache.size());
+    assertNull(cache.get("b"));
+    assertEquals("1", cache.get("a"));
+    assertEquals("4", cache.get("d"));
+  }
+
+  /**
+   * Test that the size is bounded when the cache is split in segments.
+   */
+  public void testEviction_Segments() {
+    BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(1000, 0);
+    for (int i = 0; i < 10000; i++) {
+      cache.put(i, i);
+    }
+    assertTrue(cache.size() <= 1000);
+    assertEquals(Integer.valueOf(9999), cache.get(9999));
+  }
+
+  /**
+   * Test that entries expire.
+   */
+  public void testExpiry() throws InterruptedException {
+    BoundedCache<String, String> cache = new BoundedCache<String, String>(10, 20);
+    cache.put("a", "1");
+    assertEquals("1", cache.get("a"));
+    Thread.sleep(50);
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.size());
+  }
+
+}
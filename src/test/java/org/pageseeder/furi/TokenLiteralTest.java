@@ -77,6 +77,18 @@ public class TokenLiteralTest extends TestCase {
     assertPatternIsOK("http://pageseeder.com/user/clauret/home");
   }
 
+  /**
+   * Test the <code>match</code> method at a given offset.
+   */
+  public void testMatchOffset() {
+    TokenLiteral t = new TokenLiteral("/home");
+    assertTrue(t.match("/home", 0));
+    assertTrue(t.match("/user/home", 5));
+    assertFalse(t.match("/user/home", 4));
+    assertFalse(t.match("/hom", 0));
+    assertFalse(t.match("/home", -1));
+  }
+
   // private helpers
   // --------------------------------------------------------------------------
 
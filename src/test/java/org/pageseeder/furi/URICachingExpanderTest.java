@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URICachingExpander</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URICachingExpanderTest extends TestCase {
+
+  /**
+   * Test the variables reported by the template.
+   */
+  public void testVariables() {
+    List<Variable> variables = new URITemplate("http://{host}/{group}/{host}{?q,group,tag}").variables();
+    assertEquals(4, variables.size());
+    assertEquals("host", variables.get(0).name());
+    assertEquals("group", variables.get(1).name());
+    assertEquals("q", variables.get(2).name());
+    assertEquals("tag", variables.get(3).name());
+    assertTrue(new URITemplate("/home").variables().isEmpty());
+  }
+
+  /**
+   * Test that the cached URI is returned for the same values.
+   */
+  public void testExpand() {
+    URITemplate template = new URITemplate("/group/{group}/search{?q}");
+    URICachingExpander expander = new URICachingExpander(template, 10);
+    URIParameters parameters = new URIParameters();
+    parameters.set("group", "dev");
+    parameters.set("q", "a&b");
+    String uri = expander.expand(parameters);
+    assertEquals(template.expand(parameters), uri);
+    assertEquals(1, expander.size());
+    assertSame(uri, expander.expand(parameters));
+    // parameters not used by the template are ignored
+    parameters.set("other", "x");
+    assertSame(uri, expander.expand(parameters));
+    assertEquals(1, expander.size());
+    // different values
+    parameters.set("q", "c");
+    assertEquals("/group/dev/search?q=c", expander.expand(parameters));
+    assertEquals(2, expander.size());
+    expander.clear();
+    assertEquals(0, expander.size());
+  }
+
+  /**
+   * Test that unspecified variables are distinguished from variables without values.
+   */
+  public void testExpand_Unspecified() {
+    URITemplate template = new URITemplate("/search{?q}");
+    URICachingExpander expander = new URICachingExpander(template, 10);
+    URIParameters parameters = new URIParameters();
+    assertEquals(template.expand(parameters), expander.expand(parameters));
+    parameters.set("q", "");
+    assertEquals(template.expand(parameters), expander.expand(parameters));
+    assertEquals(template.expand(null), expander.expand(null));
+    assertEquals(2, expander.size());
+  }
+
+  /**
+   * Test that the cache is bounded.
+   */
+  public void testExpand_Bounded() {
+    URITemplate template = new URITemplate("/tag/{tag}");
+    URICachingExpander expander = new URICachingExpander(template, 10);
+    URIParameters parameters = new URIParameters();
+    for (int i = 0; i < 100; i++) {
+      parameters.set("tag", "t" + i);
+      assertEquals("/tag/t" + i, expander.expand(parameters));
+    }
+    assertTrue(expander.size() <= 10);
+  }
+
+  /**
+   * Test that the values are copied so that later changes do not affect the cache.
+   */
+  public void testExpand_Copy() {
+    URITemplate template = new URITemplate("/list{/list}");
+    URICachingExpander expander = new URICachingExpander(template, 10);
+    URIParameters parameters = new URIParameters();
+    String[] list = new String[]{"a", "b"};
+    parameters.set("list", list);
+    assertEquals(template.expand(parameters), expander.expand(parameters));
+    list[1] = "c";
+    assertEquals(template.expand(parameters), expander.expand(parameters));
+  }
+
+}
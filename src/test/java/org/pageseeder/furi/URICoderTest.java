@@ -15,6 +15,11 @@
  */
 package org.pageseeder.furi;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
 import junit.framework.TestCase;
 
 /**
@@ -121,6 +126,17 @@ public class URICoderTest extends TestCase {
     assertEquals("Caf\u00E9 $1", URICoder.decode("Caf%C3%A9+$1"));
   }
 
+  /**
+   * Test the <code>decode</code> method with malformed escape sequences.
+   */
+  public void testDecode_Malformed() {
+    assertEquals("%zz", URICoder.decode("%zz"));
+    assertEquals("%-1% 1", URICoder.decode("%-1%+1"));
+    assertEquals("a%2", URICoder.decode("a%2"));
+    assertEquals("%", URICoder.decode("%"));
+    assertEquals("Caf\u00E9%", URICoder.decode("Caf%C3%A9%"));
+  }
+
   /**
    * Test the <code>decode</code> method for all unreserved characters.
    */
@@ -154,6 +170,38 @@ public class URICoderTest extends TestCase {
     assertEquals("Caf\u00E9?", URICoder.decode("Caf%C3%A9%3F"));
   }
 
+  /**
+   * Test that encoding to bytes produces the UTF-8 bytes of the encoded string.
+   */
+  public void testEncode_Bytes() throws IOException {
+    String[] strings = {
+      "", "abc", "a b&c", getURange(0x00, 0x7F), getURange(0x80, 0x7FF), getURange(0x800, 0xD7FF),
+      "Caf\u00E9", "Cafe\u0301", "\uFB01", "\uFDFA", "\uD83D\uDE00", "a\uD83Db", "\uDE00"
+    };
+    for (String s : strings) {
+      byte[] expected = URICoder.encode(s).getBytes("UTF-8");
+      ByteBuffer bb = ByteBuffer.allocate(expected.length);
+      URICoder.encode(s, bb);
+      assertEquals(expected.length, bb.position());
+      assertEquals(new String(expected, "UTF-8"), new String(bb.array(), "UTF-8"));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      URICoder.encode(s, out);
+      assertEquals(new String(expected, "UTF-8"), new String(out.toByteArray(), "UTF-8"));
+    }
+  }
+
+  /**
+   * Test that encoding to a writer produces the encoded string.
+   */
+  public void testEncode_Writer() throws IOException {
+    String[] strings = { "", "abc", "a b&c", "%", "a%", getURange(0x00, 0x7F), "Caf\u00E9" };
+    for (String s : strings) {
+      StringWriter out = new StringWriter();
+      URICoder.encode(s, out);
+      assertEquals(URICoder.encode(s), out.toString());
+    }
+  }
+
   // Helpers ====================================================================
 
   /**
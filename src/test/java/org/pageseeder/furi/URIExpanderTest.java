@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIExpander</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIExpanderTest extends TestCase {
+
+  /**
+   * The templates to test.
+   */
+  private static final String[] TEMPLATES = {
+    "",
+    "/home",
+    "/group/{group}/home",
+    "http://{host}/{group}/{user=anonymous}",
+    "/tag/{tag}",
+    "/search{?q,tag}",
+    "/documents{;label,version}",
+    "/path/{+path}/comments",
+    "/list{/list}",
+    "/{x,y}",
+    "/document/*"
+  };
+
+  /**
+   * Test that the expander produces the same result as the template.
+   */
+  public void testExpand() {
+    Parameters parameters = new URIParameters();
+    parameters.set("group", "dev");
+    parameters.set("host", "acme.com");
+    parameters.set("tag", "Café crème");
+    parameters.set("q", "a&b");
+    parameters.set("label", "technical");
+    parameters.set("path", "dir/sub dir/doc.xml");
+    parameters.set("list", new String[]{"a", "b", "c"});
+    parameters.set("x", "1024");
+    parameters.set("y", "768");
+    parameters.set("*", "doc.xml");
+    for (String t : TEMPLATES) {
+      URITemplate template = new URITemplate(t);
+      URIExpander expander = new URIExpander(template);
+      assertEquals(template.expand(parameters), expander.expand(parameters));
+    }
+  }
+
+  /**
+   * Test that the expander produces the same result as the template without parameters.
+   */
+  public void testExpand_NoParameters() {
+    for (String t : TEMPLATES) {
+      URITemplate template = new URITemplate(t);
+      URIExpander expander = new URIExpander(template);
+      assertEquals(template.expand(null), expander.expand(null));
+      assertEquals(template.expand(new URIParameters()), expander.expand(new URIParameters()));
+    }
+  }
+
+  /**
+   * Test that the default value is used.
+   */
+  public void testExpand_Default() {
+    URIExpander expander = new URIExpander(new URITemplate("/{user=John%20Smith}/home"));
+    assertEquals("/John%2520Smith/home", expander.expand(new URIParameters()));
+  }
+
+  /**
+   * Test the <code>expand</code> method appending to a buffer.
+   */
+  public void testExpand_Buffer() {
+    URIExpander expander = new URIExpander(new URITemplate("/group/{group}/home"));
+    Parameters parameters = new URIParameters();
+    parameters.set("group", "dev");
+    StringBuilder uri = new StringBuilder("http://acme.com");
+    expander.expand(parameters, uri);
+    assertEquals("http://acme.com/group/dev/home", uri.toString());
+  }
+
+  /**
+   * Test that the expander produces the UTF-8 bytes of the expanded URI.
+   */
+  public void testExpand_Bytes() throws IOException {
+    Parameters parameters = new URIParameters();
+    parameters.set("group", "d\u00E9v");
+    parameters.set("host", "acme.com");
+    parameters.set("tag", "Caf\u00E9 cr\u00E8me");
+    parameters.set("q", "a&b");
+    parameters.set("list", new String[]{"a", "b", "\uD83D\uDE00"});
+    parameters.set("x", "1024");
+    for (String t : TEMPLATES) {
+      URIExpander expander = new URIExpander(new URITemplate(t));
+      String expected = expander.expand(parameters);
+      ByteBuffer bb = ByteBuffer.allocate(256);
+      expander.expand(parameters, bb);
+      assertEquals(expected, new String(bb.array(), 0, bb.position(), "UTF-8"));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      expander.expand(parameters, out);
+      assertEquals(expected, new String(out.toByteArray(), "UTF-8"));
+      out.reset();
+      expander.expand(null, out);
+      assertEquals(expander.expand(null), new String(out.toByteArray(), "UTF-8"));
+    }
+  }
+
+  /**
+   * Test that the expander reports when the buffer is too small.
+   */
+  public void testExpand_BytesOverflow() {
+    URIExpander expander = new URIExpander(new URITemplate("/group/{group}/home"));
+    Parameters parameters = new URIParameters();
+    parameters.set("group", "development");
+    try {
+      expander.expand(parameters, ByteBuffer.allocate(8));
+      fail("The buffer should be too small");
+    } catch (BufferOverflowException ex) {
+      assertTrue(true);
+    }
+  }
+
+  /**
+   * Test the <code>expandAll</code> method using columns.
+   */
+  public void testExpandAll_Columns() throws IOException {
+    URITemplate template = new URITemplate("/group/{group}/search{?q,tag}");
+    URIExpander expander = new URIExpander(template);
+    String[] names = new String[]{"group", "q", "unused"};
+    String[][] columns = new String[][]{
+      {"dev", "ops", "Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9 Caf\u00E9"},
+      {"a&b", null, ""},
+      {"x", "y", "z"}
+    };
+    StringWriter out = new StringWriter();
+    assertEquals(3, expander.expandAll(names, columns, out, "\n"));
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 3; i++) {
+      URIParameters parameters = new URIParameters();
+      for (int j = 0; j < names.length; j++) {
+        if (columns[j][i] != null) parameters.set(names[j], columns[j][i]);
+      }
+      expected.append(template.expand(parameters)).append('\n');
+    }
+    assertEquals(expected.toString(), out.toString());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    assertEquals(3, expander.expandAll(names, columns, bytes, "\n"));
+    assertEquals(expected.toString(), new String(bytes.toByteArray(), "UTF-8"));
+  }
+
+  /**
+   * Test the <code>expandAll</code> method using rows.
+   */
+  public void testExpandAll_Rows() throws IOException {
+    URIExpander expander = new URIExpander(new URITemplate("/{x}/{y=0}"));
+    String[] names = new String[]{"y", "x"};
+    String[][] rows = new String[][]{{"1", "a"}, {null, "b"}, {"3", "c d"}};
+    StringWriter out = new StringWriter();
+    assertEquals(3, expander.expandAll(names, Arrays.asList(rows).iterator(), out, ","));
+    assertEquals("/a/1,/b/0,/c%20d/3,", out.toString());
+  }
+
+  /**
+   * Test the <code>expandAll</code> method with columns of different sizes.
+   */
+  public void testExpandAll_Invalid() throws IOException {
+    URIExpander expander = new URIExpander(new URITemplate("/{x}/{y}"));
+    try {
+      expander.expandAll(new String[]{"x", "y"}, new String[][]{{"a"}, {}}, new StringWriter(), "");
+      fail("Columns of different sizes should be rejected");
+    } catch (IllegalArgumentException ex) {
+      assertTrue(true);
+    }
+  }
+
+  /**
+   * Test the <code>expandAll</code> method in parallel.
+   */
+  public void testExpandAll_Parallel() {
+    URIExpander expander = new URIExpander(new URITemplate("/item/{id}{?page}"));
+    int rows = URIExpander.PARALLEL_THRESHOLD * 3;
+    String[][] columns = new String[2][rows];
+    for (int i = 0; i < rows; i++) {
+      columns[0][i] = "i" + i;
+      columns[1][i] = i % 2 == 0 ? Integer.toString(i) : null;
+    }
+    String[] uris = expander.expandAll(new String[]{"id", "page"}, columns, ForkJoinPool.commonPool());
+    assertEquals(rows, uris.length);
+    for (int i = 0; i < rows; i++) {
+      assertEquals("/item/i" + i + (i % 2 == 0 ? "?page=" + i : ""), uris[i]);
+    }
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIParametersAdapter</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIParametersAdapterTest extends TestCase {
+
+  /**
+   * A bean with getters.
+   */
+  public static final class Document {
+    private final String title;
+    private final long id;
+    private final boolean draft;
+    public Document(String title, long id, boolean draft) {
+      this.title = title;
+      this.id = id;
+      this.draft = draft;
+    }
+    public String getTitle() { return this.title; }
+    public long getId() { return this.id; }
+    public boolean isDraft() { return this.draft; }
+  }
+
+  /**
+   * A class with accessors named after its fields, like a record.
+   */
+  static final class Member {
+    private final String name;
+    private final List<String> groups;
+    final int age;
+    Member(String name, List<String> groups, int age) {
+      this.name = name;
+      this.groups = groups;
+      this.age = age;
+    }
+    public String name() { return this.name; }
+    public List<String> groups() { return this.groups; }
+  }
+
+  /**
+   * A class with an array of primitives.
+   */
+  public static final class Folder {
+    public final int[] ids;
+    public Folder(int... ids) { this.ids = ids; }
+  }
+
+  /**
+   * A class counting how many times its accessor is invoked.
+   */
+  public static final class Counter {
+    private int reads = 0;
+    public String getName() { this.reads++; return "john"; }
+  }
+
+  /**
+   * Test expanding a bean.
+   */
+  public void testExpand_Bean() {
+    URITemplate template = new URITemplate("/document/{id}/{title}?draft={draft}&{missing=x}");
+    URIParametersAdapter<Document> adapter = new URIParametersAdapter<Document>(template, Document.class);
+    assertEquals("/document/12345678901/my%20title?draft=true&x", adapter.expand(new Document("my title", 12345678901L, true)));
+    assertEquals("/document/1/?draft=false&x", adapter.expand(new Document(null, 1, false)));
+    assertSame(template, adapter.template());
+    assertSame(Document.class, adapter.type());
+  }
+
+  /**
+   * Test expanding a class with record-like accessors and fields.
+   */
+  public void testExpand_Accessors() {
+    URITemplate template = new URITemplate("/member/{name}/{age}{?groups}");
+    URIParametersAdapter<Member> adapter = new URIParametersAdapter<Member>(template, Member.class);
+    Member member = new Member("john", Arrays.asList("a", "b"), 42);
+    assertEquals(new URIExpander(template).expand(toParameters(member)), adapter.expand(member));
+    Parameters parameters = adapter.wrap(member);
+    assertEquals("john", parameters.getValue("name"));
+    assertEquals("42", parameters.getValue("age"));
+    assertEquals("a", parameters.getValue("groups"));
+    assertTrue(Arrays.equals(new String[]{"a", "b"}, parameters.getValues("groups")));
+    assertTrue(parameters.exists("name"));
+    assertFalse(parameters.exists("other"));
+    assertEquals(3, parameters.names().size());
+  }
+
+  /**
+   * Test expanding an array of primitives.
+   */
+  public void testExpand_PrimitiveArray() {
+    URITemplate template = new URITemplate("/d{/ids}");
+    URIParametersAdapter<Folder> adapter = new URIParametersAdapter<Folder>(template, Folder.class);
+    assertEquals("/d/1/2", adapter.expand(new Folder(1, 2)));
+    assertTrue(Arrays.equals(new String[]{"1", "2"}, adapter.wrap(new Folder(1, 2)).getValues("ids")));
+  }
+
+  /**
+   * Test that the accessor is not invoked again for the same variable when expanding.
+   */
+  public void testExpand_ReadOnce() {
+    URITemplate template = new URITemplate("/member/{name}{?name}");
+    URIParametersAdapter<Counter> adapter = new URIParametersAdapter<Counter>(template, Counter.class);
+    Counter counter = new Counter();
+    assertEquals("/member/john?name=john", adapter.expand(counter));
+    assertEquals(1, counter.reads);
+  }
+
+  /**
+   * Test expanding a map.
+   */
+  @SuppressWarnings("rawtypes")
+  public void testExpand_Map() {
+    URITemplate template = new URITemplate("/member/{name}/{age}");
+    URIParametersAdapter<Map> adapter = new URIParametersAdapter<Map>(template, Map.class);
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("name", "john");
+    values.put("age", Integer.valueOf(42));
+    assertEquals("/member/john/42", adapter.expand(values));
+  }
+
+  /**
+   * Test that the parameters cannot be modified.
+   */
+  public void testWrap_ReadOnly() {
+    URIParametersAdapter<Member> adapter = new URIParametersAdapter<Member>(new URITemplate("/{name}"), Member.class);
+    try {
+      adapter.wrap(new Member("john", null, 1)).set("name", "jane");
+      fail("Read-only");
+    } catch (UnsupportedOperationException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Test that a member which cannot be made accessible is reported as an illegal argument.
+   */
+  public void testNew_Inaccessible() {
+    try {
+      new URIParametersAdapter<String>(new URITemplate("/{hash}"), String.class);
+    } catch (IllegalArgumentException ex) {
+      // expected on Java 9+ since java.lang is not open
+    }
+  }
+
+  /**
+   * Returns the parameters for the member.
+   */
+  private static Parameters toParameters(Member member) {
+    URIParameters parameters = new URIParameters();
+    parameters.set("name", member.name());
+    parameters.set("age", Integer.toString(member.age));
+    parameters.set("groups", member.groups().toArray(new String[0]));
+    return parameters;
+  }
+
+}
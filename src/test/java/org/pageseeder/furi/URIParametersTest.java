@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIParameters</code> and its views.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIParametersTest extends TestCase {
+
+  /**
+   * Test the view of a map.
+   */
+  public void testView_Map() {
+    Map<String, String[]> map = new HashMap<String, String[]>();
+    map.put("q", new String[]{"furi"});
+    Parameters parameters = URIParameters.view(map);
+    assertEquals("furi", parameters.getValue("q"));
+    assertFalse(parameters.exists("page"));
+    // changes are reflected
+    map.put("page", new String[]{"2"});
+    assertEquals("2", parameters.getValue("page"));
+    assertEquals(2, parameters.names().size());
+    assertEquals("/search?q=furi&page=2", new URITemplate("/search?q={q}&page={page}").expand(parameters));
+    try {
+      parameters.set("q", "other");
+      fail("Read-only");
+    } catch (UnsupportedOperationException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Test the view of a function.
+   */
+  public void testView_Function() {
+    Parameters parameters = URIParameters.view(name -> name.equals("id") ? new String[]{"12", "13"} : null);
+    assertEquals("12", parameters.getValue("id"));
+    assertTrue(Arrays.equals(new String[]{"12", "13"}, parameters.getValues("id")));
+    assertTrue(parameters.hasValue("id"));
+    assertFalse(parameters.exists("name"));
+    assertTrue(parameters.names().isEmpty());
+  }
+
+  /**
+   * Test the view of a query string.
+   */
+  public void testView_Query() {
+    Parameters parameters = URIParameters.viewQuery("?q=furi+java&tag=a&tag=b&empty&a%20b=%C3%A9&=x");
+    assertEquals("furi java", parameters.getValue("q"));
+    assertTrue(Arrays.equals(new String[]{"a", "b"}, parameters.getValues("tag")));
+    assertTrue(parameters.exists("empty"));
+    assertFalse(parameters.hasValue("empty"));
+    assertEquals("é", parameters.getValue("a b"));
+    assertNull(parameters.getValues("other"));
+    assertNull(parameters.getValues("other"));
+    assertEquals(Arrays.asList("q", "tag", "empty", "a b"), Arrays.asList(parameters.names().toArray()));
+    assertTrue(URIParameters.viewQuery("").names().isEmpty());
+    assertEquals("furi", URIParameters.viewQuery("q=furi").getValue("q"));
+  }
+
+}
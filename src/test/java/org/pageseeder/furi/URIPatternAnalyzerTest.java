@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pageseeder.furi.URIPatternAnalyzer.Conflict;
+import org.pageseeder.furi.URIPatternAnalyzer.Kind;
+import org.pageseeder.furi.URIResolver.MatchRule;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIPatternAnalyzer</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIPatternAnalyzerTest extends TestCase {
+
+  /**
+   * Test the <code>intersects</code> method.
+   */
+  public void testIntersects() {
+    assertTrue(intersects("/a/{x}", "/a/b"));
+    assertTrue(intersects("/{x}.html", "/a{y}"));
+    assertTrue(intersects("/a/{+x}", "/{y}/b"));
+    assertTrue(intersects("/search{?q}", "/search?q={q}"));
+    assertFalse(intersects("/a/{x}", "/b/{x}"));
+    assertFalse(intersects("/a/{x}", "/a/{x}/b"));
+    assertFalse(intersects("/{x}.html", "/{x}.xml"));
+    assertFalse(intersects("/a{/s}", "/a{?q}"));
+    assertFalse(intersects("/a/{x}", "/a/"));
+  }
+
+  /**
+   * Test the <code>includes</code> method.
+   */
+  public void testIncludes() {
+    assertTrue(includes("/a/{x}", "/a/b"));
+    assertTrue(includes("/{+p}", "/a/{x}/b"));
+    assertTrue(includes("/a{/s}", "/a/{x}/{y}"));
+    assertTrue(includes("/{x}", "/{x}{y}"));
+    assertTrue(includes("/search{?q,r}", "/search{?r}"));
+    assertFalse(includes("/a/b", "/a/{x}"));
+    assertFalse(includes("/a/{x}", "/a/{+x}"));
+    assertFalse(includes("/search{?q}", "/search{?q,r}"));
+  }
+
+  /**
+   * Test the <code>conflicts</code> method.
+   */
+  public void testConflicts() {
+    List<URIPattern> patterns = toPatterns("/a/{x}", "/a/b", "/a/{y}", "/{z}/b", "/c/{x}");
+    List<Conflict> conflicts = new URIPatternAnalyzer(patterns).conflicts();
+    assertEquals(5, conflicts.size());
+    assertConflict(Kind.SHADOWED, "/a/b", "/a/{x}", conflicts.get(0));
+    assertConflict(Kind.DUPLICATE, "/a/{y}", "/a/{x}", conflicts.get(1));
+    assertConflict(Kind.AMBIGUOUS, "/{z}/b", "/a/{x}", conflicts.get(2));
+    assertConflict(Kind.AMBIGUOUS, "/{z}/b", "/a/{y}", conflicts.get(3));
+    assertConflict(Kind.AMBIGUOUS, "/c/{x}", "/{z}/b", conflicts.get(4));
+  }
+
+  /**
+   * Test the <code>suggestOrder</code> method.
+   */
+  public void testSuggestOrder() {
+    List<URIPattern> patterns = toPatterns("/home", "/a/{x}", "/group/{g}/home", "/group/{g}/list", "/{+path}", "/a/b");
+    Map<URIPattern, Long> hits = new HashMap<URIPattern, Long>();
+    hits.put(patterns.get(3), Long.valueOf(1000));
+    hits.put(patterns.get(1), Long.valueOf(10));
+    hits.put(patterns.get(5), Long.valueOf(100));
+    List<URIPattern> order = new URIPatternAnalyzer(patterns).suggestOrder(hits);
+    assertEquals(patterns.size(), order.size());
+    // patterns must stay after the earlier patterns they intersect with
+    assertEquals("/group/{g}/list", order.get(0).toString());
+    assertEquals("/a/{x}", order.get(1).toString());
+    assertEquals("/group/{g}/home", order.get(2).toString());
+    assertEquals("/home", order.get(3).toString());
+    assertEquals("/{+path}", order.get(4).toString());
+    assertEquals("/a/b", order.get(5).toString());
+    // the first match must be the same
+    for (String uri : new String[]{"/home", "/a/b", "/a", "/group/dev/list", "/group/dev/home", "/other"}) {
+      URIResolver resolver = new URIResolver(uri);
+      assertSame(resolver.find(patterns, MatchRule.FIRST_MATCH), resolver.find(order, MatchRule.FIRST_MATCH));
+    }
+  }
+
+  // private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Indicates whether the patterns intersect, checking that the result is symmetric.
+   */
+  private static boolean intersects(String a, String b) {
+    boolean ab = URIPatternAnalyzer.intersects(new URIPattern(a), new URIPattern(b));
+    assertEquals(ab, URIPatternAnalyzer.intersects(new URIPattern(b), new URIPattern(a)));
+    return ab;
+  }
+
+  /**
+   * Indicates whether the first pattern includes the second.
+   */
+  private static boolean includes(String a, String b) {
+    return URIPatternAnalyzer.includes(new URIPattern(a), new URIPattern(b));
+  }
+
+  /**
+   * Returns the list of patterns.
+   */
+  private static List<URIPattern> toPatterns(String... patterns) {
+    List<URIPattern> list = new ArrayList<URIPattern>();
+    for (String p : patterns) {
+      list.add(new URIPattern(p));
+    }
+    return list;
+  }
+
+  /**
+   * Asserts that the conflict is as expected.
+   */
+  private static void assertConflict(Kind kind, String pattern, String earlier, Conflict conflict) {
+    assertEquals(kind, conflict.kind());
+    assertEquals(pattern, conflict.pattern().toString());
+    assertEquals(earlier, conflict.earlier().toString());
+  }
+
+}
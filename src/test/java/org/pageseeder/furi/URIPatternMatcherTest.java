@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.regex.Matcher;
+
+import org.pageseeder.furi.TokenFactory.Syntax;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIPatternMatcher</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIPatternMatcherTest extends TestCase {
+
+  /**
+   * Test that the matcher is available for matchable tokens only.
+   */
+  public void testCompile_Unsupported() {
+    assertNull(URIPatternMatcher.compile(URITemplate.digest("/x{-join|&|a,b}", TokenFactory.getInstance(Syntax.DRAFT3))));
+    assertNotNull(URIPatternMatcher.compile(new URIPattern("/search{?q}").tokens()));
+    assertNotNull(URIPatternMatcher.compile(new URIPattern("/documents{;label}").tokens()));
+    assertNotNull(URIPatternMatcher.compile(new URIPattern("/group/{group}/home").tokens()));
+    assertNotNull(URIPatternMatcher.compile(new URIPattern("/path/{+path}").tokens()));
+    assertNotNull(URIPatternMatcher.compile(new URIPattern("/list{/list}").tokens()));
+    assertNotNull(URIPatternMatcher.compile(new URIPattern("/document/*").tokens()));
+  }
+
+  /**
+   * Test that the matcher records the same offsets as the regular expression.
+   */
+  public void testMatch_Offsets() {
+    assertSameAsRegex("/group/{group}/home", "/group/dev/home");
+    assertSameAsRegex("/group/{group}/home", "/group/dev/list");
+    assertSameAsRegex("/{name}.html", "/index.html");
+    assertSameAsRegex("/{name}.html", "/index.xml.html");
+    assertSameAsRegex("/{a}{b}", "/abc");
+    assertSameAsRegex("/tag/{tag}", "/tag/Caf%C3%A9");
+    assertSameAsRegex("/tag/{tag}", "/tag/Caf%C3%E");
+    assertSameAsRegex("/path/{+path}/comments", "/path/dir/subdir/document.xml/comments");
+    assertSameAsRegex("/path/{+path}/comments", "/path/dir/comments/comments");
+    assertSameAsRegex("/list{/list}/edit", "/list/a/b/c/edit");
+    assertSameAsRegex("/list{/list}", "/list");
+    assertSameAsRegex("/{x,y}/home", "/a/home");
+    assertSameAsRegex("/document/*", "/document/dir/doc.xml");
+  }
+
+  /**
+   * Test that the matcher records the same offsets as the regular expression for parameters.
+   */
+  public void testMatch_OffsetsParameters() {
+    assertSameAsRegex("/search{?q,tag}", "/search?q=a&tag=b");
+    assertSameAsRegex("/search{?q,tag}", "/search?q=a&&tag=b=c");
+    assertSameAsRegex("/search{?q,tag}", "/search?q=a&other=b");
+    assertSameAsRegex("/search{?q,tag}", "/search");
+    assertSameAsRegex("/search{?q}#top", "/search?q=a#top");
+    assertSameAsRegex("/search{?q}x", "/search?q=axq=x");
+    assertSameAsRegex("/search{?q}&", "/search?q=a&q=b&");
+    assertSameAsRegex("/documents{;label,version}", "/documents;label=a;version=2");
+    assertSameAsRegex("/documents{;label,version}", "/documents;;label=a;other");
+    assertSameAsRegex("/documents{;label}/edit", "/documents;label=a/edit");
+    assertSameAsRegex("/documents{;label};", "/documents;label=a;;");
+    assertSameAsRegex("/documents{;label}{?q}", "/documents;label=a?q=b");
+  }
+
+  /**
+   * Test that the matcher reports when the maximum number of steps is exceeded.
+   */
+  public void testMatch_MaxSteps() {
+    URIPattern p = new URIPattern("/{+a}/{+b}/x");
+    URIPatternMatcher matcher = URIPatternMatcher.compile(p.tokens());
+    String uri = "/a/a/a/a/a/a/a/a/x";
+    assertTrue(matcher.match(uri, null, 100));
+    assertFalse(matcher.match(uri.substring(0, uri.length() - 1) + "y", null, 100));
+    try {
+      matcher.match(uri, null, 1);
+      fail("The maximum number of steps should be exceeded");
+    } catch (URIMatchLimitException ex) {
+      // expected
+    }
+  }
+
+  // private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Asserts that the matcher and the regular expression produce the same result.
+   */
+  private void assertSameAsRegex(String pattern, String uri) {
+    URIPattern p = new URIPattern(pattern);
+    URIPatternMatcher matcher = URIPatternMatcher.compile(p.tokens());
+    int[] offsets = new int[p.tokens().size() * 2];
+    Matcher m = p.pattern().matcher(uri);
+    boolean matches = m.matches();
+    assertEquals(matches, matcher.match(uri, offsets));
+    if (matches) {
+      // only non-literal tokens are captured
+      int group = 0;
+      for (int i = 0; i < p.tokens().size(); i++) {
+        if (p.tokens().get(i) instanceof TokenLiteral) continue;
+        group++;
+        assertEquals(m.start(group), offsets[i * 2]);
+        assertEquals(m.end(group), offsets[i * 2 + 1]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIPatternStore</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIPatternStoreTest extends TestCase {
+
+  /**
+   * Test that patterns are the same after being written and read.
+   */
+  public void testRoundTrip() throws IOException {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/home"));
+    patterns.add(new URIPattern("/group/{int:groupid}/home"));
+    patterns.add(new URIPattern("/group/{groupid}/list"));
+    patterns.add(new URIPattern("/path/{+path}"));
+    patterns.add(new URIPattern("/documents{;label,version}"));
+    patterns.add(new URIPattern("/search{?q,@tag}"));
+    patterns.add(new URIPattern("/document/*"));
+    List<URIPattern> loaded = roundTrip(patterns);
+    assertEquals(patterns.size(), loaded.size());
+    for (int i = 0; i < patterns.size(); i++) {
+      URIPattern p = patterns.get(i);
+      URIPattern l = loaded.get(i);
+      assertEquals(p, l);
+      assertEquals(p.score(), l.score());
+      assertEquals(p.pattern().pattern(), l.pattern().pattern());
+      assertEquals(p.tokens().size(), l.tokens().size());
+    }
+  }
+
+  /**
+   * Test that variable types are preserved.
+   */
+  public void testRoundTrip_Types() throws IOException {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/a/{int:x}"));
+    patterns.add(new URIPattern("/b/{x}"));
+    List<URIPattern> loaded = roundTrip(patterns);
+    Variable x1 = ((TokenVariable)loaded.get(0).tokens().get(1)).getVariable();
+    Variable x2 = ((TokenVariable)loaded.get(1).tokens().get(1)).getVariable();
+    assertEquals("int", x1.type().getName());
+    assertNull(x2.type());
+  }
+
+  /**
+   * Test that loaded patterns resolve URIs.
+   */
+  public void testRoundTrip_Resolve() throws IOException {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/home"));
+    patterns.add(new URIPattern("/path/{+path}"));
+    patterns.add(new URIPattern("/document/*"));
+    List<URIPattern> loaded = roundTrip(patterns);
+    URIResolver resolver = new URIResolver("/document/doc.xml");
+    URIPattern p = resolver.find(loaded);
+    assertEquals("/document/*", p.toString());
+    assertEquals("doc.xml", resolver.resolve(p).get("*"));
+  }
+
+  /**
+   * Test that invalid data is rejected.
+   */
+  public void testRead_Invalid() {
+    boolean thrown = false;
+    try {
+      URIPatternStore.read(new ByteArrayInputStream("/home\n".getBytes()));
+    } catch (IOException ex) {
+      thrown = true;
+    }
+    assertTrue(thrown);
+  }
+
+  /**
+   * Test that data with an unknown operator is rejected.
+   */
+  public void testRead_UnknownOperator() throws IOException {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/path/{+path}"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    URIPatternStore.write(patterns, out);
+    byte[] data = out.toByteArray();
+    // replace the operator character with one which does not exist
+    int found = 0;
+    for (int i = 1; i < data.length; i++) {
+      if (data[i-1] == 0 && data[i] == '+') {
+        data[i] = '!';
+        found++;
+      }
+    }
+    assertEquals(1, found);
+    boolean thrown = false;
+    try {
+      URIPatternStore.read(new ByteArrayInputStream(data));
+    } catch (IOException ex) {
+      thrown = true;
+    }
+    assertTrue(thrown);
+  }
+
+  /**
+   * Test that data with indexes out of range is rejected.
+   */
+  public void testRead_InvalidIndex() throws IOException {
+    // a single string and a literal token using a string which does not exist
+    assertCorrupt(new byte[]{ 'F', 'U', 'R', 'I', 1, 1, 0, 1, 'x', 1, 0, 5, 0 });
+    // a pattern using a token which does not exist
+    assertCorrupt(new byte[]{ 'F', 'U', 'R', 'I', 1, 1, 0, 1, 'x', 1, 0, 0, 1, 0, 1, 1, 3 });
+    // a negative number
+    assertCorrupt(new byte[]{ 'F', 'U', 'R', 'I', 1, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F });
+  }
+
+  /**
+   * Test that the constraints of patterns are preserved.
+   */
+  public void testRoundTrip_Constrained() throws IOException {
+    VariableConstraintRegistry registry = new VariableConstraintRegistry();
+    registry.register("int", VariableConstraint.digits().withLength(1, 9));
+    registry.register("slug", VariableConstraint.chars("a-z0-9-"));
+    registry.register("order", VariableConstraint.values("asc", "desc"));
+    registry.register("code", VariableConstraint.length(2, 3));
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/home"));
+    patterns.add(new URIPattern("/document/{int:id}/{order:order}", registry));
+    patterns.add(new URIPattern("/group/{slug:group}/{code:code}", registry));
+    patterns.add(new URIPattern("/group/{int:id}", registry));
+    List<URIPattern> loaded = roundTrip(patterns);
+    for (int i = 0; i < patterns.size(); i++) {
+      assertEquals(patterns.get(i), loaded.get(i));
+      assertEquals(patterns.get(i).pattern().pattern(), loaded.get(i).pattern().pattern());
+    }
+    assertTrue(loaded.get(1).match("/document/123/asc"));
+    assertFalse(loaded.get(1).match("/document/123/up"));
+    assertFalse(loaded.get(1).match("/document/1234567890/asc"));
+    assertTrue(loaded.get(2).match("/group/dev-1/ab"));
+    assertFalse(loaded.get(2).match("/group/Dev/ab"));
+    assertFalse(loaded.get(2).match("/group/dev/abcd"));
+    assertFalse(loaded.get(3).match("/group/dev"));
+  }
+
+  // private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Asserts that reading the data throws an <code>IOException</code>.
+   */
+  private static void assertCorrupt(byte[] data) {
+    try {
+      URIPatternStore.read(new ByteArrayInputStream(data));
+      fail("The data should be rejected");
+    } catch (IOException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Writes the patterns and reads them back.
+   */
+  private static List<URIPattern> roundTrip(List<URIPattern> patterns) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    URIPatternStore.write(patterns, out);
+    return URIPatternStore.read(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+}
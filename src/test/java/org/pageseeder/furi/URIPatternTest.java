@@ -132,4 +132,26 @@ public class URIPatternTest extends TestCase {
     assertTrue(y.match("http://acme.com/filter;y=1;z=2/list"));
   }
 
+  /**
+   * Test the <code>match</code> method with a pattern made only of literal text
+   */
+  public void testMatch_Literal() {
+    URIPattern x = new URIPattern("/home");
+    assertTrue(x.match("/home"));
+    assertFalse(x.match("/home/"));
+    assertFalse(x.match("/hom"));
+    assertFalse(x.match(""));
+  }
+
+  /**
+   * Test the <code>match</code> method with literal text before and after a variable
+   */
+  public void testMatch_PrefixSuffix() {
+    URIPattern x = new URIPattern("/a/{x}/b");
+    assertTrue(x.match("/a/z/b"));
+    assertFalse(x.match("/a/b"));
+    assertFalse(x.match("/a/z/c"));
+    assertFalse(x.match("/b/z/b"));
+  }
+
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class matching URI patterns against long or hostile URIs.
+ *
+ * <p>Each URI is crafted to cause heavy backtracking and is matched within a time limit which
+ * is orders of magnitude above the expected time, in order to detect super-linear behaviour
+ * without making the tests sensitive to the speed of the machine.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIPatternWorstCaseTest extends TestCase {
+
+  /**
+   * The time limit for matching a URI in milliseconds.
+   */
+  private static final long TIME_LIMIT = 1000;
+
+  /**
+   * The number of repetitions in each URI.
+   */
+  private static final int SIZE = 2000;
+
+  /**
+   * Query parameter values which contain parameters.
+   */
+  public void testQueryParameters() {
+    String uri = "/search?" + repeat("q=", SIZE) + "!";
+    assertBounded(false, "/search{?q}/end", uri);
+    assertBounded(true, "/search{?q}!", uri);
+    assertBounded(false, "/search{?q,r}/end", "/search?" + repeat("q=&r=&&", SIZE));
+  }
+
+  /**
+   * Path parameter values which contain parameters.
+   */
+  public void testPathParameters() {
+    assertBounded(false, "/doc{;a,b}/end", "/doc" + repeat(";a=a=;b=", SIZE / 2) + "!");
+    assertBounded(true, "/doc{;a,b};", "/doc" + repeat(";a=a=;b=", SIZE / 2) + ";");
+  }
+
+  /**
+   * Path segments.
+   */
+  public void testPathSegments() {
+    assertBounded(false, "/list{/list}/end", "/list" + repeat("/a", SIZE) + "/en");
+    assertBounded(true, "/list{/list}/end", "/list" + repeat("/a", SIZE) + "/end");
+  }
+
+  /**
+   * Adjacent tokens which can end at many positions.
+   */
+  public void testAdjacentTokens() {
+    assertBounded(false, "/{a}{b}{c}!", "/" + repeat("a", SIZE * 4) + "?");
+    assertBounded(false, "/{+a}{+b}{+c}!", "/" + repeat("a", SIZE * 4) + "?");
+    assertBounded(false, "/{+a}/{+b}/{+c}/x", "/" + repeat("a/", SIZE * 2) + "y");
+    assertBounded(true, "/{+a}/{+b}/x", "/" + repeat("a/", SIZE * 2) + "x");
+  }
+
+  /**
+   * Regular expressions of tokens repeated for each segment or parameter.
+   */
+  public void testRegex_Repetitions() {
+    int size = SIZE * 10;
+    assertRegex(true, "/l{/list}/end", "/l" + repeat("/a", size) + "/end");
+    assertRegex(false, "/l{/list}/end", "/l" + repeat("/a", size) + "/en");
+    assertRegex(true, "/q{?a,b}", "/q?a=1" + repeat("&a=1&b=22&&", size));
+    assertRegex(true, "/q{?a}&", "/q?a=1" + repeat("&a=1", size) + "&");
+    assertRegex(false, "/q{?a}!", "/q?a=1" + repeat("&a=1", size) + "?");
+    assertRegex(true, "/d{;a,b}/end", "/d" + repeat(";a=1;b=22;", size) + "/end");
+    assertRegex(false, "/d{;a,b}/end", "/d" + repeat(";a=1;b=22;", size) + ";c=3/end");
+  }
+
+  /**
+   * URIs are matched regardless of their length by default.
+   */
+  public void testLongURI() {
+    String uri = "/q?a=" + repeat("a", 9000);
+    URIPattern pattern = new URIPattern("/q{?a}");
+    assertTrue(pattern.match(uri));
+    assertTrue(pattern.pattern().matcher(uri).matches());
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(pattern);
+    assertSame(pattern, new URIRouter(patterns).find(uri));
+  }
+
+  /**
+   * URIs exceeding the limits of a router are rejected.
+   */
+  public void testMatchLimits() {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/{+a}/{+b}/{c}"));
+    URIRouter router = new URIRouter(patterns);
+    router.setNegativeCache(10, 0);
+    router.setMatchLimits(50, 100);
+    assertNotNull(router.find("/a/b/c"));
+    assertNull(router.find("/a/b/%zz"));
+    assertLimited(router, "/" + repeat("a/", 25) + "c");
+    assertLimited(router, "/" + repeat("a/", 20) + "%zz");
+    // rejected URIs are not cached as misses
+    router.setMatchLimits(0, 0);
+    assertNotNull(router.find("/" + repeat("a/", 25) + "c"));
+    assertNull(router.find("/" + repeat("a/", 20) + "%zz"));
+    try {
+      router.setMatchLimits(-1, 0);
+      fail("Negative limit");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  // private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Asserts that the URI matches or not within the time limit.
+   */
+  private static void assertBounded(boolean expected, String pattern, String uri) {
+    URIPattern p = new URIPattern(pattern);
+    long start = System.nanoTime();
+    boolean matches = p.match(uri);
+    long time = (System.nanoTime() - start) / 1000000;
+    assertEquals(expected, matches);
+    assertTrue("Matching " + pattern + " took " + time + "ms", time < TIME_LIMIT);
+  }
+
+  /**
+   * Asserts that the regular expression of the pattern matches the URI or not within the time
+   * limit and agrees with the pattern.
+   */
+  private static void assertRegex(boolean expected, String pattern, String uri) {
+    URIPattern p = new URIPattern(pattern);
+    long start = System.nanoTime();
+    boolean matches = p.pattern().matcher(uri).matches();
+    long time = (System.nanoTime() - start) / 1000000;
+    assertEquals(expected, matches);
+    assertEquals(expected, p.match(uri));
+    assertTrue("Matching " + pattern + " took " + time + "ms", time < TIME_LIMIT);
+  }
+
+  /**
+   * Asserts that the router rejects the URI because of a limit.
+   */
+  private static void assertLimited(URIRouter router, String uri) {
+    try {
+      router.find(uri);
+      fail("The URI should exceed the limits");
+    } catch (URIMatchLimitException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Returns the string repeated the specified number of times.
+   */
+  private static String repeat(String s, int count) {
+    StringBuilder repeated = new StringBuilder(s.length() * count);
+    for (int i = 0; i < count; i++) {
+      repeated.append(s);
+    }
+    return repeated.toString();
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.pageseeder.furi.URIResolver.MatchRule;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIPrefilter</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIPrefilterTest extends TestCase {
+
+  /**
+   * The pieces used to generate URIs.
+   */
+  private static final String[] PIECES = {
+    "/", "/", "/", "home", "group", "dev", "doc.xml", "search", "?", "q=", "&", "#", ";", "a", "=",
+    "%20", "api", "status", "x", "-", "user"
+  };
+
+  /**
+   * Test that the filter rejects URIs which cannot match.
+   */
+  public void testMayMatch() {
+    URIPrefilter filter = new URIPrefilter(newPatterns());
+    assertTrue(filter.mayMatch("/home"));
+    assertTrue(filter.mayMatch("/group/dev/home"));
+    assertTrue(filter.mayMatch("/search?q=furi"));
+    assertTrue(filter.mayMatch("/user/john/profile.xml"));
+    assertFalse(filter.mayMatch("/wp-admin/login.php"));
+    assertFalse(filter.mayMatch("/favicon.ico"));
+    assertFalse(filter.mayMatch("/user/john/profile.json"));
+    assertFalse(filter.mayMatch(""));
+    assertFalse(new URIPrefilter(new ArrayList<URIPattern>()).mayMatch("/home"));
+  }
+
+  /**
+   * Test that the filter never rejects a URI matching a pattern.
+   */
+  public void testMayMatch_Random() {
+    List<URIPattern> patterns = newPatterns();
+    patterns.add(new URIPattern("/{+path}"));
+    patterns.add(new URIPattern("{x}/{y}"));
+    List<URIPattern> all = new ArrayList<URIPattern>(patterns);
+    URIPrefilter filter = new URIPrefilter(all);
+    Random random = new Random(42);
+    int rejected = 0;
+    for (int i = 0; i < 20000; i++) {
+      // alternate between all the patterns and the patterns without the catch-all ones
+      List<URIPattern> list = i % 2 == 0 ? all : all.subList(0, all.size() - 2);
+      URIPrefilter f = i % 2 == 0 ? filter : new URIPrefilter(list);
+      StringBuilder uri = new StringBuilder();
+      int n = random.nextInt(8);
+      for (int j = 0; j < n; j++) {
+        uri.append(PIECES[random.nextInt(PIECES.length)]);
+      }
+      String s = uri.toString();
+      if (new URIResolver(s).find(list, MatchRule.FIRST_MATCH) != null) {
+        assertTrue(s, f.mayMatch(s));
+      } else if (!f.mayMatch(s)) {
+        rejected++;
+      }
+    }
+    assertTrue(rejected > 0);
+  }
+
+  /**
+   * Returns a list of patterns for testing.
+   */
+  private static List<URIPattern> newPatterns() {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/home"));
+    patterns.add(new URIPattern("/group/{group}/home"));
+    patterns.add(new URIPattern("/group/home/{action}"));
+    patterns.add(new URIPattern("/group/{group}/{action}"));
+    patterns.add(new URIPattern("/document/{+path}"));
+    patterns.add(new URIPattern("/search{?q}"));
+    patterns.add(new URIPattern("/api/status"));
+    patterns.add(new URIPattern("/{area}/{name}/profile.xml"));
+    patterns.add(new URIPattern("/{area};{id}"));
+    return patterns;
+  }
+
+}
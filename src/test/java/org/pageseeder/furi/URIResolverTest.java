@@ -16,8 +16,11 @@
 package org.pageseeder.furi;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import org.pageseeder.furi.URIResolveResult.Status;
 import org.pageseeder.furi.URIResolver.MatchRule;
 
 import junit.framework.TestCase;
@@ -66,6 +69,34 @@ public class URIResolverTest extends TestCase {
     assertEquals(new URIPattern("/document/history/{+document}"), resolver.find(patterns, MatchRule.BEST_MATCH));
   }
 
+  /**
+   * Test the <code>find</code> and <code>findAll</code> methods using a pool.
+   */
+  public void testFind_Parallel() {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    for (int i = 0; i < URIResolver.PARALLEL_THRESHOLD * 3; i++) {
+      patterns.add(new URIPattern("/tenant" + i + "/{+path}"));
+      if (i % 1000 == 999) {
+        patterns.add(new URIPattern("/{tenant}/home"));
+        patterns.add(new URIPattern("/tenant" + i + "/home"));
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (String uri : new String[]{"/tenant10999/home", "/tenant5/home", "/tenant12000/home", "/other"}) {
+        URIResolver resolver = new URIResolver(uri);
+        assertSame(resolver.find(patterns, MatchRule.FIRST_MATCH), resolver.find(patterns, MatchRule.FIRST_MATCH, pool));
+        assertSame(resolver.find(patterns, MatchRule.BEST_MATCH), resolver.find(patterns, MatchRule.BEST_MATCH, pool));
+        assertEquals(new ArrayList<URIPattern>(resolver.findAll(patterns)), resolver.findAll(patterns, pool));
+      }
+      URIResolver resolver = new URIResolver("/tenant10999/home");
+      assertEquals("/tenant10999/home", resolver.find(patterns, MatchRule.BEST_MATCH, pool).toString());
+      assertEquals(14, resolver.findAll(patterns, pool).size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /**
    * Test the <code>resolve</code> method with some int values.
    */
@@ -95,6 +126,73 @@ public class URIResolverTest extends TestCase {
     assertEquals(1892, r.get("groupid"));
   }
 
+  /**
+   * Test the typed accessors with primitive resolvers.
+   */
+  public void testResolve_Primitive() {
+    VariableBinder b = new VariableBinder();
+    b.bindPrimitiveTypes();
+    URIPattern p = new URIPattern("/group/{int:groupid}/{long:ts}/{boolean:draft}");
+    URIResolveResult r = new URIResolveResult();
+    URIResolver resolver = new URIResolver("/group/1892/-1445000000000/TRUE");
+    assertEquals(Status.RESOLVED, resolver.resolve(resolver.uri(), p, b, r));
+    assertEquals(1892, r.getInt("groupid"));
+    assertEquals(-1445000000000L, r.getLong("ts"));
+    assertEquals(1892L, r.getLong("groupid"));
+    assertTrue(r.getBoolean("draft"));
+    assertEquals(Integer.valueOf(1892), r.get("groupid"));
+    assertEquals(Long.valueOf(-1445000000000L), r.get("ts"));
+    assertEquals(Boolean.TRUE, r.get("draft"));
+    assertEquals(1892, r.getInt("groupid"));
+    // values out of range or invalid are not resolved
+    assertEquals(Status.UNRESOLVED, resolver.resolve("/group/2147483648/1/false", p, b, r));
+    assertNull(r.get("groupid"));
+    assertEquals(7, r.getInt("groupid", 7));
+    assertFalse(r.getBoolean("draft"));
+    assertEquals(Status.UNRESOLVED, resolver.resolve("/group/1/9223372036854775808/false", p, b, r));
+    assertEquals(Status.UNRESOLVED, resolver.resolve("/group/1/2/yes", p, b, r));
+    assertEquals(Status.RESOLVED, resolver.resolve("/group/%31%32/-9223372036854775808/false", p, b, r));
+    assertEquals(12, r.getInt("groupid"));
+    assertEquals(Long.MIN_VALUE, r.getLong("ts"));
+  }
+
+  /**
+   * Test the typed accessors with the default resolver and other resolvers.
+   */
+  public void testResolve_TypedAccessors() {
+    URIPattern p = new URIPattern("/group/{groupid}/{name}/{flag}");
+    URIResolveResult r = new URIResolveResult();
+    URIResolver resolver = new URIResolver("/group/1892/home/false");
+    assertEquals(Status.RESOLVED, resolver.resolve(resolver.uri(), p, new VariableBinder(), r));
+    assertEquals(1892, r.getInt("groupid"));
+    assertEquals("1892", r.get("groupid"));
+    assertFalse(r.getBoolean("flag"));
+    assertEquals(5L, r.getLong("missing", 5L));
+    assertTrue(r.getBoolean("missing", true));
+    try {
+      r.getInt("name");
+      fail("Not an int");
+    } catch (NumberFormatException ex) {
+      // expected
+    }
+    try {
+      r.getInt("missing");
+      fail("No value");
+    } catch (NumberFormatException ex) {
+      // expected
+    }
+    try {
+      r.getBoolean("groupid");
+      fail("Not a boolean");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+    VariableBinder b = new VariableBinder();
+    b.bindName("groupid", new VariableResolverList(new String[]{"42"}));
+    assertEquals(Status.RESOLVED, resolver.resolve("/group/42/home/true", p, b, r));
+    assertEquals(42, r.getInt("groupid"));
+  }
+
   /**
    * Test the <code>resolve</code> method with some String values.
    */
@@ -224,6 +322,161 @@ public class URIResolverTest extends TestCase {
     assertEquals("dir/subdir/document.xml", r.get("path"));
   }
 
+  /**
+   * Test the <code>resolve</code> method with the query operator.
+   */
+  public void testResolve_OperatorQuery() {
+    URIResolver resolver = new URIResolver("/search?q=furi&page=2");
+    URIPattern p = new URIPattern("/search{?q,page}");
+    assertTrue(p.match(resolver.uri()));
+    URIResolveResult r = resolver.resolve(p);
+    assertEquals(URIResolveResult.Status.RESOLVED, r.getStatus());
+    assertEquals("furi", r.get("q"));
+    assertEquals("2",    r.get("page"));
+  }
+
+  /**
+   * Test the <code>resolve</code> method with literal text between variables.
+   */
+  public void testResolve_Literals() {
+    URIResolver resolver = new URIResolver("/group/dev/user/jsmith.html");
+    URIPattern p = new URIPattern("/group/{group}/user/{user}.html");
+    URIResolveResult r = resolver.resolve(p);
+    assertEquals(URIResolveResult.Status.RESOLVED, r.getStatus());
+    assertEquals("dev",    r.get("group"));
+    assertEquals("jsmith", r.get("user"));
+    assertEquals(URIResolveResult.Status.ERROR, resolver.resolve(new URIPattern("/group/{group}/home")).getStatus());
+  }
+
+  /**
+   * Test the <code>resolve</code> method with repeated query parameters.
+   */
+  public void testResolve_OperatorQueryRepeated() {
+    URIResolver resolver = new URIResolver("/search?tag=a&tag=b&q=furi");
+    URIPattern p = new URIPattern("/search{?q,tag}");
+    URIResolveResult r = resolver.resolve(p);
+    assertEquals(URIResolveResult.Status.RESOLVED, r.getStatus());
+    assertEquals("b", r.get("tag"));
+    assertEquals(Arrays.asList("a", "b"), r.getList("tag"));
+    assertEquals(Arrays.asList("furi"), r.getList("q", String.class));
+    assertTrue(r.getList("undefined").isEmpty());
+  }
+
+  /**
+   * Test the <code>resolve</code> method with query parameters which are encoded.
+   */
+  public void testResolve_OperatorQueryParse() {
+    URIResolver resolver = new URIResolver("/search?q=a%20b&&page=?q=2");
+    URIPattern p = new URIPattern("/search{?q,page}");
+    URIResolveResult r = resolver.resolve(p);
+    assertEquals(URIResolveResult.Status.RESOLVED, r.getStatus());
+    assertEquals("a b", r.get("q"));
+    assertEquals("?q=2", r.get("page"));
+    assertEquals(1, r.getList("q").size());
+  }
+
+  /**
+   * Test the <code>resolve</code> method with parameters containing malformed escape sequences.
+   */
+  public void testResolve_MalformedEscapes() {
+    URIResolveResult r = new URIResolver("/search?a=%zz").resolve(new URIPattern("/search{?a}"));
+    assertEquals(Status.RESOLVED, r.getStatus());
+    assertEquals("%zz", r.get("a"));
+    r = new URIResolver("/x;a=.%~3B;b=%-1%4").resolve(new URIPattern("/x{;a,b}"));
+    assertEquals(Status.RESOLVED, r.getStatus());
+    assertEquals(".%~3B", r.get("a"));
+    assertEquals("%-1%4", r.get("b"));
+    List<URIPattern> patterns = Arrays.asList(new URIPattern("/search{?a}"), new URIPattern("/x{;a,b}"));
+    URIRouter router = new URIRouter(patterns, MatchRule.FIRST_MATCH);
+    assertEquals("%zz", router.resolve("/search?a=%zz", new VariableBinder()).get("a"));
+    assertEquals(".%~3B", router.resolve("/x;a=.%~3B", new VariableBinder()).get("a"));
+  }
+
+  /**
+   * Test the <code>resolve</code> method with repeated path parameters.
+   */
+  public void testResolve_OperatorPathParamRepeated() {
+    URIResolver resolver = new URIResolver("/documents;label=a;version=1;label=b;label=c");
+    URIPattern p = new URIPattern("/documents{;label,version}");
+    URIResolveResult r = resolver.resolve(p);
+    assertEquals(URIResolveResult.Status.RESOLVED, r.getStatus());
+    assertEquals(Arrays.asList("a", "b", "c"), r.getList("label"));
+    assertEquals("1", r.get("version"));
+  }
+
+  /**
+   * Test the <code>resolve</code> method with a list variable for path segments.
+   */
+  public void testResolve_OperatorPathSegmentList() {
+    URIResolver resolver = new URIResolver("/ids/1/2/3");
+    URIPattern p = new URIPattern("/ids{/@int:ids}");
+    URIResolveResult r = resolver.resolve(p, intBinder());
+    assertEquals(URIResolveResult.Status.RESOLVED, r.getStatus());
+    List<Integer> ids = r.getList("ids", Integer.class);
+    assertEquals(Arrays.asList(Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3)), ids);
+    assertEquals(Integer.valueOf(3), r.get("ids"));
+  }
+
+  /**
+   * Test the <code>resolve</code> method with a list variable including values which do not resolve.
+   */
+  public void testResolve_OperatorPathSegmentListUnresolved() {
+    URIResolver resolver = new URIResolver("/ids/1/x/3");
+    URIPattern p = new URIPattern("/ids{/@int:ids}");
+    URIResolveResult r = resolver.resolve(p, intBinder());
+    assertEquals(URIResolveResult.Status.UNRESOLVED, r.getStatus());
+    assertEquals(3, r.getList("ids").size());
+    assertNull(r.getList("ids").get(1));
+  }
+
+  /**
+   * Test that a stateless resolver can reuse the same result.
+   */
+  public void testResolve_Reuse() {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/group/{group}/home"));
+    patterns.add(new URIPattern("/search{?q,tag}"));
+    URIResolver resolver = new URIResolver();
+    VariableBinder binder = new VariableBinder();
+    URIResolveResult result = new URIResolveResult();
+    assertNull(result.getURIPattern());
+
+    String uri = "/group/dev/home";
+    URIPattern p = resolver.find(uri, patterns, MatchRule.FIRST_MATCH);
+    assertEquals(URIResolveResult.Status.RESOLVED, resolver.resolve(uri, p, binder, result));
+    assertSame(p, result.getURIPattern());
+    assertEquals("dev", result.get("group"));
+
+    uri = "/search?tag=a&tag=b";
+    p = resolver.find(uri, patterns, MatchRule.BEST_MATCH);
+    assertEquals(URIResolveResult.Status.RESOLVED, resolver.resolve(uri, p, binder, result));
+    assertSame(p, result.getURIPattern());
+    assertNull(result.get("group"));
+    assertEquals(Arrays.asList("a", "b"), result.getList("tag"));
+    assertEquals(1, result.names().size());
+
+    assertEquals(URIResolveResult.Status.ERROR, resolver.resolve("/home", p, binder, result));
+    assertTrue(result.names().isEmpty());
+
+    result.reset();
+    assertNull(result.getURIPattern());
+    assertEquals(URIResolveResult.Status.UNRESOLVED, result.getStatus());
+  }
+
+  /**
+   * Test that results grow to fit patterns with many variables.
+   */
+  public void testResolve_ManyVariables() {
+    URIResolver resolver = new URIResolver();
+    URIResolveResult result = new URIResolveResult();
+    URIPattern p = new URIPattern("/{a}/{b}/{c}/{d}/{e}/{f}/{g}{?h,i}");
+    resolver.resolve("/1/2/3/4/5/6/7?h=8&i=9", p, new VariableBinder(), result);
+    assertEquals(URIResolveResult.Status.RESOLVED, result.getStatus());
+    assertEquals(9, result.names().size());
+    assertEquals("1", result.get("a"));
+    assertEquals("9", result.get("i"));
+  }
+
   /**
    *
    */
@@ -278,4 +531,19 @@ public class URIResolverTest extends TestCase {
 
   }
 
+  // private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Returns a binder resolving variables typed <code>int</code> to integers.
+   */
+  private static VariableBinder intBinder() {
+    VariableBinder b = new VariableBinder();
+    b.bindType("int", new VariableResolver(){
+      public boolean exists(String v) {return v.matches("\\d+");}
+      public Integer resolve(String v) {return exists(v)? Integer.valueOf(v) : null;};
+    });
+    return b;
+  }
+
 }
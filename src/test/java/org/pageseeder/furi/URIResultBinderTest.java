@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIResultBinder</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIResultBinderTest extends TestCase {
+
+  /**
+   * A class bound using its constructor.
+   */
+  static final class Document {
+    final String group;
+    final long id;
+    final boolean draft;
+    Document(String group, long id, boolean draft) {
+      this.group = group;
+      this.id = id;
+      this.draft = draft;
+    }
+    Document(String group) {
+      this(group, -1, false);
+    }
+  }
+
+  /**
+   * A class bound using its fields.
+   */
+  static class Member {
+    int id;
+    Integer page;
+    String name;
+    List<Object> tags;
+    String other = "unchanged";
+  }
+
+  /**
+   * A class bound using its fields including fields of its superclass.
+   */
+  static final class Admin extends Member {
+    Boolean active;
+  }
+
+  /**
+   * A class with an unsupported field type.
+   */
+  static final class Invalid {
+    double id;
+  }
+
+  /**
+   * Test binding to a constructor.
+   */
+  public void testBind_Constructor() {
+    URIPattern pattern = new URIPattern("/{group}/{long:id}/{boolean:draft}");
+    URIResultBinder<Document> binder = new URIResultBinder<Document>(pattern, Document.class);
+    VariableBinder variables = new VariableBinder();
+    variables.bindPrimitiveTypes();
+    URIResolveResult result = new URIResolveResult();
+    new URIResolver("/").resolve("/acme/12345678901/true", pattern, variables, result);
+    Document doc = binder.bind(result);
+    assertEquals("acme", doc.group);
+    assertEquals(12345678901L, doc.id);
+    assertTrue(doc.draft);
+    assertSame(pattern, binder.pattern());
+    assertSame(Document.class, binder.type());
+  }
+
+  /**
+   * Test binding to the fields of a class.
+   */
+  public void testBind_Fields() {
+    URIPattern pattern = new URIPattern("/member/{id}/{name}{?page,tags}");
+    URIResultBinder<Member> binder = new URIResultBinder<Member>(pattern, Member.class);
+    URIResolveResult result = new URIResolveResult();
+    URIResolver resolver = new URIResolver("/");
+    resolver.resolve("/member/42/john%20smith?page=3&tags=a&tags=b", pattern, new VariableBinder(), result);
+    Member member = binder.bind(result);
+    assertEquals(42, member.id);
+    assertEquals(Integer.valueOf(3), member.page);
+    assertEquals("john smith", member.name);
+    assertEquals(Arrays.asList("a", "b"), member.tags);
+    assertEquals("unchanged", member.other);
+    // missing values
+    resolver.resolve("/member/7/john?tags=a", pattern, new VariableBinder(), result);
+    member = binder.bind(result);
+    assertEquals(7, member.id);
+    assertNull(member.page);
+    assertFalse(result.hasValue("page"));
+    assertTrue(result.hasValue("id"));
+  }
+
+  /**
+   * Test binding to the fields of a class and its superclass.
+   */
+  public void testBind_Inherited() {
+    URIPattern pattern = new URIPattern("/admin/{id}/{active}");
+    URIResultBinder<Admin> binder = new URIResultBinder<Admin>(pattern, Admin.class);
+    URIResolveResult result = new URIResolveResult();
+    new URIResolver("/").resolve("/admin/3/false", pattern, new VariableBinder(), result);
+    Admin admin = binder.bind(result);
+    assertEquals(3, admin.id);
+    assertEquals(Boolean.FALSE, admin.active);
+    assertNull(admin.name);
+  }
+
+  /**
+   * Test binding values which cannot be converted.
+   */
+  public void testBind_Invalid() {
+    try {
+      new URIResultBinder<Invalid>(new URIPattern("/{id}"), Invalid.class);
+      fail("Unsupported type");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+    URIPattern pattern = new URIPattern("/member/{id}/{name}");
+    URIResultBinder<Member> binder = new URIResultBinder<Member>(pattern, Member.class);
+    URIResolveResult result = new URIResolveResult();
+    new URIResolver("/").resolve("/member/x/john", pattern, new VariableBinder(), result);
+    try {
+      binder.bind(result);
+      fail("Not a number");
+    } catch (NumberFormatException ex) {
+      // expected
+    }
+  }
+
+}
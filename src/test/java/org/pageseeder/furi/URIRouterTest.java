@@ -0,0 +1,239 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pageseeder.furi.URIResolver.MatchRule;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>URIRouter</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class URIRouterTest extends TestCase {
+
+  /**
+   * The URIs used for testing.
+   */
+  private static final String[] URIS = {
+    "/home", "/group/dev/home", "/group/dev/list", "/group/home/list", "/document/dir/doc.xml",
+    "/search?q=furi", "/api/status", "/other", "/a/b/c"
+  };
+
+  /**
+   * Test that the router selects the same pattern as the resolver.
+   */
+  public void testFind() {
+    List<URIPattern> patterns = newPatterns();
+    for (MatchRule rule : MatchRule.values()) {
+      URIRouter router = new URIRouter(patterns, rule);
+      for (String uri : URIS) {
+        assertSame(new URIResolver(uri).find(patterns, rule), router.find(uri));
+      }
+    }
+  }
+
+  /**
+   * Test that the router selects the same pattern as the resolver for the text of patterns
+   * without variables.
+   */
+  public void testFind_Literals() {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/group/{group}/home"));
+    patterns.add(new URIPattern("/group/dev/home"));
+    patterns.add(new URIPattern("/home"));
+    patterns.add(new URIPattern("/{page}"));
+    patterns.add(new URIPattern("/about"));
+    patterns.add(new URIPattern("/home"));
+    patterns.add(new URIPattern("/group/dev/{action}"));
+    String[] uris = { "/group/dev/home", "/group/ops/home", "/home", "/about", "/contact", "/group/dev/list", "/" };
+    for (MatchRule rule : MatchRule.values()) {
+      URIRouter router = new URIRouter(patterns, rule);
+      for (String uri : uris) {
+        assertSame(new URIResolver(uri).find(patterns, rule), router.find(uri));
+      }
+    }
+    URIRouter router = new URIRouter(patterns, MatchRule.FIRST_MATCH);
+    assertSame(patterns.get(0), router.find("/group/dev/home"));
+    assertSame(patterns.get(2), router.find("/home"));
+    assertSame(patterns.get(3), router.find("/about"));
+    // literal patterns are routed without matching any pattern
+    router = new URIRouter(patterns, MatchRule.BEST_MATCH, 0);
+    assertSame(patterns.get(1), router.find("/group/dev/home"));
+    assertSame(patterns.get(4), router.find("/about"));
+    assertEquals(0.0, router.averageDepth(), 0.0);
+  }
+
+  /**
+   * Test that the router reorders patterns for the most frequent URIs.
+   */
+  public void testReorder() {
+    List<URIPattern> patterns = newPatterns();
+    URIRouter router = new URIRouter(patterns, MatchRule.FIRST_MATCH, 100);
+    for (int i = 0; i < 1000; i++) {
+      router.find("/search?q=furi");
+    }
+    double before = router.averageDepth();
+    assertEquals("/search{?q}", router.evaluationOrder().get(0).toString());
+    for (int i = 0; i < 1000; i++) {
+      router.find("/search?q=furi");
+    }
+    assertTrue(router.averageDepth() < before);
+    // results must not change
+    for (String uri : URIS) {
+      assertSame(new URIResolver(uri).find(patterns), router.find(uri));
+    }
+    // the catch-all pattern must remain last
+    List<URIPattern> order = router.evaluationOrder();
+    assertEquals("/{+path}", order.get(order.size() - 1).toString());
+  }
+
+  /**
+   * Test that the patterns are not reordered unless a reorder interval is specified.
+   */
+  public void testReorder_Disabled() {
+    List<URIPattern> patterns = newPatterns();
+    URIRouter router = new URIRouter(patterns);
+    for (int i = 0; i < 1000; i++) {
+      router.find("/search?q=furi");
+    }
+    router.reorder();
+    assertEquals(patterns, router.evaluationOrder());
+  }
+
+  /**
+   * Test that the route table can be replaced.
+   */
+  public void testSetPatterns() {
+    URIRouter router = new URIRouter(newPatterns());
+    assertEquals("/home", router.find("/home").toString());
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/{page}"));
+    router.setPatterns(patterns);
+    assertEquals("/{page}", router.find("/home").toString());
+    assertEquals(1, router.patterns().size());
+  }
+
+  /**
+   * Test the <code>resolve</code> method.
+   */
+  public void testResolve() {
+    URIRouter router = new URIRouter(newPatterns());
+    VariableBinder binder = new VariableBinder();
+    URIResolveResult result = router.resolve("/group/dev/list", binder);
+    assertEquals(URIResolveResult.Status.RESOLVED, result.getStatus());
+    assertEquals("/group/{group}/{action}", result.getURIPattern().toString());
+    assertEquals("dev", result.get("group"));
+    assertEquals("list", result.get("action"));
+    assertNull(new URIRouter(new ArrayList<URIPattern>()).resolve("/home", binder));
+  }
+
+  /**
+   * Test the <code>resolve</code> method using the cache.
+   */
+  public void testResolve_Cache() {
+    URIRouter router = new URIRouter(newPatterns());
+    router.setCache(100, 0);
+    VariableBinder binder = new VariableBinder();
+    URIResolveResult result = new URIResolveResult();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(URIResolveResult.Status.RESOLVED, router.resolve("/search?q=a%20b", binder, result));
+      assertEquals("/search{?q}", result.getURIPattern().toString());
+      assertEquals("a b", result.get("q"));
+    }
+    // only the first lookup evaluated the patterns, except the patterns without variables
+    assertEquals(5.0, router.averageDepth(), 0.0);
+    assertEquals("/search{?q}", router.find("/search?q=a%20b").toString());
+    // the cache is cleared when the patterns are replaced
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/search{?r,q}"));
+    router.setPatterns(patterns);
+    router.resolve("/search?q=a%20b", binder, result);
+    assertEquals("/search{?r,q}", result.getURIPattern().toString());
+  }
+
+  /**
+   * Test that the URIs routed by <code>find</code> are cached and can be resolved.
+   */
+  public void testFind_Cache() {
+    URIRouter router = new URIRouter(newPatterns(), MatchRule.FIRST_MATCH, Integer.MAX_VALUE);
+    router.setCache(100, 0);
+    for (int i = 0; i < 4; i++) {
+      assertEquals("/search{?q}", router.find("/search?q=a%20b").toString());
+    }
+    // only the first lookup evaluated the patterns
+    assertEquals(5.0, router.averageDepth(), 0.0);
+    URIResolveResult result = router.resolve("/search?q=a%20b", new VariableBinder());
+    assertEquals("a b", result.get("q"));
+    assertEquals(5.0, router.averageDepth(), 0.0);
+    // hits from the cache are counted for reordering
+    router.find("/document/a.xml");
+    router.find("/document/b.xml");
+    router.reorder();
+    assertEquals("/search{?q}", router.evaluationOrder().get(0).toString());
+  }
+
+  /**
+   * Test that the URIs which cannot match are rejected without evaluating the patterns.
+   */
+  public void testFind_Rejected() {
+    List<URIPattern> patterns = newPatterns();
+    patterns.remove(patterns.size() - 1);
+    URIRouter router = new URIRouter(patterns);
+    URIRouter cached = new URIRouter(patterns);
+    cached.setNegativeCache(10, 0);
+    for (int i = 0; i < 3; i++) {
+      assertNull(router.find("/wp-admin/login.php"));
+      assertNull(router.find("/group/dev"));
+      assertNull(cached.find("/wp-admin/login.php"));
+      assertNull(cached.find("/group/dev"));
+    }
+    // the prefilter rejects the first URI, the negative cache remembers the second one
+    assertTrue(cached.averageDepth() < router.averageDepth());
+    assertEquals("/group/{group}/home", cached.find("/group/dev/home").toString());
+    try {
+      cached.setNegativeCache(-1, 0);
+      fail("Negative size");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  // private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Returns a list of patterns for testing.
+   */
+  private static List<URIPattern> newPatterns() {
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/home"));
+    patterns.add(new URIPattern("/group/{group}/home"));
+    patterns.add(new URIPattern("/group/home/{action}"));
+    patterns.add(new URIPattern("/group/{group}/{action}"));
+    patterns.add(new URIPattern("/document/{+path}"));
+    patterns.add(new URIPattern("/search{?q}"));
+    patterns.add(new URIPattern("/api/status"));
+    patterns.add(new URIPattern("/{+path}"));
+    return patterns;
+  }
+
+}
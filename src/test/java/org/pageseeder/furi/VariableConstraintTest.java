@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.pageseeder.furi.URIResolver.MatchRule;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>VariableConstraint</code> and the <code>VariableConstraintRegistry</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class VariableConstraintTest extends TestCase {
+
+  /**
+   * Test the constraint allowing digits only.
+   */
+  public void testDigits() {
+    VariableConstraint digits = VariableConstraint.digits();
+    assertTrue(digits.matches("0"));
+    assertTrue(digits.matches("1234567890"));
+    assertFalse(digits.matches(""));
+    assertFalse(digits.matches("12a"));
+    assertFalse(digits.matches("%31"));
+    assertFalse(digits.matches(null));
+    VariableConstraint id = digits.withLength(2, 4);
+    assertFalse(id.matches("1"));
+    assertTrue(id.matches("12"));
+    assertTrue(id.matches("1234"));
+    assertFalse(id.matches("12345"));
+  }
+
+  /**
+   * Test the constraint allowing a custom set of characters.
+   */
+  public void testChars() {
+    VariableConstraint slug = VariableConstraint.chars("a-z0-9-");
+    assertTrue(slug.matches("my-doc-2"));
+    assertFalse(slug.matches("My-doc"));
+    assertFalse(slug.matches("my_doc"));
+    assertTrue(VariableConstraint.chars("-_").matches("-_-"));
+    try {
+      VariableConstraint.chars("a/b");
+      fail("Reserved characters should not be allowed");
+    } catch (IllegalArgumentException ex) {
+      assertTrue(true);
+    }
+  }
+
+  /**
+   * Test the constraint allowing a list of values.
+   */
+  public void testValues() {
+    VariableConstraint order = VariableConstraint.values("asc", "desc", "caf%C3%A9");
+    assertTrue(order.matches("asc"));
+    assertTrue(order.matches("desc"));
+    assertTrue(order.matches("caf%C3%A9"));
+    assertFalse(order.matches("as"));
+    assertFalse(order.matches("ascending"));
+    VariableConstraint shorter = order.withLength(1, 3);
+    assertTrue(shorter.matches("asc"));
+    assertFalse(shorter.matches("desc"));
+  }
+
+  /**
+   * Test the constraint on the length of values including escape sequences.
+   */
+  public void testLength() {
+    VariableConstraint length = VariableConstraint.length(2, 3);
+    assertFalse(length.matches("a"));
+    assertTrue(length.matches("%C3%A9"));
+    assertTrue(length.matches("abc"));
+    assertFalse(length.matches("abcd"));
+    assertFalse(length.matches("a b"));
+  }
+
+  /**
+   * Test that the regular expression accepts the same values as the constraint.
+   */
+  public void testRegex() {
+    VariableConstraint[] constraints = {
+      VariableConstraint.digits(),
+      VariableConstraint.digits().withLength(2, 3),
+      VariableConstraint.chars("a-c-"),
+      VariableConstraint.length(2, 4),
+      VariableConstraint.values("a", "b-c", "%41"),
+      VariableConstraint.values("a", "b-c", "%41").withLength(2, 3)
+    };
+    Random random = new Random(3);
+    String chars = "abc01-_%4A";
+    List<String> values = new ArrayList<String>();
+    for (int i = 0; i < 5000; i++) {
+      StringBuilder value = new StringBuilder();
+      for (int j = random.nextInt(7); j > 0; j--) {
+        value.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      values.add(value.toString());
+    }
+    values.add("%41");
+    values.add("b-c");
+    for (VariableConstraint c : constraints) {
+      Pattern regex = Pattern.compile(c.regex());
+      for (String value : values) {
+        assertEquals(c + " " + value, regex.matcher(value).matches() && Variable.isValidValue(value), c.matches(value));
+      }
+    }
+  }
+
+  /**
+   * Test that constraints registered by type are compiled in the pattern.
+   */
+  public void testPattern() {
+    VariableConstraintRegistry registry = new VariableConstraintRegistry();
+    registry.register("int", VariableConstraint.digits());
+    registry.register("order", VariableConstraint.values("asc", "desc"));
+    assertTrue(registry.isTypeRegistered("int"));
+    assertFalse(registry.isTypeRegistered("group"));
+    URIPattern p = new URIPattern("/document/{int:id}/{order:order}", registry);
+    assertTrue(p.match("/document/123/asc"));
+    assertFalse(p.match("/document/abc/asc"));
+    assertFalse(p.match("/document/123/up"));
+    assertTrue(p.pattern().matcher("/document/123/asc").matches());
+    assertFalse(p.pattern().matcher("/document/abc/asc").matches());
+    // the constraints are part of the pattern
+    URIPattern unconstrained = new URIPattern("/document/{int:id}/{order:order}");
+    assertTrue(unconstrained.match("/document/abc/asc"));
+    assertFalse(p.equals(unconstrained));
+    assertEquals(p, new URIPattern("/document/{int:id}/{order:order}", registry));
+    assertEquals(p.hashCode(), new URIPattern("/document/{int:id}/{order:order}", registry).hashCode());
+  }
+
+  /**
+   * Test that the matcher records the same offsets as the regular expression with constraints.
+   */
+  public void testPattern_Offsets() {
+    VariableConstraintRegistry registry = new VariableConstraintRegistry();
+    registry.register("int", VariableConstraint.digits());
+    String[] uris = {"/12ab", "/12", "/ab12", "/1%41b", "/123.html", "/1.2.html"};
+    for (String template : new String[]{"/{int:a}{b}", "/{b}{int:a}", "/{int:a}.html", "/{int:a}{int:b}"}) {
+      URIPattern p = new URIPattern(template, registry);
+      for (String uri : uris) {
+        Matcher m = p.pattern().matcher(uri);
+        int[] offsets = new int[p.tokens().size() * 2];
+        boolean matches = m.matches();
+        assertEquals(template + " " + uri, matches, p.match(uri, offsets));
+        if (!matches) continue;
+        int group = 0;
+        for (int i = 0; i < p.tokens().size(); i++) {
+          if (p.tokens().get(i) instanceof TokenLiteral) continue;
+          group++;
+          assertEquals(m.start(group), offsets[i * 2]);
+          assertEquals(m.end(group), offsets[i * 2 + 1]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test that the next pattern is selected when a value does not satisfy the constraint.
+   */
+  public void testPattern_NextMatch() {
+    VariableConstraintRegistry registry = new VariableConstraintRegistry();
+    registry.register("int", VariableConstraint.digits());
+    List<URIPattern> patterns = new ArrayList<URIPattern>();
+    patterns.add(new URIPattern("/document/{int:id}", registry));
+    patterns.add(new URIPattern("/document/{name}", registry));
+    URIResolver resolver = new URIResolver();
+    assertSame(patterns.get(0), resolver.find("/document/123", patterns, MatchRule.FIRST_MATCH));
+    assertSame(patterns.get(1), resolver.find("/document/abc", patterns, MatchRule.FIRST_MATCH));
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.furi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * A test class for the <code>VariableList</code>.
+ *
+ * @author Christophe Lauret
+ * @version 19 October 2026
+ */
+public class VariableListTest extends TestCase {
+
+  /**
+   * Test the <code>indexOf</code> method.
+   */
+  public void testIndexOf() {
+    VariableList list = newList("a", "bb", "ccc", "a");
+    assertEquals(4, list.size());
+    assertEquals(0, list.indexOf("?a=1", 1, 2));
+    assertEquals(1, list.indexOf("&bb=2", 1, 3));
+    assertEquals(2, list.indexOf("ccc", 0, 3));
+    assertEquals(-1, list.indexOf("cc", 0, 2));
+    assertEquals(-1, list.indexOf("", 0, 0));
+  }
+
+  /**
+   * Test the <code>indexOf</code> method with many variables.
+   */
+  public void testIndexOf_Many() {
+    String[] names = new String[50];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = "v" + i;
+    }
+    VariableList list = newList(names);
+    for (int i = 0; i < names.length; i++) {
+      String s = "&" + names[i] + "=x";
+      assertEquals(i, list.indexOf(s, 1, s.indexOf('=')));
+    }
+    assertEquals(-1, list.indexOf("v50", 0, 3));
+  }
+
+  /**
+   * Test the <code>of</code> method.
+   */
+  public void testOf() {
+    VariableList list = newList("a");
+    assertSame(list, VariableList.of(list));
+    assertEquals(list, VariableList.of(new ArrayList<Variable>(list)));
+  }
+
+  // private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Returns a new variable list with the specified names.
+   */
+  private static VariableList newList(String... names) {
+    List<Variable> vars = new ArrayList<Variable>();
+    for (String name : names) {
+      vars.add(new Variable(name));
+    }
+    return new VariableList(vars);
+  }
+
+}
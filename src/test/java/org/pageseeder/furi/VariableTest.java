@@ -15,7 +15,15 @@
  */
 package org.pageseeder.furi;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 import org.pageseeder.furi.Variable.Form;
 
@@ -91,6 +99,55 @@ public class VariableTest extends TestCase {
     assertTrue(Variable.isValidName("a."));
   }
 
+  /**
+   * Test that the <code>isValidValue</code> method work as specified.
+   */
+  public void testIsValidValue() {
+    // invalid
+    assertFalse(Variable.isValidValue(null));
+    assertFalse(Variable.isValidValue(""));
+    assertFalse(Variable.isValidValue("a b"));
+    assertFalse(Variable.isValidValue("%"));
+    assertFalse(Variable.isValidValue("%4"));
+    assertFalse(Variable.isValidValue("%4a"));
+    assertFalse(Variable.isValidValue("caf\u00E9"));
+    // valid
+    assertTrue(Variable.isValidValue("a"));
+    assertTrue(Variable.isValidValue("_.~-"));
+    assertTrue(Variable.isValidValue("%4A"));
+    assertTrue(Variable.isValidValue("caf%C3%A9"));
+  }
+
+  /**
+   * Test that the validation methods accept exactly the same strings as the regular expressions.
+   */
+  public void testIsValid_SameAsPattern() {
+    Pattern name = Pattern.compile("[a-zA-Z0-9][\\w.-]*");
+    Pattern value = Pattern.compile("(?:[\\w.~-]|(?:%[0-9A-F]{2}))+");
+    List<String> strings = new ArrayList<String>();
+    for (char c = 0; c < 0x180; c++) {
+      strings.add(String.valueOf(c));
+      strings.add("a" + c);
+      strings.add("%" + c + "0");
+      strings.add("%0" + c);
+    }
+    Random random = new Random(1);
+    String chars = "aZ09_.-~%F!g ";
+    for (int i = 0; i < 10000; i++) {
+      StringBuilder s = new StringBuilder();
+      for (int j = random.nextInt(6); j > 0; j--) {
+        s.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      strings.add(s.toString());
+    }
+    for (String s : strings) {
+      assertEquals(s, name.matcher(s).matches(), Variable.isValidName(s));
+      assertEquals(s, name.matcher(s).matches(), VariableType.isValidName(s));
+      assertEquals(s, value.matcher(s).matches(), Variable.isValidValue(s));
+      assertEquals(s, value.matcher(s).matches(), new TokenVariable(new Variable("x")).match(s));
+    }
+  }
+
   /**
    * Test the <code>equals</code> method for variables with no default value.
    */
@@ -223,4 +280,81 @@ public class VariableTest extends TestCase {
   private void assertArrayEquals(String[] exp, String[] act) {
     assertEquals(Arrays.deepToString(exp), Arrays.deepToString(act));
   }
+
+  /**
+   * Test the values read from lists, maps and single objects.
+   */
+  public void testValuesOf() {
+    Variable v = new Variable("x", "def");
+    final Map<String, Object> objects = new LinkedHashMap<String, Object>();
+    Parameters parameters = new URIParameters() {
+      @Override
+      public Object getObject(String name) {
+        return objects.get(name);
+      }
+    };
+    assertEquals(Arrays.asList("def"), toList(v.valuesOf(parameters)));
+    objects.put("x", new LinkedList<Object>(Arrays.asList("a", Integer.valueOf(2), null)));
+    assertEquals(Arrays.asList("a", "2", ""), toList(v.valuesOf(parameters)));
+    Map<String, String> map = new LinkedHashMap<String, String>();
+    map.put("k1", "v1");
+    map.put("k2", "v2");
+    objects.put("x", map);
+    Object values = v.valuesOf(parameters);
+    assertEquals(4, VariableValues.size(values));
+    assertEquals("v2", VariableValues.get(values, 3));
+    assertEquals("k1", VariableValues.get(values, 0));
+    assertEquals(Arrays.asList("k1", "v1", "k2", "v2"), toList(values));
+    objects.put("x", Long.valueOf(7));
+    assertEquals(Arrays.asList("7"), toList(v.valuesOf(parameters)));
+    objects.put("x", new int[]{ 1, 2 });
+    assertEquals(Arrays.asList("1", "2"), toList(v.valuesOf(parameters)));
+    objects.put("x", Collections.emptySet());
+    assertEquals(Arrays.asList("def"), toList(v.valuesOf(parameters)));
+  }
+
+  /**
+   * Test that the default values returned can be modified safely.
+   */
+  public void testValues_Default() {
+    Variable v = new Variable("x", "def");
+    v.values(null)[0] = "changed";
+    v.values(new URIParameters())[0] = "changed";
+    assertEquals("def", v.values(null)[0]);
+    assertEquals(Arrays.asList("def"), toList(v.valuesOf(new URIParameters())));
+  }
+
+  /**
+   * Test expanding a map as an associative array.
+   */
+  public void testValuesOf_Map() {
+    Variable v = new Variable("keys", null, null, Form.MAP);
+    final Map<String, String> map = new LinkedHashMap<String, String>();
+    map.put("a", "1");
+    map.put("b", "2");
+    Parameters parameters = new URIParameters() {
+      @Override
+      public Object getObject(String name) {
+        return name.equals("keys") ? map : null;
+      }
+      @Override
+      public boolean exists(String name) {
+        return name.equals("keys");
+      }
+    };
+    TokenOperatorDX token = new TokenOperatorDX(TokenOperatorDX.Operator.QUERY_PARAMETER, v);
+    assertEquals("?a=1&b=2", token.expand(parameters));
+  }
+
+  /**
+   * Returns the values as a list.
+   */
+  private static List<String> toList(Object values) {
+    List<String> list = new ArrayList<String>();
+    for (int i = 0; i < VariableValues.size(values); i++) {
+      list.add(VariableValues.get(values, i));
+    }
+    return list;
+  }
+
 }